@@ -0,0 +1,164 @@
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the circulation hot paths: checkoutBook, checkoutBatch, returnBook,
+ * countBooksByType and availability lookups (live books vs a published AvailabilityView).
+ * Parameterized by catalog size, patron count and pre-existing history length.
+ * Thread count is set on the command line (./gradlew jmh -Pjmh.threads=N).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CirculationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    @Param({"100", "10000"})
+    public int patronCount;
+
+    @Param({"0", "100000"})
+    public int historyLength;
+
+    static final int BATCH_SIZE = 256;
+
+    Checkout checkout;
+    Book[] books;
+    Patron[] patrons;
+
+    /**
+     * Per-thread random source so threads don't share state.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        checkout = new Checkout();
+        books = new Book[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            Book.BookType type = Book.BookType.values()[i % Book.BookType.values().length];
+            if (type == Book.BookType.REFERENCE) {
+                type = Book.BookType.FICTION;
+            }
+            books[i] = new Book(String.format("978%010d", i), "Title " + i, "Author " + (i % 997), type, 4);
+            checkout.addBook(books[i]);
+        }
+        patrons = new Patron[patronCount];
+        for (int i = 0; i < patronCount; i++) {
+            patrons[i] = new Patron("P-" + i, "Patron " + i, "p" + i + "@example.com", Patron.PatronType.FACULTY);
+            checkout.registerPatron(patrons[i]);
+        }
+        // Grow the closed-loan history so return cost vs history size is visible
+        for (int i = 0; i < historyLength; i++) {
+            Book book = books[i % catalogSize];
+            Patron patron = patrons[i % patronCount];
+            checkout.checkoutBook(book, patron);
+            checkout.returnBook(book.getIsbn(), patron);
+        }
+    }
+
+    @Benchmark
+    public double checkoutThenReturn(ThreadState state) {
+        Book book = books[state.random.nextInt(catalogSize)];
+        Patron patron = patrons[state.random.nextInt(patronCount)];
+        double code = checkout.checkoutBook(book, patron);
+        return code + checkout.returnBook(book.getIsbn(), patron);
+    }
+
+    /**
+     * Same work as BATCH_SIZE calls of checkoutThenReturn, but checked out through
+     * checkoutBatch. Compare per-operation cost by dividing by BATCH_SIZE.
+     */
+    @Benchmark
+    public double checkoutBatchThenReturn(ThreadState state) {
+        List<CheckoutRequest> requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            requests.add(new CheckoutRequest(books[state.random.nextInt(catalogSize)],
+                    patrons[state.random.nextInt(patronCount)]));
+        }
+        double total = 0;
+        for (double code : checkout.checkoutBatch(requests)) {
+            total += code;
+        }
+        for (CheckoutRequest request : requests) {
+            total += checkout.returnBook(request.getBook().getIsbn(), request.getPatron());
+        }
+        return total;
+    }
+
+    /**
+     * Catalog-search style read of the live inventory. Run alongside
+     * checkoutThenReturn in a JMH group to see reads and circulation compete.
+     */
+    @Benchmark
+    public int availabilityFromInventory(ThreadState state) {
+        return checkout.getInventory().get(books[state.random.nextInt(catalogSize)].getIsbn()).getAvailableCopies();
+    }
+
+    /**
+     * The same read from the published view: no locks, no shared writes.
+     */
+    @Benchmark
+    public int availabilityFromView(ThreadState state) {
+        return checkout.getAvailabilityView().getAvailableCopies(books[state.random.nextInt(catalogSize)].getIsbn());
+    }
+
+    /**
+     * First page of an author prefix search done the old way: scan every book.
+     */
+    @Benchmark
+    public int authorSearchByScan(ThreadState state) {
+        String prefix = "author " + state.random.nextInt(100);
+        int found = 0;
+        for (Book book : checkout.getInventory().values()) {
+            if (book.getAuthor().toLowerCase().startsWith(prefix) && book.isAvailable() && ++found == 20) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The same search through the catalog indexes.
+     */
+    @Benchmark
+    public int authorSearchByIndex(ThreadState state) {
+        return checkout.searchByAuthor("author " + state.random.nextInt(100), null, true, 0, 20).size();
+    }
+
+    @Benchmark
+    public int countBooksByTypeAllTypes() {
+        int total = 0;
+        for (Book.BookType type : Book.BookType.values()) {
+            total += checkout.countBooksByType(type, true);
+        }
+        return total;
+    }
+}
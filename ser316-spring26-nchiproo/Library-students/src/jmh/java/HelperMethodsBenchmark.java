@@ -0,0 +1,64 @@
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the stateless helpers: calculateFine and isValidISBN.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelperMethodsBenchmark {
+    private static final int SAMPLES = 1024;
+
+    Checkout checkout;
+    int[] days;
+    Book.BookType[] types;
+    String[] isbns;
+
+    @Setup
+    public void setUp() {
+        checkout = new Checkout();
+        days = new int[SAMPLES];
+        types = new Book.BookType[SAMPLES];
+        isbns = new String[SAMPLES];
+        Book.BookType[] all = Book.BookType.values();
+        for (int i = 0; i < SAMPLES; i++) {
+            days[i] = i % 60;
+            types[i] = all[i % all.length];
+            isbns[i] = (i % 3 == 0) ? "978-0-1234-5678-9" : (i % 3 == 1) ? "0123456789" : "978-INVALID";
+        }
+    }
+
+    @Benchmark
+    public void calculateFine(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) {
+            bh.consume(checkout.calculateFine(days[i], types[i]));
+        }
+    }
+
+    @Benchmark
+    public int[] calculateFinesBatch() {
+        return checkout.calculateFines(days, types);
+    }
+
+    @Benchmark
+    public void isValidISBN(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) {
+            bh.consume(checkout.isValidISBN(isbns[i]));
+        }
+    }
+}
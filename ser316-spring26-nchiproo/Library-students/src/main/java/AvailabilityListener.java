@@ -0,0 +1,24 @@
+/**
+ * Callback for changes to a book's available copy count.
+ * Called after the change, on the thread that made it. Checkouts and returns
+ * change a Book's count without a lock, so two changes racing on one book may be
+ * reported in either order; each report's old and new counts are exact, so a
+ * listener that applies newCopies - oldCopies always ends at the right count.
+ * ColumnarCatalog views behave the same way: they report a change after
+ * releasing the catalog's locks. Callers that need one title's reports in order
+ * serialize its changes themselves, as Checkout does under the title's ISBN
+ * stripe. Neither calls a listener while holding its own locks, so a listener
+ * may change the book's copies (Checkout does, to pass new copies to waiting
+ * holds) and is then called again for that change. Implementations must be fast.
+ */
+public interface AvailabilityListener {
+
+    /**
+     * Reports a change in available copies.
+     *
+     * @param book The book whose copies changed
+     * @param oldCopies Available copies before the change
+     * @param newCopies Available copies after the change
+     */
+    void availabilityChanged(Book book, int oldCopies, int newCopies);
+}
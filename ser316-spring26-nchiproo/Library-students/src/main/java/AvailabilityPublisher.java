@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Builds and publishes a Checkout's AvailabilityViews.
+ *
+ * Nothing is tracked until the first view is asked for. From then on, each
+ * copy-count change records its title in a set of changed titles (one entry per
+ * title however often it changes), and publish() patches only those titles into
+ * the next view, which copies only the chunks of counts those titles fall in
+ * (see AvailabilityView.Draft). Each changed title is read under its own ISBN
+ * stripe, which waits out a return or hold change in progress on that title and
+ * nothing else; the count is one atomic read, so a view never shows a
+ * half-applied change to a title, though a lock-free checkout racing the publish
+ * may land in this view or the next. Titles are read one at a time, not at one
+ * instant, so no publish ever stops circulation across the catalog. Adding
+ * titles makes the next publish rebuild the ISBN index from the inventory.
+ */
+final class AvailabilityPublisher {
+    private final Map<String, Book> inventory;
+    private final StripedLocks bookLocks;
+    private final AtomicReference<AvailabilityView> current = new AtomicReference<>();
+    private final Map<String, Book> changed = new ConcurrentHashMap<>(); // ISBN -> book, since the last publish
+    private final ReentrantLock publishLock = new ReentrantLock(); // one publisher at a time
+    private volatile boolean tracking; // set once the first view is built
+    private volatile boolean titlesChanged;
+    private ScheduledExecutorService timer; // guarded by this
+    private ScheduledFuture<?> task;
+
+    AvailabilityPublisher(Map<String, Book> inventory, StripedLocks bookLocks) {
+        this.inventory = inventory;
+        this.bookLocks = bookLocks;
+    }
+
+    /** Called after a title's available copies change. */
+    void copiesChanged(Book book) {
+        if (tracking && book.getIsbn() != null) {
+            changed.put(book.getIsbn(), book);
+        }
+    }
+
+    /** Called after a title is added to or replaced in the inventory. */
+    void titlesChanged() {
+        titlesChanged = true;
+    }
+
+    /**
+     * Returns the newest view, building the first one if none has been published.
+     */
+    AvailabilityView current() {
+        AvailabilityView view = current.get();
+        return (view != null) ? view : publish();
+    }
+
+    /**
+     * Publishes a view of the inventory as it is now, unless nothing changed
+     * since the last one.
+     *
+     * @return The newest view
+     */
+    AvailabilityView publish() {
+        publishLock.lock();
+        try {
+            AvailabilityView previous = current.get();
+            if (previous != null && !titlesChanged && changed.isEmpty()) {
+                return previous;
+            }
+            AvailabilityView.Draft draft;
+            if (previous == null || titlesChanged) {
+                // Start tracking before the scan: titles that change during it are re-read below
+                tracking = true;
+                titlesChanged = false;
+                List<Book> books = new ArrayList<>(inventory.values());
+                String[] isbns = new String[books.size()];
+                Book.BookType[] types = new Book.BookType[books.size()];
+                for (int row = 0; row < isbns.length; row++) {
+                    isbns[row] = books.get(row).getIsbn();
+                    types[row] = books.get(row).getType();
+                }
+                draft = new AvailabilityView.Draft(new AvailabilityView.Index(isbns, types));
+                for (int row = 0; row < isbns.length; row++) {
+                    draft.set(row, books.get(row).getAvailableCopies());
+                }
+            } else {
+                draft = new AvailabilityView.Draft(previous);
+            }
+
+            AvailabilityView.Index index = draft.getIndex();
+            Iterator<Book> it = changed.values().iterator();
+            while (it.hasNext()) {
+                Book book = it.next();
+                it.remove(); // before the read, so a later change is tracked again
+                int row = index.rowOf(book.getIsbn());
+                if (row >= 0) {
+                    draft.set(row, readCopies(book));
+                }
+            }
+
+            long version = (previous == null) ? 1 : previous.getVersion() + 1;
+            AvailabilityView view = draft.publish(version, System.currentTimeMillis());
+            current.set(view);
+            return view;
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * Reads a title's available copies under its ISBN stripe, so a return or hold
+     * change in progress on it is not seen half done.
+     */
+    private int readCopies(Book book) {
+        ReentrantLock bookLock = bookLocks.lockFor(book.getIsbn());
+        bookLock.lock();
+        try {
+            return book.getAvailableCopies();
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes on a background daemon thread every period, replacing any
+     * schedule already running.
+     */
+    synchronized void start(long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("periodMillis must be positive: " + periodMillis);
+        }
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "availability-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (task != null) {
+            task.cancel(false);
+        }
+        task = timer.scheduleWithFixedDelay(this::publish, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+            task = null;
+        }
+    }
+}
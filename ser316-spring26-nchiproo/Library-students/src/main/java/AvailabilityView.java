@@ -0,0 +1,233 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, versioned picture of how many copies of every title are on the
+ * shelf, for read-heavy traffic such as catalog search.
+ *
+ * A Checkout publishes a new view after circulation changes (see
+ * Checkout.publishAvailability); readers fetch the current one with a single
+ * volatile read and can query it as often as they like without taking any lock
+ * or slowing down checkouts and returns. The per-type totals are kept from the
+ * view's own counts, so they always agree with them. A view never changes after
+ * it is published, so it may be behind the live inventory by up to one
+ * publishing interval; compare getVersion() to tell views apart.
+ *
+ * Counts are stored in fixed-size chunks of rows. A new view shares every chunk
+ * with the one before it except those holding a changed title, which it copies,
+ * so publishing a few changes costs a few chunks rather than the whole catalog.
+ */
+public final class AvailabilityView {
+    private static final Book.BookType[] TYPES = Book.BookType.values();
+    private static final int CHUNK_BITS = 10; // 1024 rows per chunk
+    private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+
+    private final long version;
+    private final long publishedMillis;
+    private final Index index;
+    private final int[][] chunks; // copies by row, CHUNK_ROWS rows per chunk; shared between views
+    private final int[] availableByType; // titles with copies > 0, by type ordinal
+    private final int[] titlesByType;
+
+    private AvailabilityView(long version, long publishedMillis, Draft draft) {
+        this.version = version;
+        this.publishedMillis = publishedMillis;
+        this.index = draft.index;
+        this.chunks = draft.chunks;
+        this.availableByType = draft.availableByType;
+        this.titlesByType = draft.titlesByType;
+    }
+
+    /**
+     * Returns the publication number of this view. Each published view has a
+     * higher version than the one before it.
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns when this view was published, in milliseconds since the epoch.
+     *
+     * @return Publication time
+     */
+    public long getPublishedMillis() {
+        return publishedMillis;
+    }
+
+    /**
+     * Returns the number of titles in this view.
+     *
+     * @return Title count
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Tells whether a title had a copy on the shelf when this view was published.
+     *
+     * @param isbn The ISBN, in any spelling the inventory accepts
+     * @return true if at least one copy was available; false if none or unknown
+     */
+    public boolean isAvailable(String isbn) {
+        return getAvailableCopies(isbn) > 0;
+    }
+
+    /**
+     * Returns the available copies of a title when this view was published.
+     *
+     * @param isbn The ISBN, in any spelling the inventory accepts
+     * @return Available copies, or -1 if the title was not in the inventory
+     */
+    public int getAvailableCopies(String isbn) {
+        int row = index.rowOf(isbn);
+        return (row < 0) ? -1 : chunks[row >>> CHUNK_BITS][row & (CHUNK_ROWS - 1)];
+    }
+
+    /**
+     * Counts titles of a type, as Checkout.countBooksByType does, as of this view.
+     *
+     * @param type The book type
+     * @param onlyAvailable If true, counts only titles with a copy available
+     * @return Number of titles (0 if type is null)
+     */
+    public int countBooksByType(Book.BookType type, boolean onlyAvailable) {
+        if (type == null) {
+            return 0;
+        }
+        return onlyAvailable ? availableByType[type.ordinal()] : titlesByType[type.ordinal()];
+    }
+
+    Index getIndex() {
+        return index;
+    }
+
+    /**
+     * The next view being built. A draft from an index starts with every count at
+     * zero; a draft from a view shares that view's chunks and copies one only when
+     * a row in it is set. Drafts are used by one thread and published once.
+     */
+    static final class Draft {
+        private final Index index;
+        private final int[][] chunks;
+        private final boolean[] copied; // chunks this draft owns and may write
+        private final int[] availableByType;
+        private final int[] titlesByType;
+
+        Draft(Index index) {
+            this.index = index;
+            int rows = index.size();
+            this.chunks = new int[(rows + CHUNK_ROWS - 1) >>> CHUNK_BITS][];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = new int[Math.min(CHUNK_ROWS, rows - (c << CHUNK_BITS))];
+            }
+            this.copied = new boolean[chunks.length];
+            Arrays.fill(copied, true);
+            this.availableByType = new int[TYPES.length];
+            this.titlesByType = new int[TYPES.length];
+            for (Book.BookType type : index.types) {
+                if (type != null) {
+                    titlesByType[type.ordinal()]++;
+                }
+            }
+        }
+
+        Draft(AvailabilityView previous) {
+            this.index = previous.index;
+            this.chunks = previous.chunks.clone();
+            this.copied = new boolean[chunks.length];
+            this.availableByType = previous.availableByType.clone();
+            this.titlesByType = previous.titlesByType;
+        }
+
+        Index getIndex() {
+            return index;
+        }
+
+        /**
+         * Sets a row's available copies, copying its chunk first if it is shared.
+         */
+        void set(int row, int copies) {
+            int c = row >>> CHUNK_BITS;
+            if (!copied[c]) {
+                chunks[c] = chunks[c].clone();
+                copied[c] = true;
+            }
+            int[] chunk = chunks[c];
+            int old = chunk[row & (CHUNK_ROWS - 1)];
+            chunk[row & (CHUNK_ROWS - 1)] = copies;
+            Book.BookType type = index.types[row];
+            if (type != null && (old > 0) != (copies > 0)) {
+                availableByType[type.ordinal()] += (copies > 0) ? 1 : -1;
+            }
+        }
+
+        AvailabilityView publish(long version, long publishedMillis) {
+            return new AvailabilityView(version, publishedMillis, this);
+        }
+    }
+
+    /**
+     * ISBN to row lookup shared by every view published until the set of titles
+     * changes. Valid ISBNs are found through their IsbnKey in an open-addressing
+     * table, so any spelling of an ISBN finds its row; other keys use a HashMap.
+     */
+    static final class Index {
+        private final long[] slotKeys; // IsbnKey + 1; 0 marks an empty slot
+        private final int[] slotRows;
+        private final Map<String, Integer> otherRows = new HashMap<>();
+        final Book.BookType[] types; // by row
+
+        Index(String[] isbns, Book.BookType[] types) {
+            this.types = types;
+            int slots = Integer.highestOneBit(Math.max(8, isbns.length * 2) - 1) << 1; // load factor <= 0.5
+            this.slotKeys = new long[slots];
+            this.slotRows = new int[slots];
+            int mask = slots - 1;
+            for (int row = 0; row < isbns.length; row++) {
+                long key = IsbnKey.parse(isbns[row]);
+                if (key == IsbnKey.INVALID) {
+                    otherRows.put(isbns[row], row);
+                    continue;
+                }
+                int slot = IsbnMap.hash(key) & mask;
+                while (slotKeys[slot] != 0 && slotKeys[slot] != key + 1) {
+                    slot = (slot + 1) & mask;
+                }
+                slotKeys[slot] = key + 1;
+                slotRows[slot] = row;
+            }
+        }
+
+        int rowOf(String isbn) {
+            if (isbn == null) {
+                return -1;
+            }
+            long key = IsbnKey.parse(isbn);
+            if (key == IsbnKey.INVALID) {
+                Integer row = otherRows.get(isbn);
+                return (row == null) ? -1 : row;
+            }
+            int mask = slotKeys.length - 1;
+            int slot = IsbnMap.hash(key) & mask;
+            while (true) {
+                long stored = slotKeys[slot];
+                if (stored == 0) {
+                    return -1;
+                }
+                if (stored == key + 1) {
+                    return slotRows[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        int size() {
+            return types.length;
+        }
+    }
+}
@@ -1,19 +1,36 @@
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a book in the library system.
  * Books have ISBN numbers, metadata, and availability status.
+ * Available copies live in one padded atomic counter: tryCheckout and release
+ * take and return single copies by compare-and-set, kept within
+ * [0, totalCopies], so concurrent checkouts of a title never lose an update or
+ * wait on a lock. addCopies and removeCopies are atomic too;
+ * setAvailableCopies and resetAvailability replace the count outright and need
+ * a title nothing else is lending from or returning to.
+ *
+ * Each physical copy also has a number, 1 to totalCopies, and a CopySet records
+ * which numbers are on the shelf. checkoutCopy hands out the lowest shelved copy
+ * and returnCopy puts a given copy back, so a loan can name the item the patron
+ * holds. The count stays the authority for availability; copies whose number
+ * isn't known (a count set outright, or a return that doesn't say which copy)
+ * are lent and returned as NO_COPY.
  */
 public class Book {
+    /** Copy number for a copy whose number isn't tracked. */
+    public static final int NO_COPY = 0;
+
     private String isbn;
     private String title;
     private String author;
     private BookType type;
-    private boolean available;
     private boolean referenceOnly;
-    private int totalCopies;
-    private int availableCopies;
+    private volatile int totalCopies;
+    private final CopyCounter copies; // null in catalog views, which keep counts elsewhere
+    private final CopySet copySet; // null in catalog views, which don't number copies
+    private final List<AvailabilityListener> listeners = new CopyOnWriteArrayList<>();
 
     public enum BookType {
         FICTION,
@@ -33,6 +50,14 @@ public class Book {
      * @param totalCopies Total number of copies owned by library
      */
     public Book(String isbn, String title, String author, BookType type, int totalCopies) {
+        this(isbn, title, author, type, totalCopies, true);
+    }
+
+    /**
+     * Creates a Book, optionally without its own copy counter. Subclasses that
+     * pass false must override every method that reads or changes copies.
+     */
+    Book(String isbn, String title, String author, BookType type, int totalCopies, boolean ownCounter) {
         this.isbn = isbn;
         this.title = title;
         this.author = author;
@@ -41,13 +66,8 @@ public class Book {
         this.referenceOnly = (type == BookType.REFERENCE);
 
         // Reference books never circulate - always unavailable for checkout
-        if (this.referenceOnly) {
-            this.availableCopies = 0;
-            this.available = false;
-        } else {
-            this.availableCopies = totalCopies;
-            this.available = true;
-        }
+        this.copies = ownCounter ? new CopyCounter(referenceOnly ? 0 : totalCopies) : null;
+        this.copySet = ownCounter ? new CopySet(totalCopies, !referenceOnly) : null;
     }
 
     // Getters
@@ -68,7 +88,7 @@ public class Book {
     }
 
     public boolean isAvailable() {
-        return availableCopies > 0;
+        return copies.get() > 0;
     }
 
     public boolean isReferenceOnly() {
@@ -80,49 +100,249 @@ public class Book {
     }
 
     public int getAvailableCopies() {
-        return availableCopies;
+        return copies.get();
+    }
+
+    /**
+     * Tells whether a given copy is on the shelf.
+     *
+     * @param copy Copy number, from 1
+     * @return true if the copy belongs to this title and is on the shelf
+     */
+    public boolean isCopyOnShelf(int copy) {
+        return copySet.isShelved(copy);
+    }
+
+    /**
+     * Registers a listener for available-copy changes.
+     * The returned count is read after the listener is added, so the listener
+     * sees every change after that value. A tryCheckout or release that races
+     * with registration may also be reported, with its old and new counts.
+     *
+     * @param listener The listener to add
+     * @return Available copies at the moment of registration
+     */
+    public synchronized int addAvailabilityListener(AvailabilityListener listener) {
+        listeners.add(listener);
+        return getAvailableCopies();
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener to remove
+     * @return Available copies at the moment of removal
+     */
+    public synchronized int removeAvailabilityListener(AvailabilityListener listener) {
+        listeners.remove(listener);
+        return getAvailableCopies();
     }
 
     // Setters
+
+    /**
+     * Sets the available count outright and shelves the lowest-numbered copies
+     * to match. Holds this book's monitor, so it is serialized with addCopies,
+     * removeCopies and resetAvailability, but not with the lock-free checkoutCopy
+     * and returnCopy: a checkout or return in flight could be overwritten or find
+     * its copy moved. Call it only on a quiescent title - one not yet in an
+     * inventory, or one no loan, return or hold can reach while it runs.
+     *
+     * @param copies Available copies
+     */
     public void setAvailableCopies(int copies) {
-        this.availableCopies = copies;
-        this.available = (copies > 0);
+        int old;
+        synchronized (this) {
+            copySet.shelveFirst(copies);
+            old = this.copies.getAndSet(copies);
+        }
+        fireAvailabilityChanged(old, copies);
     }
 
     /**
-     * Decrements available copies when book is checked out.
+     * Takes one copy off the shelf, if one is left, with a single compare-and-set.
+     *
+     * @return true if a copy was taken; false if none were available
      */
-    public void checkout() {
-        if (availableCopies > 0) {
-            availableCopies--;
+    public boolean tryCheckout() {
+        return checkoutCopy() >= 0;
+    }
+
+    /**
+     * Takes the lowest-numbered copy off the shelf, if one is left. The count is
+     * reserved first, so a shelved copy is always there to number.
+     *
+     * @return The copy number, NO_COPY if a copy was taken but its number isn't
+     *         tracked, or -1 if none were available
+     */
+    public int checkoutCopy() {
+        int old = copies.tryDecrement();
+        if (old < 0) {
+            return -1;
+        }
+        int copy = copySet.take();
+        fireAvailabilityChanged(old, old - 1);
+        return (copy < 0) ? NO_COPY : copy;
+    }
+
+    /**
+     * Puts one copy back on the shelf, unless every copy is already there.
+     *
+     * @return true if the copy was put back; false if available copies were already at totalCopies
+     */
+    public boolean release() {
+        return returnCopy(NO_COPY);
+    }
+
+    /**
+     * Puts a given copy back on the shelf. The copy is shelved before the count
+     * goes up, so a checkout the count lets through always finds it. If the copy
+     * is NO_COPY, or isn't one of ours that is out, the lowest-numbered copy that
+     * is out goes back instead.
+     *
+     * @param copy Copy number, from 1, or NO_COPY
+     * @return true if a copy was put back; false if available copies were already at totalCopies
+     */
+    public boolean returnCopy(int copy) {
+        if (copy == NO_COPY || !copySet.put(copy)) {
+            copy = copySet.putAny();
+        }
+        int old = copies.tryIncrement(totalCopies);
+        if (old < 0) {
+            if (copy > 0) {
+                copySet.take(copy);
+            }
+            return false;
         }
-        this.available = (availableCopies > 0);
+        fireAvailabilityChanged(old, old + 1);
+        return true;
     }
 
     /**
-     * Increments available copies when book is returned.
+     * Decrements available copies when book is checked out (no change if none are left).
+     */
+    public void checkout() {
+        tryCheckout();
+    }
+
+    /**
+     * Increments available copies when book is returned (never above totalCopies).
      */
     public void returnBook() {
-        if (availableCopies < 100) {
-            availableCopies++;
+        release();
+    }
+
+    /**
+     * Returns which copies this title owns and which are on the shelf, for a
+     * snapshot (see CopySet.toWords). Empty for books that don't number copies.
+     */
+    long[] getCopyWords() {
+        return copySet.toWords();
+    }
+
+    /**
+     * Restores the available count and the copy map saved by a snapshot. Called
+     * on a book that is not yet in an inventory.
+     *
+     * @param available Available copies
+     * @param copyWords Map from getCopyWords, or empty to shelve the lowest-numbered copies
+     */
+    void restoreCopies(int available, long[] copyWords) {
+        if (copyWords.length == 0) {
+            setAvailableCopies(available);
+            return;
         }
-        this.available = (availableCopies > 0);
+        int old;
+        synchronized (this) {
+            copySet.load(copyWords);
+            old = copies.getAndSet(available);
+        }
+        fireAvailabilityChanged(old, available);
     }
 
+    /**
+     * Puts every copy back on the shelf. Like setAvailableCopies, it needs a
+     * quiescent title: a checkout or return racing with it may be lost.
+     */
     public void resetAvailability() {
-        this.availableCopies = this.totalCopies;
-        this.available = true;
+        int old;
+        int total;
+        synchronized (this) {
+            total = totalCopies;
+            copySet.shelveFirst(total);
+            old = copies.getAndSet(total);
+        }
+        fireAvailabilityChanged(old, total);
+    }
+
+    /**
+     * Adds copies to this title's holdings, e.g. when they arrive from another branch.
+     * The new copies take the lowest free copy numbers and go on the shelf.
+     * Reference books stay non-circulating. Listeners are told after this book's
+     * monitor is released, so a Checkout can pass the new copies to waiting holds.
+     *
+     * @param copies Number of copies to add (positive)
+     * @throws IllegalArgumentException if copies is not positive
+     */
+    public void addCopies(int copies) {
+        if (copies <= 0) {
+            throw new IllegalArgumentException("copies must be positive: " + copies);
+        }
+        int old;
+        synchronized (this) {
+            this.totalCopies += copies; // raise the ceiling before the copies can be seen
+            copySet.add(copies, !referenceOnly);
+            if (referenceOnly) {
+                return;
+            }
+            old = this.copies.getAndAdd(copies);
+        }
+        fireAvailabilityChanged(old, old + copies);
+    }
+
+    /**
+     * Removes copies from this title's holdings, e.g. when they leave for another
+     * branch. Only copies on the shelf can be removed; the lowest-numbered go.
+     *
+     * @param copies Number of copies to remove (positive)
+     * @return true if removed; false if fewer copies are available
+     * @throws IllegalArgumentException if copies is not positive
+     */
+    public boolean removeCopies(int copies) {
+        if (copies <= 0) {
+            throw new IllegalArgumentException("copies must be positive: " + copies);
+        }
+        int old;
+        synchronized (this) {
+            old = referenceOnly ? -1 : this.copies.tryRemove(copies);
+            if (old < 0) {
+                return false;
+            }
+            copySet.withdraw(copies);
+            this.totalCopies -= copies;
+        }
+        fireAvailabilityChanged(old, old - copies);
+        return true;
+    }
+
+    private void fireAvailabilityChanged(int oldCopies, int newCopies) {
+        if (oldCopies == newCopies) {
+            return;
+        }
+        for (AvailabilityListener listener : listeners) {
+            listener.availabilityChanged(this, oldCopies, newCopies);
+        }
     }
 
     public boolean checkAvailability() {
-        return this.available;
+        return isAvailable();
     }
 
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null) return false;
-        if (getClass() != obj.getClass()) return false;
+        if (!(obj instanceof Book)) return false; // catalog views subclass Book
         Book other = (Book) obj;
         if (isbn == null) {
             if (other.isbn != null) return false;
@@ -140,6 +360,6 @@ public class Book {
 
     @Override
     public String toString() {
-        return "Book[isbn=" + isbn + ",title=" + title + ",author=" + author + ",type=" + type + ",availableCopies=" + availableCopies + "/" + totalCopies + "]";
+        return "Book[isbn=" + isbn + ",title=" + title + ",author=" + author + ",type=" + type + ",availableCopies=" + getAvailableCopies() + "/" + getTotalCopies() + "]";
     }
 }
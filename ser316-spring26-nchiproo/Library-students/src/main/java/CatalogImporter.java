@@ -0,0 +1,421 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streaming bulk loader for book and patron flat files.
+ *
+ * Files are comma-separated, one record per line, UTF-8:
+ * - books:   isbn,title,author,type,totalCopies
+ * - patrons: patronId,name,email,type
+ * Types are enum names (case-insensitive). A field may be wrapped in double
+ * quotes to hold commas, with "" for a literal quote. Blank lines and lines
+ * starting with '#' are skipped. Records that fail validation (bad ISBN, unknown
+ * type, bad copy count, missing fields) are counted and skipped, not fatal.
+ *
+ * One thread reads the file through a FileChannel into a fixed pool of chunk
+ * buffers, cut at line boundaries, and worker threads parse chunks in parallel.
+ * ISBNs are validated on the raw bytes before any String is made. Memory use is
+ * bounded by the pool (workers * 2 chunks of CHUNK_SIZE), whatever the file size.
+ */
+public class CatalogImporter {
+    /** Bytes per chunk; also the longest line accepted. */
+    public static final int CHUNK_SIZE = 1 << 20;
+
+    private static final Book.BookType[] BOOK_TYPES = Book.BookType.values();
+    private static final Patron.PatronType[] PATRON_TYPES = Patron.PatronType.values();
+
+    private final int workers;
+    private final boolean verifyChecksum;
+
+    /**
+     * Creates an importer using every core and format-only ISBN checks
+     * (the rule Checkout.isValidISBN documents).
+     */
+    public CatalogImporter() {
+        this(Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * Creates an importer.
+     *
+     * @param workers Number of parsing threads
+     * @param verifyChecksum true to also reject ISBNs with a wrong check digit
+     */
+    public CatalogImporter(int workers, boolean verifyChecksum) {
+        this.workers = Math.max(1, workers);
+        this.verifyChecksum = verifyChecksum;
+    }
+
+    /**
+     * Loads a book file and a patron file into a new Checkout whose tables are
+     * sized from the file sizes, so they do not rehash while loading.
+     *
+     * @param books Book file
+     * @param patrons Patron file (may be null)
+     * @return The loaded Checkout
+     * @throws IOException if a file cannot be read
+     */
+    public Checkout load(Path books, Path patrons) throws IOException {
+        int expectedBooks = estimateLines(books);
+        int expectedPatrons = (patrons == null) ? 16 : estimateLines(patrons);
+        Checkout checkout = new Checkout(new IsbnMap<>(expectedBooks), expectedPatrons);
+        importBooks(books, checkout);
+        if (patrons != null) {
+            importPatrons(patrons, checkout);
+        }
+        return checkout;
+    }
+
+    /**
+     * Adds every valid book record in a file to a Checkout.
+     *
+     * @param file Book file
+     * @param checkout Target
+     * @return Counts of imported and rejected records
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importBooks(Path file, Checkout checkout) throws IOException {
+        return run(file, (data, bounds, quoted) -> {
+            if (!IsbnValidator.isValid(ByteBuffer.wrap(data), bounds[0], bounds[1], verifyChecksum)) {
+                return false;
+            }
+            Book.BookType type = parseEnum(data, bounds[6], bounds[7], BOOK_TYPES);
+            int copies = parseCount(data, bounds[8], bounds[9]);
+            if (type == null || copies < 0) {
+                return false;
+            }
+            checkout.addBook(new Book(text(data, bounds, quoted, 0), text(data, bounds, quoted, 1),
+                    text(data, bounds, quoted, 2), type, copies));
+            return true;
+        }, 5);
+    }
+
+    /**
+     * Registers every valid patron record in a file with a Checkout.
+     *
+     * @param file Patron file
+     * @param checkout Target
+     * @return Counts of imported and rejected records
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importPatrons(Path file, Checkout checkout) throws IOException {
+        return run(file, (data, bounds, quoted) -> {
+            Patron.PatronType type = parseEnum(data, bounds[6], bounds[7], PATRON_TYPES);
+            if (type == null || bounds[0] == bounds[1]) {
+                return false;
+            }
+            checkout.registerPatron(new Patron(text(data, bounds, quoted, 0), text(data, bounds, quoted, 1),
+                    text(data, bounds, quoted, 2), type));
+            return true;
+        }, 4);
+    }
+
+    /** Handles one split record; returns false to count it as rejected. */
+    private interface RecordHandler {
+        boolean accept(byte[] data, int[] bounds, boolean[] quoted);
+    }
+
+    /** A pooled buffer holding whole lines. A null data array tells a worker to stop. */
+    private static final class Chunk {
+        final byte[] data;
+        int length;
+
+        Chunk(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    private ImportResult run(Path file, RecordHandler handler, int fields) throws IOException {
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(workers * 2);
+        BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(workers * 2 + workers);
+        for (int i = 0; i < workers * 2; i++) {
+            free.add(new Chunk(new byte[CHUNK_SIZE]));
+        }
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            threads[i] = new Thread(() -> {
+                int[] bounds = new int[fields * 2];
+                boolean[] quoted = new boolean[fields];
+                try {
+                    while (true) {
+                        Chunk chunk = full.take();
+                        if (chunk.data == null) {
+                            return;
+                        }
+                        try {
+                            if (failure.get() == null) {
+                                parseChunk(chunk, fields, bounds, quoted, handler, imported, rejected);
+                            }
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            free.add(chunk);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "catalog-import-" + i);
+            threads[i].start();
+        }
+
+        try {
+            readChunks(file, free, full, failure);
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                full.add(new Chunk(null));
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error != null) {
+            throw new IOException("import interrupted: " + file, error);
+        }
+        return new ImportResult(imported.get(), rejected.get());
+    }
+
+    /**
+     * Fills pooled chunks from the file, ending each at its last newline and
+     * carrying the partial line into the next chunk.
+     */
+    private static void readChunks(Path file, BlockingQueue<Chunk> free, BlockingQueue<Chunk> full,
+                                   AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Chunk current = free.take();
+            int filled = 0;
+            boolean eof = false;
+            while (!eof && failure.get() == null) {
+                ByteBuffer target = ByteBuffer.wrap(current.data, filled, current.data.length - filled);
+                while (target.hasRemaining()) {
+                    if (channel.read(target) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                filled = target.position();
+                int cut = filled;
+                if (!eof) {
+                    cut = lastNewline(current.data, filled) + 1;
+                    if (cut == 0) {
+                        throw new IOException("line longer than " + CHUNK_SIZE + " bytes in " + file);
+                    }
+                }
+                Chunk next = eof ? null : free.take();
+                if (next != null) {
+                    System.arraycopy(current.data, cut, next.data, 0, filled - cut);
+                }
+                current.length = cut;
+                full.put(current);
+                if (next != null) {
+                    filled = filled - cut;
+                    current = next;
+                }
+            }
+        }
+    }
+
+    private static int lastNewline(byte[] data, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (data[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void parseChunk(Chunk chunk, int fields, int[] bounds, boolean[] quoted, RecordHandler handler,
+                                   AtomicLong imported, AtomicLong rejected) {
+        byte[] data = chunk.data;
+        long ok = 0;
+        long bad = 0;
+        int start = 0;
+        while (start < chunk.length) {
+            int end = start;
+            while (end < chunk.length && data[end] != '\n') {
+                end++;
+            }
+            int lineEnd = (end > start && data[end - 1] == '\r') ? end - 1 : end;
+            if (lineEnd > start && data[start] != '#') {
+                if (split(data, start, lineEnd, fields, bounds, quoted) && handler.accept(data, bounds, quoted)) {
+                    ok++;
+                } else {
+                    bad++;
+                }
+            }
+            start = end + 1;
+        }
+        imported.addAndGet(ok);
+        rejected.addAndGet(bad);
+    }
+
+    /**
+     * Splits [start, end) into exactly the given number of fields, storing each
+     * field's [from, to) in bounds (quotes excluded).
+     *
+     * @return false if the line has a different number of fields
+     */
+    private static boolean split(byte[] data, int start, int end, int fields, int[] bounds, boolean[] quoted) {
+        int pos = start;
+        for (int f = 0; f < fields; f++) {
+            if (pos > end) {
+                return false;
+            }
+            int fieldEnd;
+            if (pos < end && data[pos] == '"') {
+                quoted[f] = true;
+                bounds[2 * f] = pos + 1;
+                int i = pos + 1;
+                while (true) {
+                    if (i >= end) {
+                        return false; // unterminated quote
+                    }
+                    if (data[i] == '"') {
+                        if (i + 1 < end && data[i + 1] == '"') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                bounds[2 * f + 1] = i;
+                fieldEnd = i + 1;
+            } else {
+                quoted[f] = false;
+                bounds[2 * f] = pos;
+                fieldEnd = pos;
+                while (fieldEnd < end && data[fieldEnd] != ',') {
+                    fieldEnd++;
+                }
+                bounds[2 * f + 1] = fieldEnd;
+            }
+            boolean last = f == fields - 1;
+            if (last) {
+                return fieldEnd == end;
+            }
+            if (fieldEnd >= end || data[fieldEnd] != ',') {
+                return false;
+            }
+            pos = fieldEnd + 1;
+        }
+        return true;
+    }
+
+    private static String text(byte[] data, int[] bounds, boolean[] quoted, int field) {
+        int from = bounds[2 * field];
+        String value = new String(data, from, bounds[2 * field + 1] - from, StandardCharsets.UTF_8);
+        return quoted[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(byte[] data, int from, int to, E[] values) {
+        for (E value : values) {
+            String name = value.name();
+            if (name.length() != to - from) {
+                continue;
+            }
+            boolean match = true;
+            for (int i = 0; i < name.length() && match; i++) {
+                match = Character.toUpperCase((char) data[from + i]) == name.charAt(i);
+            }
+            if (match) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static int parseCount(byte[] data, int from, int to) {
+        if (from == to || to - from > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int d = data[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * Estimates a file's line count from its size and the average line length in
+     * its first 64 KB.
+     */
+    static int estimateLines(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer sample = ByteBuffer.allocate(64 * 1024);
+            while (sample.hasRemaining() && channel.read(sample) >= 0) {
+                // keep reading until the sample is full or the file ends
+            }
+            int newlines = 0;
+            for (int i = 0; i < sample.position(); i++) {
+                if (sample.get(i) == '\n') {
+                    newlines++;
+                }
+            }
+            if (newlines == 0) {
+                return 16;
+            }
+            long estimate = channel.size() * newlines / sample.position();
+            return (int) Math.min(Integer.MAX_VALUE / 4, Math.max(16, estimate));
+        }
+    }
+
+    /**
+     * Counts from one import.
+     */
+    public static final class ImportResult {
+        private final long imported;
+        private final long rejected;
+
+        ImportResult(long imported, long rejected) {
+            this.imported = imported;
+            this.rejected = rejected;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "imported=" + imported + ", rejected=" + rejected;
+        }
+    }
+}
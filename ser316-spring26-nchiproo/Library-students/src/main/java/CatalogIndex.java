@@ -0,0 +1,404 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.regex.Pattern;
+
+/**
+ * Secondary indexes over a Checkout's inventory, for finding books by title or
+ * author words and by type without scanning every book.
+ *
+ * Every title gets a dense id when first indexed. Titles and authors are split
+ * into normalized tokens (lower case, accents and punctuation dropped), and each
+ * token maps to the sorted ids of the books containing it. The tokens are kept
+ * in a sorted map, so the tokens starting with a prefix are one contiguous range.
+ * Each type has a bitset of its ids. A query ANDs one prefix per query word with
+ * the type, rarest word first; once few candidates are left, a common word is
+ * checked by binary search on the candidates instead of expanding its postings.
+ * The best offset + limit matches are kept in a bounded heap, so a page costs
+ * the rare words' postings plus O(matches log k), never the whole catalog.
+ *
+ * Per id the index keeps only the packed ISBN key (see IsbnKey) and the title
+ * and author strings the inventory already holds, so it adds no object per
+ * title. Books are fetched from the inventory by ISBN only for the titles a
+ * query returns, and for candidates an available-only query must check; with a
+ * ColumnarCatalog inventory, that is the only time a view is built.
+ *
+ * Updated by Checkout.addBook; re-adding an ISBN re-indexes it under the same id.
+ * Searches run under a read lock, additions under the write lock.
+ */
+final class CatalogIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Which words a search matches against. */
+    enum Field {
+        TITLE,
+        AUTHOR
+    }
+
+    private final Map<String, Book> inventory;
+    private final StampedLock lock = new StampedLock();
+    private final NavigableMap<String, Postings> titleTokens = new TreeMap<>();
+    private final NavigableMap<String, Postings> authorTokens = new TreeMap<>();
+    private final Map<Book.BookType, BitSet> byType = new EnumMap<>(Book.BookType.class);
+
+    // Ids, by ISBN key: open addressing, slots hold key + 1 so 0 means empty
+    private long[] slotKeys = new long[32];
+    private int[] slotIds = new int[32];
+    private final Map<String, Integer> otherIds = new HashMap<>(); // inventory keys that are not ISBNs -> id
+    private final Map<Integer, String> otherKeys = new HashMap<>(); // id -> such a key
+
+    // Columns, indexed by id
+    private long[] keys = new long[16]; // IsbnKey, or IsbnKey.INVALID (see otherKeys)
+    private String[] titles = new String[16]; // for ranking and re-indexing
+    private String[] authors = new String[16]; // for re-indexing
+    private int size;
+
+    /**
+     * @param inventory The store the indexed books live in, read to fetch matches
+     */
+    CatalogIndex(Map<String, Book> inventory) {
+        this.inventory = inventory;
+        for (Book.BookType type : Book.BookType.values()) {
+            byType.put(type, new BitSet());
+        }
+    }
+
+    /**
+     * Indexes a book, replacing the entry for its ISBN if there is one. Only the
+     * book's fields are read; the Book itself is not kept.
+     *
+     * @param book The inventory's record of the book
+     */
+    void add(Book book) {
+        long key = IsbnKey.parse(book.getIsbn());
+        long stamp = lock.writeLock();
+        try {
+            int id = findId(key, book.getIsbn());
+            if (id >= 0) {
+                unindex(id);
+            } else {
+                id = size++;
+                if (id == keys.length) {
+                    keys = Arrays.copyOf(keys, id * 2);
+                    titles = Arrays.copyOf(titles, id * 2);
+                    authors = Arrays.copyOf(authors, id * 2);
+                }
+                keys[id] = key;
+                if (key == IsbnKey.INVALID) {
+                    otherIds.put(book.getIsbn(), id);
+                    otherKeys.put(id, book.getIsbn());
+                } else {
+                    insertSlot(key, id);
+                }
+            }
+            titles[id] = book.getTitle();
+            authors[id] = book.getAuthor();
+            for (String token : tokens(book.getTitle())) {
+                titleTokens.computeIfAbsent(token, t -> new Postings()).add(id);
+            }
+            for (String token : tokens(book.getAuthor())) {
+                authorTokens.computeIfAbsent(token, t -> new Postings()).add(id);
+            }
+            if (book.getType() != null) {
+                byType.get(book.getType()).set(id);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void unindex(int id) {
+        for (String token : tokens(titles[id])) {
+            remove(titleTokens, token, id);
+        }
+        for (String token : tokens(authors[id])) {
+            remove(authorTokens, token, id);
+        }
+        for (BitSet ofType : byType.values()) {
+            ofType.clear(id);
+        }
+    }
+
+    /** Returns the id of an indexed ISBN, or -1. The caller holds the lock. */
+    private int findId(long key, String isbn) {
+        if (key == IsbnKey.INVALID) {
+            Integer id = otherIds.get(isbn);
+            return (id == null) ? -1 : id;
+        }
+        int mask = slotKeys.length - 1;
+        for (int slot = IsbnMap.hash(key) & mask; slotKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (slotKeys[slot] == key + 1) {
+                return slotIds[slot];
+            }
+        }
+        return -1;
+    }
+
+    private void insertSlot(long key, int id) {
+        if ((size + 1) * 2 > slotKeys.length) {
+            long[] oldKeys = slotKeys;
+            int[] oldIds = slotIds;
+            slotKeys = new long[oldKeys.length * 2];
+            slotIds = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    place(oldKeys[i] - 1, oldIds[i]);
+                }
+            }
+        }
+        place(key, id);
+    }
+
+    private void place(long key, int id) {
+        int mask = slotKeys.length - 1;
+        int slot = IsbnMap.hash(key) & mask;
+        while (slotKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slotKeys[slot] = key + 1;
+        slotIds[slot] = id;
+    }
+
+    /** Fetches an indexed title's record from the inventory. */
+    private Book lookup(int id) {
+        long key = keys[id];
+        return inventory.get((key == IsbnKey.INVALID) ? otherKeys.get(id) : IsbnKey.toIsbn(key));
+    }
+
+    private static void remove(NavigableMap<String, Postings> index, String token, int id) {
+        Postings postings = index.get(token);
+        if (postings != null && postings.remove(id) && postings.size == 0) {
+            index.remove(token);
+        }
+    }
+
+    /**
+     * Finds books whose title or author has, for every word of the query, a word
+     * starting with it. Matches are ranked by how many query words match a whole
+     * word, then by title, then by ISBN; pages are cut from that order.
+     *
+     * @param field Whether to match title or author words
+     * @param query Words to match as prefixes; blank matches every book
+     * @param type Only books of this type, or null for any type
+     * @param availableOnly Only books with a copy on the shelf at the time of the search
+     * @param offset Matches to skip, e.g. page * limit
+     * @param limit Most matches to return
+     * @return The matches, best first
+     */
+    List<Book> search(Field field, String query, Book.BookType type, boolean availableOnly, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+        List<String> words = new ArrayList<>(tokens(query));
+        NavigableMap<String, Postings> index = (field == Field.TITLE) ? titleTokens : authorTokens;
+        int k = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+
+        long stamp = lock.readLock();
+        try {
+            // Each word's postings: every token it is a prefix of. Rarest word first.
+            List<Collection<Postings>> ranges = new ArrayList<>();
+            List<Postings> wholeWords = new ArrayList<>(); // query words that are also whole tokens
+            for (String word : words) {
+                ranges.add(index.subMap(word, true, word + Character.MAX_VALUE, false).values());
+                Postings whole = index.get(word);
+                if (whole != null) {
+                    wholeWords.add(whole);
+                }
+            }
+            ranges.sort(Comparator.comparingLong(CatalogIndex::total));
+
+            BitSet matches = (type == null) ? all() : (BitSet) byType.get(type).clone();
+            for (Collection<Postings> range : ranges) {
+                int candidates = matches.cardinality();
+                if (candidates == 0) {
+                    break;
+                }
+                if ((long) candidates * range.size() * 8 < total(range)) {
+                    // Few candidates left: probe them rather than expand a common word's postings
+                    for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                        if (!containsAny(range, id)) {
+                            matches.clear(id);
+                        }
+                    }
+                } else {
+                    BitSet prefixed = new BitSet(size);
+                    for (Postings postings : range) {
+                        postings.addTo(prefixed);
+                    }
+                    matches.and(prefixed);
+                }
+            }
+
+            // Worst match on top, so it is the one dropped when the heap is full
+            PriorityQueue<Match> best = new PriorityQueue<>(Math.min(k, 1024), Match.ORDER.reversed());
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                if (availableOnly) {
+                    Book book = lookup(id);
+                    if (book == null || !book.isAvailable()) {
+                        continue;
+                    }
+                }
+                int score = 0;
+                for (Postings whole : wholeWords) {
+                    if (whole.contains(id)) {
+                        score++;
+                    }
+                }
+                Match match = new Match(id, titles[id], keys[id],
+                        (keys[id] == IsbnKey.INVALID) ? otherKeys.get(id) : null, score);
+                if (best.size() < k) {
+                    best.add(match);
+                } else if (Match.ORDER.compare(match, best.peek()) < 0) {
+                    best.poll();
+                    best.add(match);
+                }
+            }
+
+            Match[] ranked = best.toArray(new Match[0]);
+            Arrays.sort(ranked, Match.ORDER);
+            List<Book> page = new ArrayList<>();
+            for (int i = offset; i < ranked.length; i++) {
+                Book book = lookup(ranked[i].id);
+                if (book != null) {
+                    page.add(book);
+                }
+            }
+            return page;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static long total(Collection<Postings> range) {
+        long total = 0;
+        for (Postings postings : range) {
+            total += postings.size;
+        }
+        return total;
+    }
+
+    private static boolean containsAny(Collection<Postings> range, int id) {
+        for (Postings postings : range) {
+            if (postings.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BitSet all() {
+        BitSet all = new BitSet(size);
+        all.set(0, size);
+        return all;
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Splits text into normalized search tokens: accents stripped, lower case,
+     * split on anything that is not a letter or digit, duplicates dropped.
+     */
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /** Sorted ids of the books containing one token. */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(ids[i]);
+            }
+        }
+    }
+
+    private static final class Match {
+        static final Comparator<Match> ORDER = Comparator.<Match>comparingInt(m -> -m.score)
+                .thenComparing(m -> m.title, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(Match::isbn, Comparator.nullsLast(Comparator.naturalOrder()));
+
+        final int id;
+        final String title;
+        final long key;
+        final String otherKey;
+        final int score;
+
+        Match(int id, String title, long key, String otherKey, int score) {
+            this.id = id;
+            this.title = title;
+            this.key = key;
+            this.otherKey = otherKey;
+            this.score = score;
+        }
+
+        /** The ISBN, built only to break a tie between equal titles. */
+        String isbn() {
+            return (key == IsbnKey.INVALID) ? otherKey : IsbnKey.toIsbn(key);
+        }
+    }
+}
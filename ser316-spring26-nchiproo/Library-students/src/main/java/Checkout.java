@@ -1,30 +1,96 @@
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages library checkout operations.
  * Handles book checkouts, returns, renewals, and fine calculations.
+ *
+ * Checkouts and returns are safe to call from many threads. Work for one patron is
+ * serialized on that patron's lock stripe, so unrelated patrons never wait on
+ * each other. A title's copies are taken and put back by compare-and-set on the
+ * book's counter (see Book.tryCheckout), so patrons borrowing the same bestseller
+ * don't queue on a lock either; only titles with holds, or every title while a
+ * journal is set or events have subscribers, take their ISBN stripe.
+ *
+ * Open loans are kept in an index keyed by (patronId, isbn), so a return finds
+ * its transaction directly instead of scanning the history. Closed loans stay in
+ * the in-memory history unless a LoanArchive is configured, in which case they
+ * are handed to the archive and not retained on the heap. The in-memory history
+ * is indexed by patron and by ISBN and can be streamed or paged (see
+ * getPatronHistory and getTitleHistory). Open loans are also
+ * bucketed by due date, so finding newly overdue loans doesn't scan every patron.
+ * With a CheckoutJournal set, every checkout, renewal, return, fine and
+ * suspension is also journaled so the loans survive a restart; fines are paid or
+ * waived and suspensions lifted through payFine, waiveFines and reinstatePatron
+ * so the balance can be rebuilt too. A title's checkouts and returns are
+ * journaled under its ISBN stripe, in the order its copies moved. Every checkout,
+ * return and sweep is counted and timed (see getMetrics). Read-heavy callers
+ * such as catalog search can query a published AvailabilityView instead of the
+ * live books (see getAvailabilityView). Downstream jobs can subscribe to a
+ * stream of checkouts, renewals, returns, fines and availability changes (see
+ * getEvents) instead of rescanning the inventory and patrons. Titles can be
+ * found by title or author words through in-memory indexes (see searchByTitle)
+ * rather than by iterating the inventory.
+ *
+ * Patrons can place holds on titles with no copy on the shelf. A returned copy
+ * goes to the first waiting hold (see placeHold) instead of back into general
+ * circulation, and so do copies that reach the shelf any other way, e.g. through
+ * Book.addCopies or a transfer from another branch. Each title's wait list is
+ * guarded by its ISBN stripe.
  */
 public class Checkout {
     public static double MAX_FINE_AMOUNT = 25.0;
 
-    private Map<String, Book> bookList; // ISBN -> Book
-    private Map<String, Patron> patrons; // PatronID -> Patron
-    private List<Transaction> history; //
+    // Rebuilt when MAX_FINE_AMOUNT changes
+    private static volatile FineTable fineTable = FineTable.forCap(MAX_FINE_AMOUNT);
+
+    private final Map<String, Book> bookList; // ISBN -> Book (an IsbnMap unless a store is supplied)
+    private final ConcurrentHashMap<String, Patron> patrons; // PatronID -> Patron
+    private final LoanHistory history; // loans kept in memory, indexed by patron and ISBN
+    private final Map<LoanKey, Transaction> openLoans; // (PatronID, ISBN) -> open Transaction
+    private final DueDateIndex dueDates; // open loans by due date
+    private volatile LoanArchive archive; // null -> closed loans stay in history
+    private volatile CheckoutJournal journal; // null -> not journaled
+    private final Map<Book.BookType, AtomicInteger> titlesByType; // titles in inventory per type
+    private final Map<Book.BookType, AtomicInteger> availableByType; // titles with copies > 0 per type
+    private final AvailabilityListener typeCounter = this::onAvailabilityChanged;
+    private final StripedLocks patronLocks; // PatronID stripes
+    private final StripedLocks bookLocks; // ISBN stripes
+    private final CheckoutMetrics metrics;
+    private final AvailabilityPublisher availability;
+    private final CatalogIndex catalogIndex; // title, author and type search
+    private final CheckoutEvents events = new CheckoutEvents();
+    private final Map<String, HoldQueue> holds = new ConcurrentHashMap<>(); // ISBN -> wait list
+    private final AtomicLong holdSequence = new AtomicLong();
 
     /**
-     * Inner class to track checkout transactions.
+     * One loan: who borrowed which title and copy, and when. Open loans are
+     * updated in place (renewals move the due date, sweeps record accrued fines,
+     * and the return sets the return date), so a Transaction read from the
+     * history always shows the loan's current state.
      */
-    private static class Transaction {
-        Patron patron;
-        Book book;
-        LocalDate checkoutDate;
-        LocalDate dueDate;
-        LocalDate returnDate;
+    public static final class Transaction {
+        private final Patron patron;
+        private final Book book;
+        private final LocalDate checkoutDate;
+        private volatile LocalDate dueDate;
+        private volatile LocalDate returnDate;
+        private volatile int finedCents; // fines already charged for this loan by overdue sweeps
+        private final int copy; // copy lent, or Book.NO_COPY if not numbered
 
         Transaction(Patron patron, Book book, LocalDate checkoutDate, LocalDate dueDate) {
             this.patron = patron;
@@ -32,23 +98,302 @@ public class Checkout {
             this.checkoutDate = checkoutDate;
             this.dueDate = dueDate;
             this.returnDate = null;
+            this.copy = patron.getCheckedOutCopy(book.getIsbn());
+        }
+
+        public Patron getPatron() {
+            return patron;
+        }
+
+        public String getPatronId() {
+            return patron.getPatronId();
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        public String getIsbn() {
+            return book.getIsbn();
+        }
+
+        /**
+         * @return The copy lent, or Book.NO_COPY if its number isn't known
+         */
+        public int getCopy() {
+            return copy;
+        }
+
+        /**
+         * @return The checkout day, or null for a loan not made through checkoutBook
+         */
+        public LocalDate getCheckoutDate() {
+            return checkoutDate;
+        }
+
+        public LocalDate getDueDate() {
+            return dueDate;
+        }
+
+        /**
+         * @return The return day, or null while the loan is open
+         */
+        public LocalDate getReturnDate() {
+            return returnDate;
+        }
+
+        public boolean isReturned() {
+            return returnDate != null;
+        }
+
+        @Override
+        public String toString() {
+            return "Transaction[" + getPatronId() + " " + getIsbn() + (copy == Book.NO_COPY ? "" : " copy " + copy)
+                    + " out " + checkoutDate + " due " + dueDate + (returnDate == null ? "" : " returned " + returnDate)
+                    + "]";
         }
     }
 
     public Checkout() {
-        this.bookList = new HashMap<>();
-        this.patrons = new HashMap<>();
-        this.history = new ArrayList<>();
+        this(new IsbnMap<>());
     }
 
+    /**
+     * Creates a Checkout over a caller-supplied inventory store.
+     * The map must be safe for concurrent use.
+     *
+     * @param catalog The empty ISBN to Book store to use as the inventory
+     */
+    protected Checkout(Map<String, Book> catalog) {
+        this(catalog, 16);
+    }
+
+    /**
+     * Creates a Checkout over a caller-supplied inventory store, with the patron
+     * table sized up front (used by bulk loaders).
+     *
+     * @param catalog The empty ISBN to Book store to use as the inventory
+     * @param expectedPatrons Number of patrons to size the patron table for
+     */
+    Checkout(Map<String, Book> catalog, int expectedPatrons) {
+        this.bookList = catalog;
+        this.patrons = new ConcurrentHashMap<>(Math.max(16, expectedPatrons));
+        this.history = new LoanHistory();
+        this.openLoans = new ConcurrentHashMap<>();
+        this.dueDates = new DueDateIndex();
+        // Every key is filled here and never changes, so the EnumMaps are safe to share
+        this.titlesByType = new EnumMap<>(Book.BookType.class);
+        this.availableByType = new EnumMap<>(Book.BookType.class);
+        for (Book.BookType type : Book.BookType.values()) {
+            titlesByType.put(type, new AtomicInteger());
+            availableByType.put(type, new AtomicInteger());
+        }
+        this.patronLocks = new StripedLocks();
+        this.bookLocks = new StripedLocks();
+        this.metrics = new CheckoutMetrics(this);
+        this.availability = new AvailabilityPublisher(bookList, bookLocks);
+        this.catalogIndex = new CatalogIndex(bookList);
+    }
+
+    /**
+     * Creates a Checkout whose inventory is a ColumnarCatalog, for very large
+     * catalogs. Books handed to addBook are copied into the columns; checkouts and
+     * returns then act on the inventory's copy, which callers read through the
+     * Book views from getInventory().
+     *
+     * @param expectedTitles Number of titles to size the columns for
+     * @return A new Checkout
+     */
+    public static Checkout withColumnarCatalog(int expectedTitles) {
+        return new Checkout(new ColumnarCatalog(expectedTitles));
+    }
+
+    /**
+     * Adds a book to the inventory, replacing any book with the same ISBN.
+     * Safe to call from many threads (CatalogImporter's workers do): adds of one
+     * title, under any spelling of its ISBN, are serialized on that title's
+     * stripe, so the per-type counts and the catalog index see each title once.
+     *
+     * @param book The book to add
+     */
     public void addBook(Book book) {
-        bookList.put(book.getIsbn(), book);
+        String isbn = book.getIsbn();
+        long key = (isbn == null) ? IsbnKey.INVALID : IsbnKey.parse(isbn);
+        ReentrantLock titleLock = bookLocks.lockFor((key == IsbnKey.INVALID) ? isbn : IsbnKey.toIsbn(key));
+        titleLock.lock();
+        try {
+            Book previous = bookList.put(isbn, book);
+            if (previous == book) {
+                return;
+            }
+            if (previous != null) {
+                int copies = previous.removeAvailabilityListener(typeCounter);
+                adjustTypeCounts(previous.getType(), -1, copies > 0 ? -1 : 0);
+            }
+            // A columnar catalog stores a copy, so listen on what the inventory hands back
+            Book stored = bookList.get(isbn);
+            int copies = stored.addAvailabilityListener(typeCounter);
+            adjustTypeCounts(stored.getType(), 1, copies > 0 ? 1 : 0);
+            catalogIndex.add(stored);
+        } finally {
+            titleLock.unlock();
+        }
+        availability.titlesChanged();
+    }
+
+    private void adjustTypeCounts(Book.BookType type, int titles, int available) {
+        if (type == null) {
+            return;
+        }
+        titlesByType.get(type).addAndGet(titles);
+        if (available != 0) {
+            availableByType.get(type).addAndGet(available);
+        }
+    }
+
+    private void onAvailabilityChanged(Book book, int oldCopies, int newCopies) {
+        boolean wasAvailable = oldCopies > 0;
+        boolean nowAvailable = newCopies > 0;
+        if (wasAvailable != nowAvailable) {
+            adjustTypeCounts(book.getType(), 0, nowAvailable ? 1 : -1);
+        }
+        availability.copiesChanged(book);
+        if (events.isActive()) {
+            events.publish(CirculationEvent.availabilityChanged(book.getIsbn(), oldCopies, newCopies));
+        }
+        if (newCopies > oldCopies && holds.get(book.getIsbn()) != null) {
+            serveWaitingHolds(book);
+        }
+    }
+
+    /**
+     * Sets copies that reached the shelf without a return, e.g. added or
+     * transferred in, aside for the title's waiting holds. Returns serve holds
+     * before shelving (see releaseCopy), so they never leave work here.
+     */
+    private void serveWaitingHolds(Book book) {
+        String isbn = book.getIsbn();
+        ReentrantLock bookLock = bookLocks.lockFor(isbn);
+        bookLock.lock();
+        try {
+            HoldQueue queue = holds.get(isbn);
+            LocalDate today = LocalDate.now();
+            while (queue != null && queue.waitingCount() > 0) {
+                int copy = book.checkoutCopy();
+                if (copy < 0) {
+                    break;
+                }
+                queue.serveNext(today, copy);
+            }
+        } finally {
+            bookLock.unlock();
+        }
     }
 
     public void registerPatron(Patron patron) {
         patrons.put(patron.getPatronId(), patron);
     }
 
+    /**
+     * Sends closed loans to the given archive instead of keeping them in memory.
+     * Loans closed before this call remain in the in-memory history.
+     *
+     * @param archive The archive for closed loans, or null to keep them in memory
+     */
+    public void setLoanArchive(LoanArchive archive) {
+        this.archive = archive;
+    }
+
+    public LoanArchive getLoanArchive() {
+        return archive;
+    }
+
+    /**
+     * Journals circulation events from now on. Replay the journal into this
+     * Checkout before setting it, so earlier events are not lost.
+     *
+     * @param journal The journal to append to, or null to stop journaling
+     */
+    public void setJournal(CheckoutJournal journal) {
+        this.journal = journal;
+    }
+
+    public CheckoutJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Returns the counters, latency histograms and gauges for this Checkout.
+     *
+     * @return This Checkout's metrics
+     */
+    public CheckoutMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns this Checkout's event stream. Subscribers receive every checkout,
+     * renewal, return, fine and available-copy change made after they subscribe,
+     * in order and with back-pressure (see CheckoutEvents). Journal replay
+     * publishes only availability changes.
+     *
+     * @return The event publisher
+     */
+    public CheckoutEvents getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the most recently published availability view, publishing the
+     * first one if there is none yet. After that this is a single volatile read;
+     * the view is as fresh as the last publishAvailability call or background
+     * publish (see startAvailabilityPublisher).
+     *
+     * @return The current view
+     */
+    public AvailabilityView getAvailabilityView() {
+        return availability.current();
+    }
+
+    /**
+     * Publishes a new availability view if any copy count or title changed since
+     * the last one. Checkouts and returns wait only while the changed titles are
+     * read, not while the view is built.
+     *
+     * @return The newest view
+     */
+    public AvailabilityView publishAvailability() {
+        return availability.publish();
+    }
+
+    /**
+     * Publishes availability views on a background daemon thread, every
+     * periodMillis, replacing any earlier schedule. Publishing is skipped when
+     * nothing changed.
+     *
+     * @param periodMillis Time between publishes
+     * @throws IllegalArgumentException if periodMillis is not positive
+     */
+    public void startAvailabilityPublisher(long periodMillis) {
+        availability.start(periodMillis);
+    }
+
+    /**
+     * Stops background publishing. The last published view stays current.
+     */
+    public void stopAvailabilityPublisher() {
+        availability.stop();
+    }
+
+    /**
+     * Returns the number of loans that have been checked out and not yet returned.
+     *
+     * @return Open loan count
+     */
+    public int getOpenLoanCount() {
+        return openLoans.size();
+    }
+
     /**
      * Validates if a patron is eligible to check out books you can assume this method is correct.
      * This helper method consolidates patron-related eligibility checks.
@@ -67,13 +412,15 @@ public class Checkout {
         if (patron == null) {
             return 3.1;
         }
-        if (patron.isAccountSuspended()) {
+        // One read of the packed word, so all three checks see the same moment
+        int flags = patron.getEligibilityFlags();
+        if ((flags & Patron.SUSPENDED) != 0) {
             return 3.0;
         }
-        if (patron.getOverdueCount() >= 3) {
+        if ((flags & Patron.OVERDUE_LIMIT) != 0) {
             return 4.0;
         }
-        if (patron.getFineBalance() >= 10.0) {
+        if ((flags & Patron.FINE_LIMIT) != 0) {
             return 4.1;
         }
         return 0.0; // Eligible
@@ -88,7 +435,7 @@ public class Checkout {
      * - Return codes (observable via the method return value)
      * - Book availability changes (observable via book.getAvailableCopies())
      * - Patron's checked-out books (observable via patron.getCheckedOutBooks())
-     * Do NOT attempt to test transaction history - it is not publicly accessible.
+     * Do NOT attempt to test transaction history - it is outside the scope of these tests.
      *
      * Return codes:
      *   0.0 - Success, book checked out normally
@@ -140,11 +487,290 @@ public class Checkout {
      * @return Status code indicating result (see above)
      */
     public double checkoutBook(Book book, Patron patron) {
-//        Implement me in Assignment 3
-        // Normal success
+        long start = System.nanoTime();
+        double code = processCheckout(book, patron);
+        events.awaitCapacity();
+        metrics.checkoutCompleted(code, System.nanoTime() - start);
+        return code;
+    }
+
+    private double processCheckout(Book book, Patron patron) {
+        double eligibility = validatePatronEligibility(patron);
+        if (eligibility != 0.0) {
+            return eligibility;
+        }
+        if (book == null) {
+            return 2.1;
+        }
+        if (book.isReferenceOnly()) {
+            return 5.0;
+        }
+
+        ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+        patronLock.lock();
+        try {
+            return checkoutLocked(book, patron, LocalDate.now(), history);
+        } finally {
+            patronLock.unlock();
+        }
+    }
+
+    /**
+     * Renews a loan the patron already has, and nothing else: the check that the
+     * patron has the title and the renewal happen together under the patron's
+     * lock, so a concurrent return can't turn the renewal into a new checkout.
+     *
+     * Return codes:
+     * - 0.1: renewed, due date set as checkoutBook does
+     * - 3.0, 3.1, 4.0, 4.1: patron not eligible (see validatePatronEligibility)
+     * - -1.0: the patron doesn't have the title checked out; nothing changed
+     *
+     * @param isbn The ISBN of the title, in any spelling
+     * @param patron The patron renewing (can be null)
+     * @return Status code (see above)
+     */
+    public double renewBook(String isbn, Patron patron) {
+        long start = System.nanoTime();
+        double code = processRenewal(isbn, patron);
+        events.awaitCapacity();
+        if (code >= 0) {
+            metrics.checkoutCompleted(code, System.nanoTime() - start);
+        }
+        return code;
+    }
+
+    private double processRenewal(String isbn, Patron patron) {
+        double eligibility = validatePatronEligibility(patron);
+        if (eligibility != 0.0) {
+            return eligibility;
+        }
+        Book book = (isbn == null) ? null : bookList.get(isbn);
+        if (book == null) {
+            return -1.0;
+        }
+        ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+        patronLock.lock();
+        try {
+            if (!patron.hasBookCheckedOut(book.getIsbn())) {
+                return -1.0;
+            }
+            return checkoutLocked(book, patron, LocalDate.now(), history);
+        } finally {
+            patronLock.unlock();
+        }
+    }
+
+    /**
+     * Checks out many books in one call, e.g. course reserves at the start of a term.
+     * Each request gets the code checkoutBook would return (see there), at the
+     * same index in the result.
+     *
+     * Requests are grouped by patron: eligibility is checked once per patron and
+     * the patron's lock is taken once for all of their requests, which are handled
+     * in list order. Patrons are handled in order of their first request, so when
+     * requests compete for the last copies of a title, the patron who appears
+     * first in the list gets them.
+     *
+     * @param requests The checkouts to process
+     * @return One status code per request
+     */
+    public double[] checkoutBatch(List<CheckoutRequest> requests) {
+        long start = System.nanoTime();
+        CheckoutRequest[] batch = requests.toArray(new CheckoutRequest[0]);
+        double[] codes = new double[batch.length];
+
+        // Chain each patron's request indexes: first[patron] -> next[i] -> ... -> -1
+        Map<Patron, int[]> chains = new IdentityHashMap<>(); // patron -> {first, last}
+        List<Patron> order = new ArrayList<>();
+        int[] next = new int[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            next[i] = -1;
+            Patron patron = batch[i].getPatron();
+            if (patron == null) {
+                codes[i] = validatePatronEligibility(null);
+                continue;
+            }
+            int[] chain = chains.get(patron);
+            if (chain == null) {
+                chains.put(patron, new int[] {i, i});
+                order.add(patron);
+            } else {
+                next[chain[1]] = i;
+                chain[1] = i;
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        List<Transaction> newLoans = new ArrayList<>();
+        for (Patron patron : order) {
+            int first = chains.get(patron)[0];
+            double eligibility = validatePatronEligibility(patron);
+            if (eligibility != 0.0) {
+                for (int i = first; i >= 0; i = next[i]) {
+                    codes[i] = eligibility;
+                }
+                continue;
+            }
+            ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+            patronLock.lock();
+            try {
+                for (int i = first; i >= 0; i = next[i]) {
+                    Book book = batch[i].getBook();
+                    if (book == null) {
+                        codes[i] = 2.1;
+                    } else if (book.isReferenceOnly()) {
+                        codes[i] = 5.0;
+                    } else {
+                        codes[i] = checkoutLocked(book, patron, today, newLoans);
+                    }
+                }
+            } finally {
+                patronLock.unlock();
+            }
+        }
+        if (!newLoans.isEmpty()) {
+            history.addAll(newLoans);
+        }
+        events.awaitCapacity();
+        metrics.batchCompleted(codes, System.nanoTime() - start);
+        return codes;
+    }
+
+    /**
+     * Steps 4 and 5 of checkoutBook, for an eligible patron and a lendable book.
+     * The caller holds the patron's lock.
+     *
+     * @param newLoans Receives new transactions for the history (unused when archiving)
+     */
+    private double checkoutLocked(Book book, Patron patron, LocalDate today, Collection<Transaction> newLoans) {
+        // Act on the inventory's record of this title (a view when the catalog is columnar)
+        Book stored = (book.getIsbn() == null) ? null : bookList.get(book.getIsbn());
+        if (stored != null) {
+            book = stored;
+        }
+        String isbn = book.getIsbn();
+        LocalDate dueDate = today.plusDays(patron.getLoanPeriodDays());
+
+        // Renewal skips the availability and limit checks
+        if (patron.hasBookCheckedOut(isbn)) {
+            renewLoan(patron, isbn, dueDate);
+            CheckoutJournal log = journal;
+            if (log != null) {
+                log.renewed(patron.getPatronId(), isbn, dueDate);
+            }
+            if (events.isActive()) {
+                events.publish(CirculationEvent.renewed(patron.getPatronId(), isbn, today, dueDate));
+            }
+            return 0.1;
+        }
+
+        CheckoutJournal log = journal;
+        double code = (holds.get(isbn) == null && log == null && !events.isActive())
+                ? takeCopy(book, patron, isbn, dueDate)
+                : takeStripedCopy(book, patron, isbn, today, dueDate, log);
+        if (code != 0.0) {
+            return code;
+        }
+        openLoan(patron, book, isbn, today, dueDate, newLoans);
+
+        // Eligibility already rejected 3+ overdue, so any overdue here is 1-2
+        if (patron.getOverdueCount() > 0) {
+            return 1.0;
+        }
+        if (patron.isNearCheckoutLimit()) {
+            return 1.1;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Takes a copy for a title with no holds: one compare-and-set on the book's
+     * counter, without the ISBN stripe. The caller holds the patron's stripe.
+     *
+     * @return 0.0 if taken, 2.0 if no copy was left, 3.2 if the patron is at the limit
+     */
+    private double takeCopy(Book book, Patron patron, String isbn, LocalDate dueDate) {
+        if (!book.isAvailable()) {
+            return 2.0;
+        }
+        if (patron.isAtCheckoutLimit()) {
+            return 3.2;
+        }
+        int copy = book.checkoutCopy();
+        if (copy < 0) {
+            return 2.0; // another patron took the last copy
+        }
+        patron.addCheckedOutBook(isbn, dueDate, copy);
         return 0.0;
     }
 
+    /**
+     * Takes a copy under the ISBN stripe, so the hold queue, the shelf, the
+     * journal and the event stream change together: used for titles with holds
+     * and whenever a journal is set or events are published, so replay and
+     * subscribers see each title's checkouts and returns in the order the copies
+     * moved. A copy set aside for this patron's hold is already off the
+     * shelf. The caller holds the patron's stripe.
+     *
+     * @param log The journal to record the checkout in, or null
+     * @return 0.0 if taken, 2.0 if no copy was left, 3.2 if the patron is at the limit
+     */
+    private double takeStripedCopy(Book book, Patron patron, String isbn, LocalDate today, LocalDate dueDate,
+                                   CheckoutJournal log) {
+        ReentrantLock bookLock = bookLocks.lockFor(isbn);
+        bookLock.lock();
+        try {
+            HoldQueue queue = holds.get(isbn);
+            Hold hold = (queue == null) ? null : queue.get(patron.getPatronId());
+            boolean reserved = hold != null && hold.getStatus() == Hold.Status.READY;
+            if (!reserved && !book.isAvailable()) {
+                return 2.0;
+            }
+            if (patron.isAtCheckoutLimit()) {
+                return 3.2;
+            }
+            int copy = reserved ? hold.getCopy() : book.checkoutCopy();
+            if (copy < 0) {
+                return 2.0;
+            }
+            patron.addCheckedOutBook(isbn, dueDate, copy);
+            if (hold != null) {
+                removeHold(queue, isbn, patron.getPatronId());
+            }
+            if (log != null) {
+                log.checkedOut(patron.getPatronId(), isbn, today, dueDate);
+            }
+            if (events.isActive()) {
+                events.publish(CirculationEvent.checkedOut(patron.getPatronId(), isbn, today, dueDate));
+            }
+            return 0.0;
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    private void openLoan(Patron patron, Book book, String isbn, LocalDate checkoutDate, LocalDate dueDate,
+                          Collection<Transaction> newLoans) {
+        Transaction t = new Transaction(patron, book, checkoutDate, dueDate);
+        LoanKey key = new LoanKey(patron.getPatronId(), isbn);
+        openLoans.put(key, t);
+        dueDates.add(key, dueDate);
+        if (archive == null) {
+            newLoans.add(t);
+        }
+    }
+
+    private void renewLoan(Patron patron, String isbn, LocalDate dueDate) {
+        patron.addCheckedOutBook(isbn, dueDate);
+        LoanKey key = new LoanKey(patron.getPatronId(), isbn);
+        Transaction open = openLoans.get(key);
+        if (open != null) {
+            dueDates.move(key, open.dueDate, dueDate);
+            open.dueDate = dueDate;
+            open.finedCents = 0; // earlier accruals stay on the balance; a new period starts
+        }
+    }
+
 
     /**
      * Calculates the fine amount for an overdue book. Assume this javadoc is correct.
@@ -167,35 +793,42 @@ public class Checkout {
      * @return Fine amount in dollars
      */
     public double calculateFine(int numOfDays, Book.BookType bookType) {
-        if (numOfDays <= 0) {
-            return 0.0;
-        }
-
-        double fine = 0.0;
-
-        // First 7 days: $0.25/day
-        int days1 = Math.min(numOfDays, 7);
-        fine += days1 * 0.25;
+        return calculateFineCents(numOfDays, bookType) / 100.0;
+    }
 
-        // Days 8-14: $0.50/day
-        if (numOfDays > 7) {
-            int days2 = Math.min(numOfDays - 7, 7);
-            fine += days2 * 0.50;
-        }
+    /**
+     * Same as calculateFine, but in whole cents from the precomputed fine table.
+     *
+     * @param numOfDays Number of days the book is overdue
+     * @param bookType The type of book (affects fine rate)
+     * @return Fine amount in cents
+     */
+    public int calculateFineCents(int numOfDays, Book.BookType bookType) {
+        return currentFineTable().fineCents(numOfDays, bookType);
+    }
 
-        // Days 15+: $1.00/day
-        if (numOfDays > 14) {
-            int days3 = numOfDays - 14;
-            fine += days3 * 1.00;
-        }
+    /**
+     * Calculates fines for many overdue books in one call, for overdue sweeps.
+     * The arrays are parallel: entry i of the result is the fine for
+     * daysOverdue[i] days on a book of type bookTypes[i].
+     *
+     * @param daysOverdue Days overdue per book
+     * @param bookTypes Book type per book
+     * @return Fine per book in cents
+     */
+    public int[] calculateFines(int[] daysOverdue, Book.BookType[] bookTypes) {
+        int[] cents = new int[daysOverdue.length];
+        currentFineTable().fineCents(daysOverdue, bookTypes, cents);
+        return cents;
+    }
 
-        // Double rate for REFERENCE and TEXTBOOK
-        if (bookType == Book.BookType.REFERENCE || bookType == Book.BookType.TEXTBOOK) {
-            fine *= 2.0;
+    private static FineTable currentFineTable() {
+        FineTable table = fineTable;
+        if (table.getMaxFine() != MAX_FINE_AMOUNT) {
+            table = FineTable.forCap(MAX_FINE_AMOUNT);
+            fineTable = table;
         }
-
-        // Cap at maximum fine amount
-        return Math.min(fine, MAX_FINE_AMOUNT);
+        return table;
     }
 
     /**
@@ -214,21 +847,8 @@ public class Checkout {
      * @return true if valid format, false otherwise
      */
     public boolean isValidISBN(String isbn) {
-        if (isbn == null || isbn.isEmpty()) {
-            return false;
-        }
-
-
-        String numbers = isbn.replace("-", "");
-
-        // Check if all remaining characters are digits
-        if (!numbers.matches("\\d+")) {
-            return false;
-        }
-
-        // Check length (must be 10 or 13 digits)
-        int length = numbers.length();
-        return length == 10 || length == 13;
+        // Single pass over the characters; no intermediate String or regex
+        return IsbnValidator.isValidFormat(isbn);
     }
 
     /**
@@ -249,98 +869,827 @@ public class Checkout {
     /**
      * Processes a book return.
      * Calculates any overdue fines and updates patron/book status.
+     * Fines already charged for this loan by an overdue sweep are not charged again.
+     * With a LoanArchive set, the closed loan is archived before anything else
+     * changes; if the archive throws, the exception propagates, the loan stays
+     * open and the return can be retried.
      *
      * @param isbn The ISBN of the book being returned
      * @param patron The patron returning the book
      * @return Fine amount charged (0.0 if not overdue)
      */
     public double returnBook(String isbn, Patron patron) {
-        if (patron == null || !patron.hasBookCheckedOut(isbn)) {
-            return -1.0;
+        long start = System.nanoTime();
+        double fine = -1.0;
+        if (isbn != null && patron != null) {
+            ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+            patronLock.lock();
+            try {
+                fine = returnBookLocked(isbn, patron);
+            } finally {
+                patronLock.unlock();
+            }
+            events.awaitCapacity();
         }
+        metrics.returnCompleted(fine, System.nanoTime() - start);
+        return fine;
+    }
 
+    private double returnBookLocked(String isbn, Patron patron) {
         Book book = bookList.get(isbn);
         if (book == null) {
             return -1.0;
         }
+        // Loans are recorded under the inventory's spelling of the ISBN
+        isbn = book.getIsbn();
+        if (!patron.hasBookCheckedOut(isbn)) {
+            return -1.0;
+        }
 
         LocalDate dueDate = patron.getCheckedOutBooks().get(isbn);
         LocalDate today = LocalDate.now();
         long daysOverdue = ChronoUnit.DAYS.between(dueDate, today);
 
-        double fine = 0.0;
+        // Archive first, so a failing archive leaves the loan open rather than half returned
+        LoanKey key = new LoanKey(patron.getPatronId(), isbn);
+        Transaction t = openLoans.get(key);
+        LoanArchive target = archive;
+        if (t != null && target != null) {
+            target.append(patron.getPatronId(), isbn, t.checkoutDate, t.dueDate, today);
+        }
+        // Close the open loan; history holds the same object, so it sees the return date
+        openLoans.remove(key);
+
+        int fineCents = 0;
         if (daysOverdue > 0) {
-            fine = calculateFine((int) daysOverdue, book.getType());
-            patron.addFine(fine);
+            // Overdue sweeps may already have charged part of this fine
+            int alreadyCharged = (t == null) ? 0 : t.finedCents;
+            fineCents = Math.max(0, calculateFineCents((int) daysOverdue, book.getType()) - alreadyCharged);
+            patron.addFineCents(fineCents);
         }
 
-        // Update patron and book
+        // Update patron and book; the ISBN stripe orders the copy change with holds, availability
+        // publishes and the title's other journal records
+        int copy = patron.getCheckedOutCopy(isbn);
         patron.removeCheckedOutBook(isbn);
-        book.returnBook();
+        ReentrantLock bookLock = bookLocks.lockFor(isbn);
+        bookLock.lock();
+        try {
+            releaseCopy(book, isbn, today, copy);
+            CheckoutJournal log = journal;
+            if (log != null) {
+                log.returned(patron.getPatronId(), isbn, today, fineCents);
+            }
+            if (events.isActive()) {
+                events.publish(CirculationEvent.returned(patron.getPatronId(), isbn, today, fineCents));
+                if (fineCents > 0) {
+                    events.publish(CirculationEvent.fineAssessed(patron.getPatronId(), isbn, today, fineCents));
+                }
+            }
+        } finally {
+            bookLock.unlock();
+        }
+
+        if (t != null) {
+            dueDates.remove(key, t.dueDate);
+            t.returnDate = today;
+        }
+
+        return fineCents / 100.0;
+    }
 
-        // Update transaction history to mark book as returned
-        for (Transaction t : history) {
-            if (t.patron.equals(patron) && t.book.equals(book) && t.returnDate == null) {
-                t.returnDate = today;
-                break;
+    /**
+     * Takes a payment against a patron's fine balance, journaling it so the
+     * balance survives a restart. Paying on the Patron directly is not journaled.
+     *
+     * @param patron The patron paying
+     * @param amount Amount paid (rounded to the nearest cent)
+     * @return Remaining balance
+     */
+    public double payFine(Patron patron, double amount) {
+        ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+        patronLock.lock();
+        try {
+            double balance = patron.payFine(amount);
+            CheckoutJournal log = journal;
+            if (log != null) {
+                log.paid(patron.getPatronId(), LocalDate.now(), Math.round(amount * 100));
             }
+            return balance;
+        } finally {
+            patronLock.unlock();
         }
+    }
 
-        return fine;
+    /**
+     * Clears a patron's fine balance, journaling the waiver.
+     *
+     * @param patron The patron whose fines to waive
+     */
+    public void waiveFines(Patron patron) {
+        ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+        patronLock.lock();
+        try {
+            patron.resetFines();
+            CheckoutJournal log = journal;
+            if (log != null) {
+                log.waived(patron.getPatronId(), LocalDate.now());
+            }
+        } finally {
+            patronLock.unlock();
+        }
     }
 
     /**
-     * Counts available books of a specific type in inventory.
-     * Useful for inventory management and reporting.
+     * Lifts a patron's suspension, journaling it so replay does not leave the
+     * account suspended.
      *
-     * This method demonstrates more complex control flow for white-box testing:
-     * - Loop iteration
-     * - Nested conditional statements
-     * - Multiple decision points
+     * @param patron The patron to reinstate
+     */
+    public void reinstatePatron(Patron patron) {
+        ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+        patronLock.lock();
+        try {
+            patron.setAccountSuspended(false);
+            CheckoutJournal log = journal;
+            if (log != null) {
+                log.reinstated(patron.getPatronId(), LocalDate.now());
+            }
+        } finally {
+            patronLock.unlock();
+        }
+    }
+
+    /**
+     * Places a hold on a title. If a copy is on the shelf and nobody is waiting,
+     * it is set aside for the patron at once; otherwise the patron joins the wait
+     * list and the next returned copy goes to the first hold in line, by patron
+     * priority and then request time (see Hold). A copy set aside for a hold is
+     * not available to anyone else; the patron collects it with checkoutBook
+     * within Hold.PICKUP_DAYS (see expireHolds).
      *
-     * @param type The book type to count (FICTION, NONFICTION, REFERENCE, TEXTBOOK, CHILDREN)
-     * @param onlyAvailable If true, counts only books with availableCopies > 0;
-     *                      if false, counts all books of the type regardless of availability
-     * @return Number of books matching the criteria (0 if type is null or no matches found)
+     * Return codes:
+     * - 0.0: hold placed, patron is waiting
+     * - 0.1: hold placed and a copy set aside for pickup
+     * - 2.1: book is null
+     * - 3.0, 3.1, 4.0, 4.1: patron not eligible (see validatePatronEligibility)
+     * - 5.0: reference-only book
+     * - 6.0: patron already has the title checked out or on hold
+     *
+     * Placing, cancelling and serving holds are O(log n) in the length of the
+     * title's wait list.
+     *
+     * @param book The title to hold (can be null)
+     * @param patron The patron placing the hold (can be null)
+     * @return Status code (see above)
      */
-    public int countBooksByType(Book.BookType type, boolean onlyAvailable) {
+    public double placeHold(Book book, Patron patron) {
+        double eligibility = validatePatronEligibility(patron);
+        if (eligibility != 0.0) {
+            return eligibility;
+        }
+        if (book == null) {
+            return 2.1;
+        }
+        if (book.isReferenceOnly()) {
+            return 5.0;
+        }
+        Book stored = (book.getIsbn() == null) ? null : bookList.get(book.getIsbn());
+        if (stored != null) {
+            book = stored;
+        }
+        String isbn = book.getIsbn();
 
-        if (type == null) {
+        ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+        patronLock.lock();
+        try {
+            if (patron.hasBookCheckedOut(isbn)) {
+                return 6.0;
+            }
+            ReentrantLock bookLock = bookLocks.lockFor(isbn);
+            bookLock.lock();
+            try {
+                HoldQueue queue = holds.computeIfAbsent(isbn, k -> new HoldQueue());
+                if (queue.get(patron.getPatronId()) != null) {
+                    return 6.0;
+                }
+                Hold hold = new Hold(patron.getPatronId(), isbn, patron.getType(), System.currentTimeMillis(),
+                        holdSequence.incrementAndGet());
+                int copy = (queue.waitingCount() == 0) ? book.checkoutCopy() : -1;
+                if (copy >= 0) {
+                    queue.addReady(hold, LocalDate.now(), copy);
+                    return 0.1;
+                }
+                queue.add(hold);
+                return 0.0;
+            } finally {
+                bookLock.unlock();
+            }
+        } finally {
+            patronLock.unlock();
+        }
+    }
+
+    /**
+     * Cancels a patron's hold on a title. If a copy was set aside for it, the
+     * copy goes to the next hold in line, or back on the shelf.
+     *
+     * @param isbn The ISBN of the held title
+     * @param patron The patron whose hold to cancel
+     * @return true if the patron had a hold on the title
+     */
+    public boolean cancelHold(String isbn, Patron patron) {
+        Book book = (isbn == null || patron == null) ? null : bookList.get(isbn);
+        if (book == null) {
+            return false;
+        }
+        isbn = book.getIsbn();
+        ReentrantLock bookLock = bookLocks.lockFor(isbn);
+        bookLock.lock();
+        try {
+            HoldQueue queue = holds.get(isbn);
+            Hold hold = (queue == null) ? null : queue.get(patron.getPatronId());
+            if (hold == null) {
+                return false;
+            }
+            removeHold(queue, isbn, patron.getPatronId());
+            if (hold.getStatus() == Hold.Status.READY) {
+                releaseCopy(book, isbn, LocalDate.now(), hold.getCopy());
+            }
+            return true;
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    /**
+     * Cancels every ready hold whose pickup date is before the given day and
+     * passes its copy on, as cancelHold does. Run it once a day, e.g. alongside
+     * runOverdueSweep.
+     *
+     * @param today The current day
+     * @return Number of holds cancelled
+     */
+    public int expireHolds(LocalDate today) {
+        int expired = 0;
+        for (String isbn : holds.keySet()) {
+            Book book = bookList.get(isbn);
+            ReentrantLock bookLock = bookLocks.lockFor(isbn);
+            bookLock.lock();
+            try {
+                HoldQueue queue = holds.get(isbn);
+                if (queue == null || book == null) {
+                    continue;
+                }
+                for (Hold hold : queue.expired(today)) {
+                    removeHold(queue, isbn, hold.getPatronId());
+                    releaseCopy(book, isbn, today, hold.getCopy());
+                    expired++;
+                }
+            } finally {
+                bookLock.unlock();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Returns a patron's hold on a title.
+     *
+     * @param isbn The ISBN of the title
+     * @param patron The patron
+     * @return The hold, or null if the patron has none on the title
+     */
+    public Hold getHold(String isbn, Patron patron) {
+        Book book = (isbn == null || patron == null) ? null : bookList.get(isbn);
+        if (book == null) {
+            return null;
+        }
+        ReentrantLock bookLock = bookLocks.lockFor(book.getIsbn());
+        bookLock.lock();
+        try {
+            HoldQueue queue = holds.get(book.getIsbn());
+            return (queue == null) ? null : queue.get(patron.getPatronId());
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    /**
+     * Returns how many patrons are waiting for a copy of a title (ready holds
+     * are not counted).
+     *
+     * @param isbn The ISBN of the title
+     * @return Number of waiting holds
+     */
+    public int getHoldCount(String isbn) {
+        Book book = (isbn == null) ? null : bookList.get(isbn);
+        if (book == null) {
             return 0;
         }
+        ReentrantLock bookLock = bookLocks.lockFor(book.getIsbn());
+        bookLock.lock();
+        try {
+            HoldQueue queue = holds.get(book.getIsbn());
+            return (queue == null) ? 0 : queue.waitingCount();
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    /**
+     * Puts a copy back into circulation: to the first waiting hold if there is
+     * one, otherwise on the shelf. The caller holds the ISBN stripe.
+     */
+    private void releaseCopy(Book book, String isbn, LocalDate today, int copy) {
+        HoldQueue queue = holds.get(isbn);
+        if (queue == null || queue.serveNext(today, copy) == null) {
+            book.returnCopy(copy);
+        }
+    }
 
-        int looped = 0;
+    /** Removes a hold, dropping the title's queue once it is empty. The caller holds the ISBN stripe. */
+    private void removeHold(HoldQueue queue, String isbn, String patronId) {
+        queue.remove(patronId);
+        if (queue.isEmpty()) {
+            holds.remove(isbn);
+        }
+    }
 
-        // Loop through all books in inventory
-        for (Book b : bookList.values()) {
+    /** A title's copies as a snapshot records them; see shelvedCopies. */
+    static final class ShelvedCopies {
+        final int total;
+        final int available;
+        final long[] copyWords;
 
-            if (b == null) {
-                continue;
+        ShelvedCopies(int total, int available, long[] copyWords) {
+            this.total = total;
+            this.available = available;
+            this.copyWords = copyWords;
+        }
+    }
+
+    /**
+     * Returns a title's total copies, its copies on the shelf plus those set aside
+     * for holds, and its copy map with the set-aside copies marked as shelved, all
+     * read together under the ISBN stripe. Holds are not saved in snapshots, so
+     * this is what a snapshot records as available.
+     */
+    ShelvedCopies shelvedCopies(Book book) {
+        ReentrantLock bookLock = bookLocks.lockFor(book.getIsbn());
+        bookLock.lock();
+        try {
+            HoldQueue queue = holds.get(book.getIsbn());
+            long[] words = book.getCopyWords();
+            int available = book.getAvailableCopies();
+            if (queue != null) {
+                for (int copy : queue.readyCopies()) {
+                    CopySet.markShelved(words, copy);
+                }
+                available += queue.readyCount();
             }
+            return new ShelvedCopies(book.getTotalCopies(), available, words);
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    /**
+     * Takes copies of a title off the shelf so they can move to another branch
+     * (see ShardedCheckout). Copies set aside for holds or on loan stay here.
+     *
+     * @return The title's record, or null if it is unknown or too few copies are on the shelf
+     */
+    Book transferOut(String isbn, int copies) {
+        Book book = (isbn == null) ? null : bookList.get(isbn);
+        if (book == null) {
+            return null;
+        }
+        ReentrantLock bookLock = bookLocks.lockFor(book.getIsbn());
+        bookLock.lock();
+        try {
+            return book.removeCopies(copies) ? book : null;
+        } finally {
+            bookLock.unlock();
+        }
+    }
+
+    /**
+     * Shelves copies arriving from another branch, adding the title to this
+     * inventory if it is new here. Patrons waiting on holds here get them first.
+     *
+     * @param title The title's record at the sending branch
+     * @return This inventory's record of the title
+     */
+    Book transferIn(Book title, int copies) {
+        Book book = bookList.get(title.getIsbn());
+        if (book == null) {
+            addBook(new Book(title.getIsbn(), title.getTitle(), title.getAuthor(), title.getType(), 0));
+            book = bookList.get(title.getIsbn());
+        }
+        ReentrantLock bookLock = bookLocks.lockFor(book.getIsbn());
+        bookLock.lock();
+        try {
+            book.addCopies(copies);
+        } finally {
+            bookLock.unlock();
+        }
+        return book;
+    }
+
+    /** Receives one loan from forEachLoan. */
+    interface LoanVisitor {
+        void visit(Patron patron, String isbn, LocalDate checkoutDate, LocalDate dueDate, int finedCents);
+    }
+
+    /**
+     * Runs an action while no checkout, return, sweep or replay can change any
+     * patron, so it sees one consistent state (used by CheckoutSnapshot).
+     */
+    void runWithAllPatronsLocked(Runnable action) {
+        patronLocks.lockAll();
+        try {
+            action.run();
+        } finally {
+            patronLocks.unlockAll();
+        }
+    }
 
-            // Check if book matches the requested type
-            if (b.getType() == type) {
-                // Nested condition: filter by availability if requested
-                if (onlyAvailable) {
-                    // Only count if book has available copies
-                    if (b.isAvailable()) {
-                        looped++;
+    /**
+     * Visits every loan held by a registered patron. The checkout date is null for
+     * loans not made through checkoutBook.
+     */
+    void forEachLoan(LoanVisitor visitor) {
+        for (Patron patron : patrons.values()) {
+            for (Map.Entry<String, LocalDate> loan : patron.getCheckedOutBooks().entrySet()) {
+                Transaction t = openLoans.get(new LoanKey(patron.getPatronId(), loan.getKey()));
+                visitor.visit(patron, loan.getKey(), (t == null) ? null : t.checkoutDate, loan.getValue(),
+                        (t == null) ? 0 : t.finedCents);
+            }
+        }
+    }
+
+    /**
+     * Re-creates an open loan loaded from a snapshot. Copy counts and the copy map
+     * are restored with the book, so the book is not checked out again.
+     *
+     * @param copy The copy on loan, or Book.NO_COPY
+     * @return false if the book is not in the inventory
+     */
+    boolean restoreLoan(Patron patron, String isbn, LocalDate checkoutDate, LocalDate dueDate, int finedCents,
+                        int copy) {
+        Book book = bookList.get(isbn);
+        if (book == null) {
+            return false;
+        }
+        isbn = book.getIsbn();
+        patron.addCheckedOutBook(isbn, dueDate, copy);
+        Transaction t = new Transaction(patron, book, checkoutDate, dueDate);
+        t.finedCents = finedCents;
+        LoanKey key = new LoanKey(patron.getPatronId(), isbn);
+        openLoans.put(key, t);
+        dueDates.add(key, dueDate);
+        if (archive == null) {
+            history.add(t);
+        }
+        return true;
+    }
+
+    /**
+     * Applies one journal record during CheckoutJournal.replay, without journaling
+     * it again. Closed loans are not re-sent to the archive.
+     *
+     * @return false if the record names an unknown patron or book
+     */
+    boolean applyJournalRecord(byte type, String patronId, String isbn, long first, long second) {
+        Patron patron = patrons.get(patronId);
+        if (patron == null) {
+            return false;
+        }
+        ReentrantLock patronLock = patronLocks.lockFor(patronId);
+        patronLock.lock();
+        try {
+            switch (type) {
+                case CheckoutJournal.SUSPEND:
+                    patron.setAccountSuspended(true);
+                    return true;
+                case CheckoutJournal.REINSTATE:
+                    patron.setAccountSuspended(false);
+                    return true;
+                case CheckoutJournal.PAYMENT:
+                    patron.payFine(second / 100.0);
+                    return true;
+                case CheckoutJournal.WAIVE:
+                    patron.resetFines();
+                    return true;
+                default:
+                    break;
+            }
+            Book book = bookList.get(isbn);
+            if (book == null) {
+                return false;
+            }
+            isbn = book.getIsbn();
+            LoanKey key = new LoanKey(patronId, isbn);
+            switch (type) {
+                case CheckoutJournal.CHECKOUT: {
+                    int copy = book.checkoutCopy();
+                    if (copy < 0) {
+                        // Records are in copy order per title, so the shelf can't be empty here
+                        throw new IllegalStateException("journal checks out " + isbn + " to " + patronId
+                                + " with no copy on the shelf");
+                    }
+                    patron.addCheckedOutBook(isbn, LocalDate.ofEpochDay(second), copy);
+                    openLoan(patron, book, isbn, LocalDate.ofEpochDay(first), LocalDate.ofEpochDay(second), history);
+                    return true;
+                }
+                case CheckoutJournal.RENEW:
+                    renewLoan(patron, isbn, LocalDate.ofEpochDay(first));
+                    return true;
+                case CheckoutJournal.RETURN: {
+                    Transaction t = openLoans.remove(key);
+                    patron.addFineCents(second);
+                    int copy = patron.getCheckedOutCopy(isbn);
+                    patron.removeCheckedOutBook(isbn);
+                    book.returnCopy(copy);
+                    if (t != null) {
+                        dueDates.remove(key, t.dueDate);
+                        t.returnDate = LocalDate.ofEpochDay(first);
                     }
-                } else {
-                    // Count all books of this type regardless of availability
-                    looped++;
+                    return true;
                 }
+                case CheckoutJournal.FINE: {
+                    patron.addFineCents(second);
+                    Transaction t = openLoans.get(key);
+                    if (t != null) {
+                        t.finedCents += (int) second;
+                    }
+                    return true;
+                }
+                default:
+                    return false;
             }
+        } finally {
+            patronLock.unlock();
         }
+    }
+
+    /**
+     * Runs the overdue sweep for today. See runOverdueSweep(LocalDate).
+     *
+     * @return Sweep summary
+     */
+    public OverdueSweepResult runOverdueSweep() {
+        return runOverdueSweep(LocalDate.now());
+    }
+
+    /**
+     * Walks every patron's loans in parallel (fork-join over the patron table) and
+     * brings their overdue state up to date as of the given day:
+     * - sets each patron's overdue count from the due dates of their checked-out books
+     * - charges fines accrued since the previous sweep via calculateFine, so each
+     *   loan's running fine is on the balance before it is returned
+     * - suspends patrons holding a loan whose fine has reached MAX_FINE_AMOUNT
+     *
+     * Each patron is processed under its own lock, so the sweep can run while the
+     * desk keeps checking books in and out. Loans of books missing from the
+     * inventory are counted as overdue but not fined, matching returnBook.
+     *
+     * @param today The day to evaluate due dates against
+     * @return Sweep summary
+     */
+    public OverdueSweepResult runOverdueSweep(LocalDate today) {
+        long start = System.nanoTime();
+        LongAdder patronCount = new LongAdder();
+        LongAdder loanCount = new LongAdder();
+        LongAdder overdueCount = new LongAdder();
+        LongAdder accruedCents = new LongAdder();
+        Collection<String> suspended = new ConcurrentLinkedQueue<>();
+        int capCents = currentFineTable().getCapCents();
+        CheckoutJournal log = journal;
+
+        patrons.forEachValue(1, patron -> {
+            ReentrantLock patronLock = patronLocks.lockFor(patron.getPatronId());
+            patronLock.lock();
+            try {
+                int overdue = 0;
+                boolean atCap = false;
+                for (Map.Entry<String, LocalDate> loan : patron.getCheckedOutBooks().entrySet()) {
+                    loanCount.increment();
+                    long days = ChronoUnit.DAYS.between(loan.getValue(), today);
+                    if (days <= 0) {
+                        continue;
+                    }
+                    overdue++;
+                    Book book = bookList.get(loan.getKey());
+                    if (book == null) {
+                        continue;
+                    }
+                    int fine = calculateFineCents((int) Math.min(days, Integer.MAX_VALUE), book.getType());
+                    // Loans recorded outside checkoutBook get an index entry so accruals are tracked
+                    Transaction t = openLoans.computeIfAbsent(new LoanKey(patron.getPatronId(), loan.getKey()),
+                            k -> {
+                                dueDates.add(k, loan.getValue());
+                                return new Transaction(patron, book, null, loan.getValue());
+                            });
+                    int delta = fine - t.finedCents;
+                    if (delta > 0) {
+                        patron.addFineCents(delta);
+                        t.finedCents = fine;
+                        accruedCents.add(delta);
+                        if (log != null) {
+                            log.fined(patron.getPatronId(), loan.getKey(), today, delta);
+                        }
+                        if (events.isActive()) {
+                            events.publish(CirculationEvent.fineAssessed(patron.getPatronId(), loan.getKey(),
+                                    today, delta));
+                        }
+                    }
+                    if (fine >= capCents) {
+                        atCap = true;
+                    }
+                }
+                patron.setOverdueCount(overdue);
+                overdueCount.add(overdue);
+                if (atCap && !patron.isAccountSuspended()) {
+                    patron.setAccountSuspended(true);
+                    suspended.add(patron.getPatronId());
+                    if (log != null) {
+                        log.suspended(patron.getPatronId(), today);
+                    }
+                }
+                patronCount.increment();
+            } finally {
+                patronLock.unlock();
+            }
+        });
+
+        events.awaitCapacity();
+        metrics.sweepCompleted(System.nanoTime() - start);
+        return new OverdueSweepResult(today, patronCount.sum(), loanCount.sum(), overdueCount.sum(),
+                accruedCents.sum(), new ArrayList<>(suspended));
+    }
+
+    /**
+     * Returns the loans that became overdue on the given day, i.e. those due the
+     * day before. Only that day's bucket of the due-date index is read.
+     *
+     * @param today The day to check
+     * @return Loans whose first overdue day is today
+     */
+    public List<LoanKey> getLoansBecomingOverdue(LocalDate today) {
+        return dueDates.dueOn(today.minusDays(1));
+    }
+
+    /**
+     * Returns every open loan that is overdue on the given day, oldest due date first.
+     *
+     * @param today The day to check
+     * @return Loans due before today
+     */
+    public List<LoanKey> getOverdueLoans(LocalDate today) {
+        return dueDates.dueBefore(today);
+    }
 
-        return looped;
+    /**
+     * Counts available books of a specific type in inventory.
+     * Useful for inventory management and reporting.
+     *
+     * Counts are kept up to date by addBook and by availability changes on each
+     * book, so this is a constant-time read rather than a scan of the inventory.
+     *
+     * @param type The book type to count (FICTION, NONFICTION, REFERENCE, TEXTBOOK, CHILDREN)
+     * @param onlyAvailable If true, counts only books with availableCopies > 0;
+     *                      if false, counts all books of the type regardless of availability
+     * @return Number of books matching the criteria (0 if type is null or no matches found)
+     */
+    public int countBooksByType(Book.BookType type, boolean onlyAvailable) {
+        if (type == null) {
+            return 0;
+        }
+        if (onlyAvailable) {
+            return availableByType.get(type).get();
+        }
+        return titlesByType.get(type).get();
     }
 
+    /**
+     * Returns a read-only view of the inventory. Use addBook to change it so the
+     * per-type counts stay in step.
+     *
+     * @return ISBN to Book view
+     */
     public Map<String, Book> getInventory() {
-        return bookList;
+        return Collections.unmodifiableMap(bookList);
+    }
+
+    /**
+     * Finds books by title words. Each word of the query must start some word of
+     * the title; case, accents and punctuation are ignored, so "harry pot" finds
+     * "Harry Potter and the Philosopher's Stone". Results are ranked by how many
+     * query words match a whole title word, then by title, and come from indexes
+     * kept up to date by addBook, so a page costs the matches, not the catalog.
+     *
+     * @param query Words to match as prefixes; blank matches every title
+     * @param type Only books of this type, or null for any type
+     * @param availableOnly If true, only books with a copy on the shelf
+     * @param page Page number, from 0
+     * @param pageSize Books per page
+     * @return The page of matches, best first; empty past the last page
+     * @throws IllegalArgumentException if page or pageSize is negative
+     */
+    public List<Book> searchByTitle(String query, Book.BookType type, boolean availableOnly, int page, int pageSize) {
+        return search(CatalogIndex.Field.TITLE, query, type, availableOnly, page, pageSize);
+    }
+
+    /**
+     * Finds books by author words, as searchByTitle does for titles.
+     *
+     * @param query Words to match as prefixes; blank matches every author
+     * @param type Only books of this type, or null for any type
+     * @param availableOnly If true, only books with a copy on the shelf
+     * @param page Page number, from 0
+     * @param pageSize Books per page
+     * @return The page of matches, best first; empty past the last page
+     * @throws IllegalArgumentException if page or pageSize is negative
+     */
+    public List<Book> searchByAuthor(String query, Book.BookType type, boolean availableOnly, int page, int pageSize) {
+        return search(CatalogIndex.Field.AUTHOR, query, type, availableOnly, page, pageSize);
+    }
+
+    private List<Book> search(CatalogIndex.Field field, String query, Book.BookType type, boolean availableOnly,
+                              int page, int pageSize) {
+        if (page < 0 || pageSize < 0) {
+            throw new IllegalArgumentException("page and pageSize must not be negative: " + page + ", " + pageSize);
+        }
+        long offset = (long) page * pageSize;
+        if (offset > Integer.MAX_VALUE - pageSize) {
+            return new ArrayList<>();
+        }
+        return catalogIndex.search(field, query, type, availableOnly, (int) offset, pageSize);
     }
 
     public Map<String, Patron> getPatrons() {
         return patrons;
     }
+
+    /**
+     * Streams a patron's loans, oldest first, open and returned. The iterator
+     * reads the history in place, so years of loans are never copied; it covers
+     * the loans made before it was created. Loans made while a LoanArchive was
+     * configured are not in the in-memory history.
+     *
+     * @param patronId The patron's ID
+     * @return The patron's loans; empty if there are none
+     */
+    public Iterator<Transaction> getPatronHistory(String patronId) {
+        return history.forPatron(patronId).iterator(0);
+    }
+
+    /**
+     * Returns one page of a patron's loans, oldest first.
+     *
+     * @param patronId The patron's ID
+     * @param page Page number, from 0
+     * @param pageSize Loans per page
+     * @return The page; empty past the last page
+     * @throws IllegalArgumentException if page or pageSize is negative
+     */
+    public List<Transaction> getPatronHistory(String patronId, int page, int pageSize) {
+        return page(history.forPatron(patronId), page, pageSize);
+    }
+
+    /**
+     * Streams a title's loans, oldest first, as getPatronHistory does for a patron.
+     *
+     * @param isbn The title's ISBN, in any spelling
+     * @return The title's loans; empty if there are none
+     */
+    public Iterator<Transaction> getTitleHistory(String isbn) {
+        return history.forIsbn(isbn).iterator(0);
+    }
+
+    /**
+     * Returns one page of a title's loans, oldest first.
+     *
+     * @param isbn The title's ISBN, in any spelling
+     * @param page Page number, from 0
+     * @param pageSize Loans per page
+     * @return The page; empty past the last page
+     * @throws IllegalArgumentException if page or pageSize is negative
+     */
+    public List<Transaction> getTitleHistory(String isbn, int page, int pageSize) {
+        return page(history.forIsbn(isbn), page, pageSize);
+    }
+
+    private static List<Transaction> page(LoanHistory.LoanList loans, int page, int pageSize) {
+        if (page < 0 || pageSize < 0) {
+            throw new IllegalArgumentException("page and pageSize must not be negative: " + page + ", " + pageSize);
+        }
+        long offset = (long) page * pageSize;
+        if (offset >= loans.size()) {
+            return new ArrayList<>();
+        }
+        return loans.page((int) offset, pageSize);
+    }
 }
@@ -0,0 +1,181 @@
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * A Checkout's change stream, as a java.util.concurrent.Flow publisher.
+ *
+ * Circulation threads hand events to a queue without waiting; one dispatcher
+ * thread numbers them in queue order and submits them to a SubmissionPublisher,
+ * which keeps a bounded buffer per subscriber and delivers in order, as fast as
+ * each subscriber requests. While anyone is subscribed, Checkout moves copies
+ * under the title's ISBN stripe and queues the title's events (checkouts,
+ * returns, availability changes) there, and queues a patron's renewals and
+ * fines under the patron's stripe, so every subscriber sees one title's or one
+ * patron's events in the order they happened.
+ *
+ * Back-pressure is end to end: when a subscriber's buffer fills, the dispatcher
+ * waits for it, and once the queue holds QUEUE_CAPACITY events, checkoutBook,
+ * checkoutBatch, returnBook and the overdue sweep wait for it to drain (see
+ * awaitCapacity) after releasing their locks. Queuing itself never blocks, so a
+ * slow subscriber never stalls a thread holding a patron, title or catalog lock;
+ * the queue can overshoot the capacity by the events of calls already under way.
+ * A subscriber that stops requesting still eventually stalls checkouts, so
+ * subscribers should request promptly or cancel.
+ *
+ * With no subscribers nothing is built or queued: the only cost is one volatile
+ * read per change.
+ */
+public final class CheckoutEvents implements Flow.Publisher<CirculationEvent> {
+    static final int QUEUE_CAPACITY = 1024;
+    private static final CirculationEvent CLOSE = CirculationEvent.availabilityChanged(null, 0, 0);
+
+    private final SubmissionPublisher<CirculationEvent> publisher;
+    private final BlockingQueue<CirculationEvent> queue; // unbounded; capacity is enforced by awaitCapacity
+    private final int capacity;
+    private volatile int waiting; // circulation threads in awaitCapacity
+    private volatile boolean active; // true while there may be subscribers
+    private volatile boolean closed;
+    private Thread dispatcher; // guarded by this; started on the first subscribe
+    private long sequence; // dispatcher thread only
+
+    CheckoutEvents() {
+        this(QUEUE_CAPACITY, Flow.defaultBufferSize());
+    }
+
+    /**
+     * @param queueCapacity Events that may wait for the dispatcher
+     * @param bufferPerSubscriber Events each subscriber may have delivered but not yet consumed
+     */
+    CheckoutEvents(int queueCapacity, int bufferPerSubscriber) {
+        this.queue = new LinkedBlockingQueue<>();
+        this.capacity = queueCapacity;
+        this.publisher = new SubmissionPublisher<>(ForkJoinPool.commonPool(), bufferPerSubscriber);
+    }
+
+    /**
+     * Subscribes to events published from now on.
+     *
+     * @param subscriber The subscriber
+     */
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super CirculationEvent> subscriber) {
+        publisher.subscribe(subscriber); // completes it at once if closed
+        if (closed) {
+            return;
+        }
+        active = true;
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::dispatch, "checkout-events");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * Tells whether events are being published, i.e. someone may be subscribed.
+     * Callers check this before building an event.
+     *
+     * @return true if events should be passed to publish
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Queues an event without waiting, so it may be called under locks; events
+     * queued by one thread, or ordered by a lock, are delivered in that order.
+     */
+    void publish(CirculationEvent event) {
+        if (!closed) {
+            queue.offer(event);
+        }
+    }
+
+    /**
+     * Waits while the queue holds QUEUE_CAPACITY events or more. Circulation calls
+     * this after releasing their locks, so a slow subscriber slows the callers
+     * down without stalling anyone waiting on those locks.
+     */
+    void awaitCapacity() {
+        if (queue.size() < capacity) {
+            return;
+        }
+        synchronized (queue) {
+            waiting++;
+            try {
+                while (queue.size() >= capacity && !closed) {
+                    queue.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // stop waiting; the caller's change still stands
+            } finally {
+                waiting--;
+            }
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                CirculationEvent event = queue.take();
+                if (waiting > 0 && queue.size() < capacity) {
+                    synchronized (queue) {
+                        queue.notifyAll();
+                    }
+                }
+                if (event == CLOSE) {
+                    publisher.close();
+                    return;
+                }
+                event.setSequence(++sequence);
+                publisher.submit(event);
+                if (queue.isEmpty()) {
+                    synchronized (this) {
+                        if (!publisher.hasSubscribers()) {
+                            active = false; // every subscriber cancelled; stop building events
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            publisher.close();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * Delivers the events already queued, then completes every subscriber.
+     * Nothing is published afterwards.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active = false;
+            thread = dispatcher;
+        }
+        synchronized (queue) {
+            queue.notifyAll(); // release callers waiting for capacity
+        }
+        if (thread == null) {
+            publisher.close();
+            return;
+        }
+        try {
+            queue.offer(CLOSE); // behind every queued event
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
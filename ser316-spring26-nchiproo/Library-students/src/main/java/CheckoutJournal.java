@@ -0,0 +1,363 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped write-ahead journal of circulation events.
+ *
+ * Checkout records each checkout, renewal, return, fine accrual, payment, waiver,
+ * suspension and reinstatement here once it has applied it. A title's checkouts
+ * and returns are appended under its ISBN stripe, so they are in the order its
+ * copies moved and replay never takes a copy that isn't on the shelf yet.
+ * Appending copies a few dozen bytes into a mapped region and does not wait for
+ * the disk. A background thread forces the mapped pages every commit interval,
+ * so one fsync covers every record written since the last one (group commit); a
+ * crash loses at most that interval. Callers that need a record on disk before
+ * continuing can call awaitCommit with the position append returned.
+ *
+ * File layout: a sequence of regions of REGION_SIZE bytes. Each record is
+ * [int payload length][int CRC32 of payload][payload] and never crosses a region;
+ * a length of -1 means "continue at the next region" and 0 means end of journal.
+ * Payload: [byte type][long date][long date or amount][UTF-8 patronId][UTF-8 isbn],
+ * strings prefixed by an unsigned short length. A record whose checksum does not
+ * match (torn by a crash) ends the journal.
+ *
+ * On startup, load books and register patrons, then call replay(checkout) to
+ * rebuild the open loans, availability, fine balances and suspensions before
+ * setting the journal on the Checkout. Replay throws IllegalStateException if a
+ * checkout finds no copy on the shelf, since the journal then disagrees with the
+ * inventory it is replayed into.
+ */
+public class CheckoutJournal implements Closeable {
+    /** Bytes per mapped region. */
+    public static final int REGION_SIZE = 16 * 1024 * 1024;
+
+    static final byte CHECKOUT = 1;
+    static final byte RENEW = 2;
+    static final byte RETURN = 3;
+    static final byte FINE = 4;
+    static final byte SUSPEND = 5;
+    static final byte PAYMENT = 6;
+    static final byte WAIVE = 7;
+    static final byte REINSTATE = 8;
+
+    private static final int HEADER = 8;
+    private static final int SKIP = -1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Object writeLock = new Object();
+    private final Object commitLock = new Object();
+    private final CRC32 crc = new CRC32(); // guarded by writeLock
+    private final Thread committer;
+
+    private MappedByteBuffer region; // guarded by writeLock
+    private long regionStart;
+    private volatile long writePosition;
+    private volatile long committedPosition;
+    private volatile boolean closed;
+
+    /**
+     * Opens (or creates) a journal, positioned after its last intact record.
+     *
+     * @param file Path of the journal file
+     * @param commitIntervalMillis How often the background thread forces writes to disk
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public CheckoutJournal(Path file, long commitIntervalMillis) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long end = scan(0, null);
+        this.regionStart = end - end % REGION_SIZE;
+        this.region = map(regionStart);
+        this.region.position((int) (end - regionStart));
+        this.writePosition = end;
+        this.committedPosition = end;
+
+        this.committer = new Thread(() -> commitLoop(commitIntervalMillis), "checkout-journal-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the position just past the last appended record.
+     *
+     * @return Journal end position
+     */
+    public long getPosition() {
+        return writePosition;
+    }
+
+    // ---- events, called by Checkout ----
+
+    long checkedOut(String patronId, String isbn, LocalDate checkoutDate, LocalDate dueDate) {
+        return append(CHECKOUT, patronId, isbn, checkoutDate.toEpochDay(), dueDate.toEpochDay());
+    }
+
+    long renewed(String patronId, String isbn, LocalDate dueDate) {
+        return append(RENEW, patronId, isbn, dueDate.toEpochDay(), 0);
+    }
+
+    long returned(String patronId, String isbn, LocalDate returnDate, int fineCents) {
+        return append(RETURN, patronId, isbn, returnDate.toEpochDay(), fineCents);
+    }
+
+    long fined(String patronId, String isbn, LocalDate date, int fineCents) {
+        return append(FINE, patronId, isbn, date.toEpochDay(), fineCents);
+    }
+
+    long suspended(String patronId, LocalDate date) {
+        return append(SUSPEND, patronId, "", date.toEpochDay(), 0);
+    }
+
+    long paid(String patronId, LocalDate date, long cents) {
+        return append(PAYMENT, patronId, "", date.toEpochDay(), cents);
+    }
+
+    long waived(String patronId, LocalDate date) {
+        return append(WAIVE, patronId, "", date.toEpochDay(), 0);
+    }
+
+    long reinstated(String patronId, LocalDate date) {
+        return append(REINSTATE, patronId, "", date.toEpochDay(), 0);
+    }
+
+    private long append(byte type, String patronId, String isbn, long first, long second) {
+        byte[] pid = patronId.getBytes(StandardCharsets.UTF_8);
+        byte[] key = isbn.getBytes(StandardCharsets.UTF_8);
+        int payload = 1 + 8 + 8 + 2 + pid.length + 2 + key.length;
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            if (region.remaining() < HEADER + payload + 4) {
+                nextRegion();
+            }
+            int start = region.position();
+            region.position(start + HEADER);
+            region.put(type).putLong(first).putLong(second);
+            region.putShort((short) pid.length).put(pid);
+            region.putShort((short) key.length).put(key);
+
+            ByteBuffer body = region.duplicate();
+            body.position(start + HEADER).limit(start + HEADER + payload);
+            crc.reset();
+            crc.update(body);
+            // Length last: a reader never sees a length before its payload is written
+            region.putInt(start + 4, (int) crc.getValue());
+            region.putInt(start, payload);
+            writePosition = regionStart + region.position();
+            return writePosition;
+        }
+    }
+
+    private void nextRegion() {
+        if (region.remaining() >= 4) {
+            region.putInt(region.position(), SKIP);
+        }
+        region.force();
+        regionStart += REGION_SIZE;
+        try {
+            region = map(regionStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer map(long start) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, start, REGION_SIZE);
+    }
+
+    // ---- group commit ----
+
+    private void commitLoop(long intervalMillis) {
+        while (!closed) {
+            synchronized (commitLock) {
+                try {
+                    commitLock.wait(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            commit();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     */
+    public void commit() {
+        MappedByteBuffer current;
+        long end;
+        synchronized (writeLock) {
+            current = region;
+            end = writePosition;
+        }
+        if (end <= committedPosition) {
+            return;
+        }
+        current.force();
+        synchronized (commitLock) {
+            if (end > committedPosition) {
+                committedPosition = end;
+            }
+            commitLock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until a record is on disk, sharing the next group commit with any other
+     * waiting writers.
+     *
+     * @param position Position returned when the record was appended
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitCommit(long position) throws InterruptedException {
+        synchronized (commitLock) {
+            commitLock.notifyAll(); // wake the committer early
+            while (committedPosition < position && !closed) {
+                commitLock.wait();
+            }
+        }
+    }
+
+    // ---- recovery ----
+
+    /**
+     * Replays every record into a Checkout. See replay(Checkout, long).
+     *
+     * @param checkout Target with books and patrons already loaded
+     * @return Number of records applied
+     * @throws IOException if the journal cannot be read
+     */
+    public int replay(Checkout checkout) throws IOException {
+        return replay(checkout, 0);
+    }
+
+    /**
+     * Replays the records from a position onward into a Checkout, without writing
+     * them to any journal. Books must already be in the inventory and patrons
+     * registered; records naming unknown ones are skipped.
+     *
+     * @param checkout Target with books and patrons already loaded
+     * @param fromPosition Position to start from (0, or one saved by a snapshot)
+     * @return Number of records applied
+     * @throws IOException if the journal cannot be read
+     */
+    public int replay(Checkout checkout, long fromPosition) throws IOException {
+        int[] applied = new int[1];
+        scan(fromPosition, record -> {
+            if (checkout.applyJournalRecord(record.type, record.patronId, record.isbn, record.first,
+                    record.second)) {
+                applied[0]++;
+            }
+        });
+        return applied[0];
+    }
+
+    /** One decoded record, handed to a scan visitor. */
+    static final class Record {
+        byte type;
+        long first;
+        long second;
+        String patronId;
+        String isbn;
+    }
+
+    interface RecordVisitor {
+        void visit(Record record);
+    }
+
+    /**
+     * Reads records from a position to the end of the journal.
+     *
+     * @return Position after the last intact record
+     */
+    private long scan(long from, RecordVisitor visitor) throws IOException {
+        long size = channel.size();
+        long pos = from;
+        Record record = new Record();
+        CRC32 check = new CRC32();
+        while (pos < size) {
+            long start = pos - pos % REGION_SIZE;
+            long length = Math.min(REGION_SIZE, size - start);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            buffer.position((int) (pos - start));
+            boolean nextRegion = false;
+            while (buffer.remaining() >= 4) {
+                int at = buffer.position();
+                int payload = buffer.getInt();
+                if (payload == SKIP) {
+                    nextRegion = true;
+                    break;
+                }
+                if (payload <= 0 || buffer.remaining() < 4 + payload) {
+                    return start + at;
+                }
+                int expected = buffer.getInt();
+                ByteBuffer body = buffer.slice(buffer.position(), payload);
+                check.reset();
+                check.update(body.duplicate());
+                if ((int) check.getValue() != expected) {
+                    return start + at; // torn write
+                }
+                if (visitor != null) {
+                    record.type = body.get();
+                    record.first = body.getLong();
+                    record.second = body.getLong();
+                    record.patronId = readString(body);
+                    record.isbn = readString(body);
+                    visitor.visit(record);
+                }
+                buffer.position(buffer.position() + payload);
+                pos = start + buffer.position();
+            }
+            if (!nextRegion) {
+                return pos;
+            }
+            pos = start + REGION_SIZE;
+        }
+        return Math.min(pos, size);
+    }
+
+    private static String readString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getShort() & 0xFFFF];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Commits outstanding records and closes the file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        commit();
+        synchronized (writeLock) {
+            closed = true;
+        }
+        synchronized (commitLock) {
+            commitLock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loopback load generator for CheckoutServer.
+ *
+ * Opens one connection per simulated terminal and has each send CHECKOUT then
+ * RETURN for random titles and patrons, timing every round trip. The titles and
+ * patrons are the synthetic ones seed() adds, so a server started with
+ * "Main serve" (no data files) and this generator agree on IDs.
+ *
+ * Usage: CheckoutLoadGenerator [port] [terminals] [requestsPerTerminal] [titles] [patrons]
+ */
+public class CheckoutLoadGenerator {
+    private final int port;
+    private final int terminals;
+    private final int requestsPerTerminal;
+    private final int titles;
+    private final int patrons;
+
+    /**
+     * Creates a generator.
+     *
+     * @param port Server port on the loopback interface
+     * @param terminals Concurrent connections
+     * @param requestsPerTerminal Checkout/return pairs each terminal sends
+     * @param titles Number of seeded titles to pick from
+     * @param patrons Number of seeded patrons to pick from
+     */
+    public CheckoutLoadGenerator(int port, int terminals, int requestsPerTerminal, int titles, int patrons) {
+        this.port = port;
+        this.terminals = terminals;
+        this.requestsPerTerminal = requestsPerTerminal;
+        this.titles = titles;
+        this.patrons = patrons;
+    }
+
+    /**
+     * Fills a Checkout with synthetic titles (ISBNs 978 followed by the index) and
+     * faculty patrons (P-index) for load testing.
+     *
+     * @param checkout The Checkout to fill
+     * @param titles Number of titles, 4 copies each
+     * @param patrons Number of patrons
+     */
+    public static void seed(Checkout checkout, int titles, int patrons) {
+        Book.BookType[] types = {Book.BookType.FICTION, Book.BookType.NONFICTION, Book.BookType.TEXTBOOK,
+            Book.BookType.CHILDREN};
+        for (int i = 0; i < titles; i++) {
+            checkout.addBook(new Book(isbn(i), "Title " + i, "Author " + (i % 997), types[i % types.length], 4));
+        }
+        for (int i = 0; i < patrons; i++) {
+            checkout.registerPatron(new Patron("P-" + i, "Patron " + i, "p" + i + "@example.com",
+                    Patron.PatronType.FACULTY));
+        }
+    }
+
+    static String isbn(int index) {
+        return String.format("978%010d", index);
+    }
+
+    /**
+     * Runs the load and waits for every terminal to finish.
+     *
+     * @return Latency and error counts
+     * @throws Exception if a terminal cannot connect
+     */
+    public Result run() throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        ExecutorService executor = CheckoutServer.newVirtualThreadExecutor();
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.min(terminals, 512));
+        }
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < terminals; t++) {
+                long seed = t;
+                running.add(executor.submit(() -> {
+                    terminal(new SplittableRandom(seed), latency, errors);
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return new Result(latency.snapshot(), errors.sum(), System.nanoTime() - start);
+    }
+
+    private void terminal(SplittableRandom random, LatencyHistogram latency, LongAdder errors) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                     StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            for (int i = 0; i < requestsPerTerminal; i++) {
+                String patron = "P-" + random.nextInt(patrons);
+                String isbn = isbn(random.nextInt(titles));
+                exchange("CHECKOUT " + patron + " " + isbn, in, out, latency, errors);
+                exchange("RETURN " + patron + " " + isbn, in, out, latency, errors);
+            }
+            exchange("QUIT", in, out, latency, errors);
+        }
+    }
+
+    private static void exchange(String request, BufferedReader in, BufferedWriter out, LatencyHistogram latency,
+                                 LongAdder errors) throws IOException {
+        long start = System.nanoTime();
+        out.write(request);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        latency.record(System.nanoTime() - start);
+        if (reply == null || reply.startsWith("ERR")) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Outcome of one run.
+     */
+    public static final class Result {
+        private final LatencyHistogram.Snapshot latency;
+        private final long errors;
+        private final long elapsedNanos;
+
+        Result(LatencyHistogram.Snapshot latency, long errors, long elapsedNanos) {
+            this.latency = latency;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getRequestsPerSecond() {
+            return latency.getCount() * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %.0f req/s, %d errors, round trip %s", latency.getCount(),
+                    getRequestsPerSecond(), errors, latency);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : Main.DEFAULT_PORT;
+        int terminals = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        int requests = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+        int titles = (args.length > 3) ? Integer.parseInt(args[3]) : Main.SEED_TITLES;
+        int patrons = (args.length > 4) ? Integer.parseInt(args[4]) : Main.SEED_PATRONS;
+        System.out.println(new CheckoutLoadGenerator(port, terminals, requests, titles, patrons).run());
+    }
+}
@@ -0,0 +1,331 @@
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Always-on counters and latency histograms for one Checkout.
+ *
+ * Every checkoutBook call is counted under its return code and timed; every
+ * returnBook call is timed and counted as completed (with the fine charged) or
+ * rejected (-1). Batch checkouts count each request's code and time the whole
+ * batch, and overdue sweeps are timed. Counters are LongAdders, so threads
+ * recording at once update separate cells instead of contending on one word.
+ * Gauges (open loans, available titles per type) are read from the Checkout
+ * when asked for.
+ *
+ * Read everything at once with snapshot(), or through JMX after registerMBean().
+ */
+public class CheckoutMetrics implements CheckoutMetricsMXBean {
+    /** The documented checkoutBook return codes, in the order they are reported. */
+    static final double[] CODES = {0.0, 0.1, 1.0, 1.1, 2.0, 2.1, 3.0, 3.1, 3.2, 4.0, 4.1, 5.0};
+    private static final int OTHER = CODES.length; // anything undocumented
+
+    private final Checkout checkout;
+    private final LongAdder[] codeCounts = new LongAdder[CODES.length + 1];
+    private final LongAdder returns = new LongAdder();
+    private final LongAdder rejectedReturns = new LongAdder();
+    private final LongAdder finesChargedCents = new LongAdder();
+    private final LatencyHistogram checkoutLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram returnLatency = new LatencyHistogram();
+    private final LatencyHistogram sweepLatency = new LatencyHistogram();
+
+    CheckoutMetrics(Checkout checkout) {
+        this.checkout = checkout;
+        for (int i = 0; i < codeCounts.length; i++) {
+            codeCounts[i] = new LongAdder();
+        }
+    }
+
+    static int codeIndex(double code) {
+        switch ((int) Math.round(code * 10)) {
+            case 0: return 0;
+            case 1: return 1;
+            case 10: return 2;
+            case 11: return 3;
+            case 20: return 4;
+            case 21: return 5;
+            case 30: return 6;
+            case 31: return 7;
+            case 32: return 8;
+            case 40: return 9;
+            case 41: return 10;
+            case 50: return 11;
+            default: return OTHER;
+        }
+    }
+
+    // ---- recording, called by Checkout ----
+
+    void checkoutCompleted(double code, long nanos) {
+        codeCounts[codeIndex(code)].increment();
+        checkoutLatency.record(nanos);
+    }
+
+    void batchCompleted(double[] codes, long nanos) {
+        for (double code : codes) {
+            codeCounts[codeIndex(code)].increment();
+        }
+        batchLatency.record(nanos);
+    }
+
+    void returnCompleted(double fine, long nanos) {
+        if (fine < 0) {
+            rejectedReturns.increment();
+        } else {
+            returns.increment();
+            finesChargedCents.add(Math.round(fine * 100));
+        }
+        returnLatency.record(nanos);
+    }
+
+    void sweepCompleted(long nanos) {
+        sweepLatency.record(nanos);
+    }
+
+    // ---- reading ----
+
+    /**
+     * Returns how many checkouts (single or batched) ended with a return code.
+     *
+     * @param code A documented return code
+     * @return Count, or 0 for an undocumented code
+     */
+    public long getCheckoutCount(double code) {
+        int index = codeIndex(code);
+        return (index == OTHER) ? 0 : codeCounts[index].sum();
+    }
+
+    /**
+     * Copies every counter, histogram and gauge.
+     *
+     * @return The current values
+     */
+    public Snapshot snapshot() {
+        Map<Double, Long> codes = new LinkedHashMap<>();
+        for (int i = 0; i < CODES.length; i++) {
+            codes.put(CODES[i], codeCounts[i].sum());
+        }
+        Map<Book.BookType, Integer> available = new EnumMap<>(Book.BookType.class);
+        for (Book.BookType type : Book.BookType.values()) {
+            available.put(type, checkout.countBooksByType(type, true));
+        }
+        return new Snapshot(codes, returns.sum(), rejectedReturns.sum(), finesChargedCents.sum(),
+                checkoutLatency.snapshot(), batchLatency.snapshot(), returnLatency.snapshot(),
+                sweepLatency.snapshot(), checkout.getOpenLoanCount(), available);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * library:type=CheckoutMetrics,name=(name).
+     *
+     * @param name Distinguishes Checkouts in one JVM
+     * @return The registered name
+     * @throws JMException if registration fails (e.g. the name is taken)
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Removes the registration made by registerMBean, if any.
+     *
+     * @param name The name passed to registerMBean
+     * @throws JMException if the name is malformed
+     */
+    public void unregisterMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("library:type=CheckoutMetrics,name=" + ObjectName.quote(name));
+    }
+
+    // ---- CheckoutMetricsMXBean ----
+
+    @Override
+    public long getCheckouts() {
+        long total = 0;
+        for (LongAdder count : codeCounts) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getCheckoutCodeCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < CODES.length; i++) {
+            counts.put(String.valueOf(CODES[i]), codeCounts[i].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public long getReturns() {
+        return returns.sum();
+    }
+
+    @Override
+    public long getRejectedReturns() {
+        return rejectedReturns.sum();
+    }
+
+    @Override
+    public long getFinesChargedCents() {
+        return finesChargedCents.sum();
+    }
+
+    @Override
+    public double getCheckoutMeanNanos() {
+        return checkoutLatency.snapshot().getMean();
+    }
+
+    @Override
+    public long getCheckoutP50Nanos() {
+        return checkoutLatency.snapshot().getPercentile(50);
+    }
+
+    @Override
+    public long getCheckoutP99Nanos() {
+        return checkoutLatency.snapshot().getPercentile(99);
+    }
+
+    @Override
+    public long getCheckoutMaxNanos() {
+        return checkoutLatency.snapshot().getMax();
+    }
+
+    @Override
+    public double getReturnMeanNanos() {
+        return returnLatency.snapshot().getMean();
+    }
+
+    @Override
+    public long getReturnP50Nanos() {
+        return returnLatency.snapshot().getPercentile(50);
+    }
+
+    @Override
+    public long getReturnP99Nanos() {
+        return returnLatency.snapshot().getPercentile(99);
+    }
+
+    @Override
+    public long getReturnMaxNanos() {
+        return returnLatency.snapshot().getMax();
+    }
+
+    @Override
+    public int getOpenLoans() {
+        return checkout.getOpenLoanCount();
+    }
+
+    @Override
+    public Map<String, Integer> getAvailableTitlesByType() {
+        Map<String, Integer> available = new LinkedHashMap<>();
+        for (Book.BookType type : Book.BookType.values()) {
+            available.put(type.name(), checkout.countBooksByType(type, true));
+        }
+        return available;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder count : codeCounts) {
+            count.reset();
+        }
+        returns.reset();
+        rejectedReturns.reset();
+        finesChargedCents.reset();
+        checkoutLatency.reset();
+        batchLatency.reset();
+        returnLatency.reset();
+        sweepLatency.reset();
+    }
+
+    /**
+     * Point-in-time copy of a Checkout's metrics.
+     */
+    public static final class Snapshot {
+        private final Map<Double, Long> checkoutCodes;
+        private final long returns;
+        private final long rejectedReturns;
+        private final long finesChargedCents;
+        private final LatencyHistogram.Snapshot checkoutLatency;
+        private final LatencyHistogram.Snapshot batchLatency;
+        private final LatencyHistogram.Snapshot returnLatency;
+        private final LatencyHistogram.Snapshot sweepLatency;
+        private final int openLoans;
+        private final Map<Book.BookType, Integer> availableTitles;
+
+        Snapshot(Map<Double, Long> checkoutCodes, long returns, long rejectedReturns, long finesChargedCents,
+                 LatencyHistogram.Snapshot checkoutLatency, LatencyHistogram.Snapshot batchLatency,
+                 LatencyHistogram.Snapshot returnLatency, LatencyHistogram.Snapshot sweepLatency,
+                 int openLoans, Map<Book.BookType, Integer> availableTitles) {
+            this.checkoutCodes = Collections.unmodifiableMap(checkoutCodes);
+            this.returns = returns;
+            this.rejectedReturns = rejectedReturns;
+            this.finesChargedCents = finesChargedCents;
+            this.checkoutLatency = checkoutLatency;
+            this.batchLatency = batchLatency;
+            this.returnLatency = returnLatency;
+            this.sweepLatency = sweepLatency;
+            this.openLoans = openLoans;
+            this.availableTitles = Collections.unmodifiableMap(availableTitles);
+        }
+
+        /** Count per documented return code, in documentation order. */
+        public Map<Double, Long> getCheckoutCodes() {
+            return checkoutCodes;
+        }
+
+        public long getReturns() {
+            return returns;
+        }
+
+        public long getRejectedReturns() {
+            return rejectedReturns;
+        }
+
+        public long getFinesChargedCents() {
+            return finesChargedCents;
+        }
+
+        public LatencyHistogram.Snapshot getCheckoutLatency() {
+            return checkoutLatency;
+        }
+
+        public LatencyHistogram.Snapshot getBatchLatency() {
+            return batchLatency;
+        }
+
+        public LatencyHistogram.Snapshot getReturnLatency() {
+            return returnLatency;
+        }
+
+        public LatencyHistogram.Snapshot getSweepLatency() {
+            return sweepLatency;
+        }
+
+        public int getOpenLoans() {
+            return openLoans;
+        }
+
+        public Map<Book.BookType, Integer> getAvailableTitles() {
+            return availableTitles;
+        }
+    }
+}
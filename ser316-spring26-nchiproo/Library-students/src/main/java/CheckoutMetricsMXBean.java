@@ -0,0 +1,40 @@
+import java.util.Map;
+
+/**
+ * JMX view of CheckoutMetrics. Times are in nanoseconds.
+ */
+public interface CheckoutMetricsMXBean {
+    long getCheckouts();
+
+    /** Checkout count per documented return code ("0.0", "2.0", ...). */
+    Map<String, Long> getCheckoutCodeCounts();
+
+    long getReturns();
+
+    long getRejectedReturns();
+
+    long getFinesChargedCents();
+
+    double getCheckoutMeanNanos();
+
+    long getCheckoutP50Nanos();
+
+    long getCheckoutP99Nanos();
+
+    long getCheckoutMaxNanos();
+
+    double getReturnMeanNanos();
+
+    long getReturnP50Nanos();
+
+    long getReturnP99Nanos();
+
+    long getReturnMaxNanos();
+
+    int getOpenLoans();
+
+    /** Titles with at least one copy on the shelf, per book type. */
+    Map<String, Integer> getAvailableTitlesByType();
+
+    void reset();
+}
@@ -0,0 +1,33 @@
+/**
+ * One entry of a Checkout.checkoutBatch call: a patron asking for a book.
+ * Either side may be null; the batch reports the same codes checkoutBook would.
+ */
+public final class CheckoutRequest {
+    private final Book book;
+    private final Patron patron;
+
+    /**
+     * Creates a request.
+     *
+     * @param book The book to check out (can be null)
+     * @param patron The patron checking it out (can be null)
+     */
+    public CheckoutRequest(Book book, Patron patron) {
+        this.book = book;
+        this.patron = patron;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public Patron getPatron() {
+        return patron;
+    }
+
+    @Override
+    public String toString() {
+        return ((patron == null) ? "null" : patron.getPatronId()) + " <- "
+                + ((book == null) ? "null" : book.getIsbn());
+    }
+}
@@ -0,0 +1,213 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line-based desk-terminal front end for a Checkout, listening on the loopback
+ * interface.
+ *
+ * Each request is one line of space-separated words; each reply is one line:
+ *   CHECKOUT patronId isbn    -> OK code        (checkoutBook return code)
+ *   RENEW patronId isbn       -> OK code (renewBook: 0.1, or an eligibility code), or ERR not-checked-out
+ *   RETURN patronId isbn      -> OK fine        (returnBook result, -1.0 if rejected)
+ *   COUNT type [AVAILABLE]    -> OK count       (countBooksByType)
+ *   AVAILABLE isbn            -> OK copies      (from the published AvailabilityView, -1 if unknown)
+ *   QUIT                      -> BYE, then the connection closes
+ * Unknown patrons and ISBNs are passed on as null, so they get the documented
+ * 3.1 and 2.1 codes. Anything else gets ERR and a short reason.
+ *
+ * Each connection is served by its own task that blocks on the socket. On Java
+ * 21+ tasks run on virtual threads, so tens of thousands of idle terminals cost
+ * little more than their sockets; on older runtimes they fall back to a cached
+ * pool of platform threads.
+ */
+public class CheckoutServer implements Closeable {
+    private final Checkout checkout;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final boolean virtualThreads;
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Starts serving on a loopback port.
+     *
+     * @param checkout The Checkout to serve
+     * @param port Port to listen on (0 picks a free port)
+     * @throws IOException if the port cannot be bound
+     */
+    public CheckoutServer(Checkout checkout, int port) throws IOException {
+        this.checkout = checkout;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.sessions = (virtual != null) ? virtual : Executors.newCachedThreadPool();
+        this.acceptor = new Thread(this::acceptLoop, "checkout-server-accept");
+        this.acceptor.start();
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when the runtime has one, found
+     * reflectively so the code still compiles and runs on Java 17.
+     *
+     * @return The executor, or null if virtual threads are unavailable
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null; // before Java 21, or preview features off on Java 19/20
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Returns the number of connected terminals.
+     *
+     * @return Open connection count
+     */
+    public int getConnectionCount() {
+        return open.size();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                open.add(socket);
+                sessions.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                return; // closed
+            } catch (IOException e) {
+                // A failed accept affects only that connection; keep listening
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(),
+                     StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(),
+                     StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = handle(line);
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+                if ("BYE".equals(reply)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // Client went away; nothing to clean up beyond the socket
+        } finally {
+            open.remove(socket);
+        }
+    }
+
+    /**
+     * Executes one request line.
+     *
+     * @param line The request
+     * @return The reply line (without newline)
+     */
+    String handle(String line) {
+        String[] words = line.trim().split("\\s+");
+        String command = words[0].toUpperCase(Locale.ROOT);
+        switch (command) {
+            case "CHECKOUT": {
+                if (words.length != 3) {
+                    return "ERR usage: CHECKOUT patronId isbn";
+                }
+                Book book = checkout.getInventory().get(words[2]);
+                return "OK " + checkout.checkoutBook(book, checkout.getPatrons().get(words[1]));
+            }
+            case "RENEW": {
+                if (words.length != 3) {
+                    return "ERR usage: RENEW patronId isbn";
+                }
+                Patron patron = checkout.getPatrons().get(words[1]);
+                double code = (patron == null) ? -1.0 : checkout.renewBook(words[2], patron);
+                return (code < 0) ? "ERR not-checked-out" : "OK " + code;
+            }
+            case "RETURN": {
+                if (words.length != 3) {
+                    return "ERR usage: RETURN patronId isbn";
+                }
+                return "OK " + checkout.returnBook(words[2], checkout.getPatrons().get(words[1]));
+            }
+            case "COUNT": {
+                if (words.length < 2 || words.length > 3
+                        || (words.length == 3 && !"AVAILABLE".equalsIgnoreCase(words[2]))) {
+                    return "ERR usage: COUNT type [AVAILABLE]";
+                }
+                Book.BookType type;
+                try {
+                    type = Book.BookType.valueOf(words[1].toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    return "ERR unknown-type";
+                }
+                return "OK " + checkout.countBooksByType(type, words.length == 3);
+            }
+            case "AVAILABLE": {
+                if (words.length != 2) {
+                    return "ERR usage: AVAILABLE isbn";
+                }
+                return "OK " + checkout.getAvailabilityView().getAvailableCopies(words[1]);
+            }
+            case "QUIT":
+                return "BYE";
+            default:
+                return "ERR unknown-command";
+        }
+    }
+
+    /**
+     * Stops accepting, disconnects every terminal and waits briefly for sessions
+     * to finish.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : open) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closing
+            }
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+            acceptor.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Compact binary checkpoint of a Checkout: its inventory, registered patrons and
+ * open loans, plus the journal position the checkpoint corresponds to.
+ *
+ * Startup loads the snapshot and then replays only the journal records written
+ * after it (see restore), instead of the whole journal. The file is memory-mapped
+ * and decoded straight from the mapping, with no read buffers in between.
+ *
+ * Layout (big-endian): [int MAGIC][int VERSION][long journal position]
+ * [int books][int patrons][int loans], then the three tables.
+ * - book: isbn, title, author, byte type, int total copies, int available copies,
+ *   int n, then n longs of copy map (see CopySet.toWords; n is 0 for books that
+ *   don't number copies). Copies set aside for holds count as available and are
+ *   marked as on the shelf; holds are not saved.
+ * - patron: id, name, email, byte type, byte suspended, long fine cents, long member-since day,
+ *   int overdue count (as the last sweep set it)
+ * - loan: patron id, isbn, long checkout day, long due day, int fined cents, int copy
+ *   (Book.NO_COPY if not known)
+ * Version 1 snapshots, which have no copy map or loan copy, still load; their
+ * lowest-numbered copies go on the shelf. Version 1 and 2 snapshots have no
+ * overdue count; it is recounted from the loans' due dates as of the load.
+ * Strings are an unsigned short byte length (0xFFFF for null) and UTF-8 bytes;
+ * days are epoch days, with Long.MIN_VALUE for a missing date; types are enum
+ * ordinals, with -1 for null. Snapshots are limited to 2 GB.
+ */
+public final class CheckoutSnapshot {
+    static final int MAGIC = 0x434B534E; // "CKSN"
+    static final int VERSION = 3;
+
+    private static final int NULL_STRING = 0xFFFF;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final Book.BookType[] BOOK_TYPES = Book.BookType.values();
+    private static final Patron.PatronType[] PATRON_TYPES = Patron.PatronType.values();
+
+    private final Checkout checkout;
+    private final long journalPosition;
+    private final int bookCount;
+    private final int patronCount;
+    private final int loanCount;
+
+    private CheckoutSnapshot(Checkout checkout, long journalPosition, int bookCount, int patronCount,
+                             int loanCount) {
+        this.checkout = checkout;
+        this.journalPosition = journalPosition;
+        this.bookCount = bookCount;
+        this.patronCount = patronCount;
+        this.loanCount = loanCount;
+    }
+
+    public Checkout getCheckout() {
+        return checkout;
+    }
+
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public int getPatronCount() {
+        return patronCount;
+    }
+
+    public int getLoanCount() {
+        return loanCount;
+    }
+
+    /**
+     * Writes a snapshot of a Checkout. Circulation is paused only while the state
+     * is copied into memory; the file is written afterwards and then moved into
+     * place, so a crash never leaves a half-written snapshot at the path.
+     *
+     * @param checkout The Checkout to save
+     * @param file Where to write the snapshot
+     * @return The journal position the snapshot covers (0 without a journal)
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(Checkout checkout, Path file) throws IOException {
+        Out out = new Out();
+        long[] position = new long[1];
+        int[] counts = new int[3];
+        checkout.runWithAllPatronsLocked(() -> {
+            CheckoutJournal journal = checkout.getJournal();
+            position[0] = (journal == null) ? 0 : journal.getPosition();
+            out.buffer.putInt(MAGIC).putInt(VERSION).putLong(position[0]);
+            int countsAt = out.buffer.position();
+            out.buffer.putInt(0).putInt(0).putInt(0);
+
+            for (Book book : checkout.getInventory().values()) {
+                Checkout.ShelvedCopies copies = checkout.shelvedCopies(book);
+                out.string(book.getIsbn()).string(book.getTitle()).string(book.getAuthor());
+                out.ensure(13 + 8 * copies.copyWords.length);
+                out.buffer.put((book.getType() == null) ? -1 : (byte) book.getType().ordinal())
+                        .putInt(copies.total).putInt(copies.available).putInt(copies.copyWords.length);
+                for (long word : copies.copyWords) {
+                    out.buffer.putLong(word);
+                }
+                counts[0]++;
+            }
+            for (Patron patron : checkout.getPatrons().values()) {
+                out.string(patron.getPatronId()).string(patron.getName()).string(patron.getEmail());
+                out.ensure(22);
+                out.buffer.put((patron.getType() == null) ? -1 : (byte) patron.getType().ordinal())
+                        .put((byte) (patron.isAccountSuspended() ? 1 : 0))
+                        .putLong(patron.getFineCents()).putLong(day(patron.getMemberSince()))
+                        .putInt(patron.getOverdueCount());
+                counts[1]++;
+            }
+            checkout.forEachLoan((patron, isbn, checkoutDate, dueDate, finedCents) -> {
+                out.string(patron.getPatronId()).string(isbn);
+                out.ensure(24);
+                out.buffer.putLong(day(checkoutDate)).putLong(day(dueDate)).putInt(finedCents)
+                        .putInt(patron.getCheckedOutCopy(isbn));
+                counts[2]++;
+            });
+            out.buffer.putInt(countsAt, counts[0]).putInt(countsAt + 4, counts[1]).putInt(countsAt + 8, counts[2]);
+        });
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.buffer.flip();
+            while (out.buffer.hasRemaining()) {
+                channel.write(out.buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return position[0];
+    }
+
+    /**
+     * Loads a snapshot into a new Checkout.
+     *
+     * @param file The snapshot file
+     * @return The loaded snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static CheckoutSnapshot load(Path file) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < 28 || in.getInt() != MAGIC) {
+            throw new IOException("not a checkout snapshot: " + file);
+        }
+        int version = in.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("unsupported snapshot version " + version + ": " + file);
+        }
+        long journalPosition = in.getLong();
+        int books = in.getInt();
+        int patrons = in.getInt();
+        int loans = in.getInt();
+
+        Checkout checkout = new Checkout(new IsbnMap<>(books));
+        for (int i = 0; i < books; i++) {
+            String isbn = readString(in);
+            String title = readString(in);
+            String author = readString(in);
+            byte type = in.get();
+            int total = in.getInt();
+            int available = in.getInt();
+            long[] copyWords = new long[(version == 1) ? 0 : in.getInt()];
+            for (int w = 0; w < copyWords.length; w++) {
+                copyWords[w] = in.getLong();
+            }
+            Book book = new Book(isbn, title, author, (type < 0) ? null : BOOK_TYPES[type], total);
+            book.restoreCopies(available, copyWords);
+            checkout.addBook(book);
+        }
+        for (int i = 0; i < patrons; i++) {
+            String id = readString(in);
+            String name = readString(in);
+            String email = readString(in);
+            byte type = in.get();
+            boolean suspended = in.get() != 0;
+            long fineCents = in.getLong();
+            long memberSince = in.getLong();
+            int overdue = (version < 3) ? 0 : in.getInt();
+            Patron patron = new Patron(id, name, email, (type < 0) ? null : PATRON_TYPES[type]);
+            patron.setAccountSuspended(suspended);
+            patron.addFineCents(fineCents);
+            if (memberSince != NO_DATE) {
+                patron.setMemberSince(LocalDate.ofEpochDay(memberSince));
+            }
+            patron.setOverdueCount(overdue);
+            checkout.registerPatron(patron);
+        }
+        for (int i = 0; i < loans; i++) {
+            String patronId = readString(in);
+            String isbn = readString(in);
+            LocalDate checkoutDate = date(in.getLong());
+            LocalDate dueDate = date(in.getLong());
+            int finedCents = in.getInt();
+            int copy = (version == 1) ? Book.NO_COPY : in.getInt();
+            Patron patron = checkout.getPatrons().get(patronId);
+            if (patron != null) {
+                checkout.restoreLoan(patron, isbn, checkoutDate, dueDate, finedCents, copy);
+            }
+        }
+        if (version < 3) {
+            LocalDate today = LocalDate.now();
+            for (Patron patron : checkout.getPatrons().values()) {
+                int overdue = 0;
+                for (LocalDate due : patron.getCheckedOutBooks().values()) {
+                    if (due.isBefore(today)) {
+                        overdue++;
+                    }
+                }
+                patron.setOverdueCount(overdue);
+            }
+        }
+        return new CheckoutSnapshot(checkout, journalPosition, books, patrons, loans);
+    }
+
+    /**
+     * Brings a Checkout back online: loads the snapshot, replays the journal
+     * records written after it, and resumes journaling to the same journal.
+     *
+     * @param snapshot The snapshot file
+     * @param journal The journal the snapshot's position refers to
+     * @return The restored Checkout
+     * @throws IOException if either file cannot be read
+     */
+    public static Checkout restore(Path snapshot, CheckoutJournal journal) throws IOException {
+        CheckoutSnapshot loaded = load(snapshot);
+        Checkout checkout = loaded.getCheckout();
+        journal.replay(checkout, loaded.getJournalPosition());
+        checkout.setJournal(journal);
+        return checkout;
+    }
+
+    private static long day(LocalDate date) {
+        return (date == null) ? NO_DATE : date.toEpochDay();
+    }
+
+    private static LocalDate date(long day) {
+        return (day == NO_DATE) ? null : LocalDate.ofEpochDay(day);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Growable heap buffer the snapshot is encoded into while circulation is paused. */
+    private static final class Out {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        Out string(String value) {
+            if (value == null) {
+                ensure(2);
+                buffer.putShort((short) NULL_STRING);
+                return this;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length >= NULL_STRING) {
+                throw new IllegalArgumentException("string too long for a snapshot: " + bytes.length + " bytes");
+            }
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length).put(bytes);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.time.LocalDate;
+
+/**
+ * One change published on a Checkout's event stream (see Checkout.getEvents).
+ *
+ * Which fields are set depends on the type:
+ * - CHECKED_OUT: patron, isbn, date (checkout day), dueDate
+ * - RENEWED: patron, isbn, date (renewal day), dueDate
+ * - RETURNED: patron, isbn, date (return day), amountCents (fine charged at return)
+ * - FINE_ASSESSED: patron, isbn, date, amountCents (charged by a return or an overdue sweep)
+ * - AVAILABILITY_CHANGED: isbn, oldCopies, newCopies
+ * Unused fields are null or 0.
+ */
+public final class CirculationEvent {
+
+    public enum Type {
+        CHECKED_OUT,
+        RENEWED,
+        RETURNED,
+        FINE_ASSESSED,
+        AVAILABILITY_CHANGED
+    }
+
+    private final Type type;
+    private final String patronId;
+    private final String isbn;
+    private final LocalDate date;
+    private final LocalDate dueDate;
+    private final long amountCents;
+    private final int oldCopies;
+    private final int newCopies;
+    private long sequence; // set once by CheckoutEvents before delivery
+
+    private CirculationEvent(Type type, String patronId, String isbn, LocalDate date, LocalDate dueDate,
+                             long amountCents, int oldCopies, int newCopies) {
+        this.type = type;
+        this.patronId = patronId;
+        this.isbn = isbn;
+        this.date = date;
+        this.dueDate = dueDate;
+        this.amountCents = amountCents;
+        this.oldCopies = oldCopies;
+        this.newCopies = newCopies;
+    }
+
+    static CirculationEvent checkedOut(String patronId, String isbn, LocalDate day, LocalDate dueDate) {
+        return new CirculationEvent(Type.CHECKED_OUT, patronId, isbn, day, dueDate, 0, 0, 0);
+    }
+
+    static CirculationEvent renewed(String patronId, String isbn, LocalDate day, LocalDate dueDate) {
+        return new CirculationEvent(Type.RENEWED, patronId, isbn, day, dueDate, 0, 0, 0);
+    }
+
+    static CirculationEvent returned(String patronId, String isbn, LocalDate day, long fineCents) {
+        return new CirculationEvent(Type.RETURNED, patronId, isbn, day, null, fineCents, 0, 0);
+    }
+
+    static CirculationEvent fineAssessed(String patronId, String isbn, LocalDate day, long cents) {
+        return new CirculationEvent(Type.FINE_ASSESSED, patronId, isbn, day, null, cents, 0, 0);
+    }
+
+    static CirculationEvent availabilityChanged(String isbn, int oldCopies, int newCopies) {
+        return new CirculationEvent(Type.AVAILABILITY_CHANGED, null, isbn, null, null, 0, oldCopies, newCopies);
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns this event's position in the stream. Sequence numbers start at 1
+     * and increase by one per event published, so a gap means a consumer missed
+     * events.
+     *
+     * @return The sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPatronId() {
+        return patronId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public int getOldCopies() {
+        return oldCopies;
+    }
+
+    public int getNewCopies() {
+        return newCopies;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('#').append(sequence).append(' ').append(type).append('[');
+        if (patronId != null) {
+            sb.append(patronId).append(' ');
+        }
+        sb.append(isbn);
+        switch (type) {
+            case CHECKED_OUT:
+            case RENEWED:
+                sb.append(" due ").append(dueDate);
+                break;
+            case RETURNED:
+            case FINE_ASSESSED:
+                sb.append(" cents ").append(amountCents);
+                break;
+            default:
+                sb.append(' ').append(oldCopies).append("->").append(newCopies);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,457 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Memory-compact inventory store for very large catalogs.
+ *
+ * Instead of one Book object per title, each field is a column indexed by row:
+ * ISBNs as packed longs (see IsbnKey), titles and authors as ids into a
+ * deduplicated string pool, the type as a byte, and copy counts as ints. That is
+ * about 50 bytes per title plus the distinct strings, versus several hundred for
+ * a Book with its own Strings in a HashMap.
+ *
+ * The store is a Map so it can sit behind Checkout.getInventory(). get() returns a
+ * short-lived Book view of a row; reads and copy changes on the view go straight
+ * to the columns, so every view of a title sees the same counts. Keys must be
+ * valid ISBNs; hyphenated and plain spellings find the same row, and views report
+ * the canonical ISBN from IsbnKey.toIsbn. Availability listeners registered
+ * through any view apply to every row of the catalog. Rows cannot be removed.
+ */
+public class ColumnarCatalog extends AbstractMap<String, Book> {
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final byte NO_TYPE = -1;
+    private static final Book.BookType[] TYPES = Book.BookType.values();
+
+    private final StampedLock structure = new StampedLock(); // write: add rows / grow; read: row updates
+    private final StripedLocks rowLocks = new StripedLocks();
+    private final Set<AvailabilityListener> listeners = new CopyOnWriteArraySet<>();
+
+    // Columns, indexed by row
+    private long[] isbnKeys;
+    private int[] titleIds;
+    private int[] authorIds;
+    private byte[] types;
+    private int[] totalCopies;
+    private volatile int[] availableCopies;
+    private volatile int size;
+
+    // Open-addressing ISBN key -> row index; slots hold key + 1 so 0 means empty
+    private long[] slotKeys;
+    private int[] slotRows;
+
+    // Deduplicated titles and authors
+    private final Map<String, Integer> poolIds = new HashMap<>();
+    private String[] pool = new String[16];
+    private int poolSize;
+
+    /**
+     * Creates a catalog sized for the expected number of titles.
+     *
+     * @param expectedTitles Titles to allocate room for up front
+     */
+    public ColumnarCatalog(int expectedTitles) {
+        int capacity = Math.max(16, expectedTitles);
+        isbnKeys = new long[capacity];
+        titleIds = new int[capacity];
+        authorIds = new int[capacity];
+        types = new byte[capacity];
+        totalCopies = new int[capacity];
+        availableCopies = new int[capacity];
+        int slots = Integer.highestOneBit(capacity - 1) << 2; // load factor <= 0.5
+        slotKeys = new long[slots];
+        slotRows = new int[slots];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Book get(Object key) {
+        if (!(key instanceof CharSequence)) {
+            return null;
+        }
+        long isbnKey = IsbnKey.parse((CharSequence) key);
+        if (isbnKey == IsbnKey.INVALID) {
+            return null;
+        }
+        long stamp = structure.readLock();
+        try {
+            int row = findRow(isbnKey);
+            return (row < 0) ? null : view(row);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adds or replaces a title. The book's fields and current copy counts are
+     * copied into the columns; the Book object itself is not kept.
+     *
+     * @param isbn The ISBN key
+     * @param book The book to store
+     * @return A detached copy of the replaced title, or null if the ISBN was new
+     * @throws IllegalArgumentException if isbn is not a valid ISBN
+     */
+    @Override
+    public Book put(String isbn, Book book) {
+        long isbnKey = IsbnKey.parse(isbn);
+        if (isbnKey == IsbnKey.INVALID) {
+            throw new IllegalArgumentException("ColumnarCatalog keys must be ISBNs: " + isbn);
+        }
+        // Read the book first: a view of this catalog takes the structure lock itself
+        int total = book.getTotalCopies();
+        int available = book.getAvailableCopies();
+        long stamp = structure.writeLock();
+        try {
+            Book previous = null;
+            int row = findRow(isbnKey);
+            if (row >= 0) {
+                previous = detachedCopy(row);
+            } else {
+                row = size;
+                ensureRowCapacity(row + 1);
+                insertSlot(isbnKey, row);
+                isbnKeys[row] = isbnKey;
+            }
+            titleIds[row] = intern(book.getTitle());
+            authorIds[row] = intern(book.getAuthor());
+            types[row] = (book.getType() == null) ? NO_TYPE : (byte) book.getType().ordinal();
+            totalCopies[row] = total;
+            INTS.setVolatile(availableCopies, row, available);
+            if (row == size) {
+                size = row + 1;
+            }
+            return previous;
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Book>> entrySet() {
+        return new AbstractSet<Entry<String, Book>>() {
+            @Override
+            public Iterator<Entry<String, Book>> iterator() {
+                final int end = size;
+                return new Iterator<Entry<String, Book>>() {
+                    private int row;
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < end;
+                    }
+
+                    @Override
+                    public Entry<String, Book> next() {
+                        if (row >= end) {
+                            throw new NoSuchElementException();
+                        }
+                        long stamp = structure.readLock();
+                        try {
+                            Book book = view(row++);
+                            return new SimpleImmutableEntry<>(book.getIsbn(), book);
+                        } finally {
+                            structure.unlockRead(stamp);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of distinct title and author strings held.
+     *
+     * @return String pool size
+     */
+    public int getPooledStringCount() {
+        long stamp = structure.readLock();
+        try {
+            return poolSize;
+        } finally {
+            structure.unlockRead(stamp);
+        }
+    }
+
+    // ---- row access; callers hold the structure lock ----
+
+    private Book view(int row) {
+        byte type = types[row];
+        return new RowView(row, IsbnKey.toIsbn(isbnKeys[row]), pool[titleIds[row]], pool[authorIds[row]],
+                (type == NO_TYPE) ? null : TYPES[type], totalCopies[row]);
+    }
+
+    private Book detachedCopy(int row) {
+        Book view = view(row);
+        Book copy = new Book(view.getIsbn(), view.getTitle(), view.getAuthor(), view.getType(),
+                totalCopies[row]);
+        copy.setAvailableCopies(view.getAvailableCopies());
+        return copy;
+    }
+
+    private int readAvailable(int row) {
+        return (int) INTS.getVolatile(availableCopies, row);
+    }
+
+    /**
+     * Applies a copy-count change to one row under the row's lock, then notifies
+     * listeners once both locks are released, so a listener that blocks or calls
+     * back into the catalog can't stall other rows or a put. The listeners are
+     * read under the row lock, so one registered after a change never hears of
+     * it. As with Book, two changes racing on one row may be reported in either
+     * order.
+     */
+    private int update(RowView view, IntUnaryOperator change) {
+        int old;
+        int now;
+        Iterator<AvailabilityListener> targets; // snapshot of the listeners
+        long stamp = structure.readLock();
+        ReentrantLock rowLock = rowLocks.lockFor(view.row);
+        rowLock.lock();
+        try {
+            old = readAvailable(view.row);
+            now = change.applyAsInt(old);
+            if (now != old) {
+                INTS.setVolatile(availableCopies, view.row, now);
+            }
+            targets = listeners.iterator();
+        } finally {
+            rowLock.unlock();
+            structure.unlockRead(stamp);
+        }
+        while (now != old && targets.hasNext()) {
+            targets.next().availabilityChanged(view, old, now);
+        }
+        return now;
+    }
+
+    private int findRow(long isbnKey) {
+        int mask = slotKeys.length - 1;
+        int slot = hash(isbnKey) & mask;
+        while (true) {
+            long stored = slotKeys[slot];
+            if (stored == 0) {
+                return -1;
+            }
+            if (stored == isbnKey + 1) {
+                return slotRows[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insertSlot(long isbnKey, int row) {
+        if ((size + 1) * 2 > slotKeys.length) {
+            rehash(slotKeys.length * 2);
+        }
+        int mask = slotKeys.length - 1;
+        int slot = hash(isbnKey) & mask;
+        while (slotKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slotKeys[slot] = isbnKey + 1;
+        slotRows[slot] = row;
+    }
+
+    private void rehash(int slots) {
+        long[] oldKeys = slotKeys;
+        int[] oldRows = slotRows;
+        slotKeys = new long[slots];
+        slotRows = new int[slots];
+        int mask = slots - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = hash(oldKeys[i] - 1) & mask;
+                while (slotKeys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slotKeys[slot] = oldKeys[i];
+                slotRows[slot] = oldRows[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void ensureRowCapacity(int rows) {
+        if (rows <= isbnKeys.length) {
+            return;
+        }
+        int capacity = Math.max(rows, isbnKeys.length + (isbnKeys.length >> 1));
+        isbnKeys = Arrays.copyOf(isbnKeys, capacity);
+        titleIds = Arrays.copyOf(titleIds, capacity);
+        authorIds = Arrays.copyOf(authorIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        totalCopies = Arrays.copyOf(totalCopies, capacity);
+        availableCopies = Arrays.copyOf(availableCopies, capacity);
+    }
+
+    private int intern(String value) {
+        Integer id = poolIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (poolSize == pool.length) {
+            pool = Arrays.copyOf(pool, poolSize * 2);
+        }
+        pool[poolSize] = value;
+        poolIds.put(value, poolSize);
+        return poolSize++;
+    }
+
+    /**
+     * Book view of one catalog row. Title, author and type are fixed when the view
+     * is made; copy counts are always read from the columns. Copies aren't
+     * numbered, so every copy is lent and returned as NO_COPY.
+     */
+    private final class RowView extends Book {
+        private final int row;
+
+        RowView(int row, String isbn, String title, String author, BookType type, int totalCopies) {
+            super(isbn, title, author, type, totalCopies, false);
+            this.row = row;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return readAvailable(row) > 0;
+        }
+
+        @Override
+        public boolean checkAvailability() {
+            return readAvailable(row) > 0;
+        }
+
+        @Override
+        public int getAvailableCopies() {
+            return readAvailable(row);
+        }
+
+        @Override
+        public void setAvailableCopies(int copies) {
+            update(this, old -> copies);
+        }
+
+        @Override
+        public int checkoutCopy() {
+            boolean[] taken = new boolean[1];
+            update(this, old -> {
+                taken[0] = old > 0;
+                return taken[0] ? old - 1 : old;
+            });
+            return taken[0] ? NO_COPY : -1;
+        }
+
+        @Override
+        public boolean returnCopy(int copy) {
+            boolean[] released = new boolean[1];
+            update(this, old -> {
+                released[0] = old < totalCopies[row];
+                return released[0] ? old + 1 : old;
+            });
+            return released[0];
+        }
+
+        @Override
+        public boolean isCopyOnShelf(int copy) {
+            return false;
+        }
+
+        @Override
+        long[] getCopyWords() {
+            return new long[0];
+        }
+
+        @Override
+        void restoreCopies(int available, long[] copyWords) {
+            setAvailableCopies(available);
+        }
+
+        @Override
+        public int getTotalCopies() {
+            long stamp = structure.readLock();
+            try {
+                return totalCopies[row];
+            } finally {
+                structure.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public void resetAvailability() {
+            update(this, old -> totalCopies[row]);
+        }
+
+        @Override
+        public void addCopies(int copies) {
+            if (copies <= 0) {
+                throw new IllegalArgumentException("copies must be positive: " + copies);
+            }
+            update(this, old -> {
+                totalCopies[row] += copies;
+                return isReferenceOnly() ? old : old + copies;
+            });
+        }
+
+        @Override
+        public boolean removeCopies(int copies) {
+            if (copies <= 0) {
+                throw new IllegalArgumentException("copies must be positive: " + copies);
+            }
+            boolean[] removed = new boolean[1];
+            update(this, old -> {
+                if (isReferenceOnly() || old < copies) {
+                    return old;
+                }
+                totalCopies[row] -= copies;
+                removed[0] = true;
+                return old - copies;
+            });
+            return removed[0];
+        }
+
+        @Override
+        public int addAvailabilityListener(AvailabilityListener listener) {
+            // No-op change under the row lock, so registration is ordered with updates
+            return update(this, old -> {
+                listeners.add(listener);
+                return old;
+            });
+        }
+
+        @Override
+        public int removeAvailabilityListener(AvailabilityListener listener) {
+            return update(this, old -> {
+                listeners.remove(listener);
+                return old;
+            });
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Available-copy counter for one title, updated by compare-and-set.
+ *
+ * The value sits between two blocks of unused longs, so it has a cache line to
+ * itself: threads hammering one bestseller don't slow down the titles whose
+ * counters happen to be allocated next to it, and vice versa. The layout relies
+ * on superclass fields being placed before subclass fields, which every HotSpot
+ * layout does. The padding costs about 130 bytes per title; catalogs too large
+ * for that belong in a ColumnarCatalog, whose views don't allocate a counter.
+ */
+final class CopyCounter extends CopyCounterValue {
+    long q0, q1, q2, q3, q4, q5, q6, q7; // keeps the next object off the value's line
+
+    CopyCounter(int initial) {
+        super(initial);
+    }
+
+    int get() {
+        return value;
+    }
+
+    /**
+     * Takes one copy if any are left.
+     *
+     * @return The count before the change, or -1 if it was already 0
+     */
+    int tryDecrement() {
+        int current = value;
+        while (current > 0) {
+            int witness = (int) VALUE.compareAndExchange(this, current, current - 1);
+            if (witness == current) {
+                return current;
+            }
+            current = witness;
+        }
+        return -1;
+    }
+
+    /**
+     * Puts one copy back if the count is below the ceiling.
+     *
+     * @return The count before the change, or -1 if it was already at the ceiling
+     */
+    int tryIncrement(int ceiling) {
+        int current = value;
+        while (current < ceiling) {
+            int witness = (int) VALUE.compareAndExchange(this, current, current + 1);
+            if (witness == current) {
+                return current;
+            }
+            current = witness;
+        }
+        return -1;
+    }
+
+    /**
+     * Takes several copies if at least that many are left.
+     *
+     * @return The count before the change, or -1 if fewer were left
+     */
+    int tryRemove(int copies) {
+        int current = value;
+        while (current >= copies) {
+            int witness = (int) VALUE.compareAndExchange(this, current, current - copies);
+            if (witness == current) {
+                return current;
+            }
+            current = witness;
+        }
+        return -1;
+    }
+
+    /** Adds copies unconditionally and returns the count before. */
+    int getAndAdd(int copies) {
+        return (int) VALUE.getAndAdd(this, copies);
+    }
+
+    /** Sets the count and returns the count before. */
+    int getAndSet(int copies) {
+        return (int) VALUE.getAndSet(this, copies);
+    }
+}
+
+/** Padding before the counter's value. */
+abstract class CopyCounterPad {
+    long p0, p1, p2, p3, p4, p5, p6, p7;
+}
+
+/** The counter's value, between the two paddings. */
+abstract class CopyCounterValue extends CopyCounterPad {
+    static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(CopyCounterValue.class, "value", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    volatile int value;
+
+    CopyCounterValue(int initial) {
+        this.value = initial;
+    }
+}
@@ -0,0 +1,279 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * The physical copies of one title, numbered from 1, as two bits per copy: owned
+ * (the copy belongs to this title's holdings) and shelved (it is on the shelf
+ * rather than lent out or set aside).
+ *
+ * Bits are kept in 64-copy words and changed by compare-and-set, so taking the
+ * lowest shelved copy is one numberOfTrailingZeros per word and never waits. The
+ * words live in chunks of 1, 2, 4, 8, ... words; growing adds a chunk and never
+ * moves an existing word, so a compare-and-set can't be lost to a resize. A title
+ * with thousands of copies costs well under a byte per copy.
+ *
+ * take, put and take(copy) are lock-free. Adding, withdrawing and re-shelving
+ * copies, and putAny, hold this object's monitor: they are rare, and holding it
+ * keeps putAny from putting back a copy while it is being withdrawn.
+ */
+final class CopySet {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // chunks[k] holds 2^k words as (owned, shelved) pairs; chunks are only ever appended
+    private volatile long[][] chunks = new long[0][];
+    private int owned; // guarded by this
+
+    /**
+     * @param copies Number of copies, numbered 1 to copies
+     * @param shelved Whether they start on the shelf
+     */
+    CopySet(int copies, boolean shelved) {
+        add(copies, shelved);
+    }
+
+    /**
+     * Takes the lowest-numbered copy off the shelf.
+     *
+     * @return The copy number, or -1 if none is shelved
+     */
+    int take() {
+        int first = 0; // copy index of the chunk's first bit
+        for (long[] chunk : chunks) {
+            for (int i = 1; i < chunk.length; i += 2) {
+                long bits = (long) WORDS.getVolatile(chunk, i);
+                while (bits != 0) {
+                    long bit = Long.lowestOneBit(bits);
+                    long witness = (long) WORDS.compareAndExchange(chunk, i, bits, bits & ~bit);
+                    if (witness == bits) {
+                        return first + (i >> 1) * 64 + Long.numberOfTrailingZeros(bit) + 1;
+                    }
+                    bits = witness;
+                }
+            }
+            first += (chunk.length >> 1) * 64;
+        }
+        return -1;
+    }
+
+    /**
+     * Takes a given copy off the shelf.
+     *
+     * @return true if it was on the shelf
+     */
+    boolean take(int copy) {
+        return change(copy, false);
+    }
+
+    /**
+     * Puts a given copy back on the shelf.
+     *
+     * @return true if it is owned and was not already on the shelf
+     */
+    boolean put(int copy) {
+        return change(copy, true);
+    }
+
+    /**
+     * Puts back the lowest-numbered owned copy that is off the shelf, for returns
+     * that don't say which copy came back.
+     *
+     * @return The copy number, or -1 if every owned copy is on the shelf
+     */
+    synchronized int putAny() {
+        int first = 0;
+        for (long[] chunk : chunks) {
+            for (int i = 0; i < chunk.length; i += 2) {
+                long out;
+                while ((out = chunk[i] & ~(long) WORDS.getVolatile(chunk, i + 1)) != 0) {
+                    long bit = Long.lowestOneBit(out);
+                    if (((long) WORDS.getAndBitwiseOr(chunk, i + 1, bit) & bit) == 0) {
+                        return first + (i >> 1) * 64 + Long.numberOfTrailingZeros(bit) + 1;
+                    }
+                }
+            }
+            first += (chunk.length >> 1) * 64;
+        }
+        return -1;
+    }
+
+    boolean isShelved(int copy) {
+        long[] chunk = chunkOf(copy);
+        return chunk != null && ((long) WORDS.getVolatile(chunk, pairOf(copy) + 1) & bitOf(copy)) != 0;
+    }
+
+    boolean isOwned(int copy) {
+        long[] chunk = chunkOf(copy);
+        return chunk != null && ((long) WORDS.getVolatile(chunk, pairOf(copy)) & bitOf(copy)) != 0;
+    }
+
+    /**
+     * Adds copies under the lowest numbers not already owned.
+     */
+    synchronized void add(int copies, boolean shelved) {
+        for (int copy = 1; copies > 0; copy++) {
+            if (isOwned(copy)) {
+                continue;
+            }
+            ensureCapacity(copy);
+            long[] chunk = chunkOf(copy);
+            int i = pairOf(copy);
+            long bit = bitOf(copy);
+            WORDS.setVolatile(chunk, i, chunk[i] | bit);
+            if (shelved) {
+                WORDS.getAndBitwiseOr(chunk, i + 1, bit);
+            }
+            owned++;
+            copies--;
+        }
+    }
+
+    /**
+     * Removes shelved copies from the holdings, lowest numbers first. The caller
+     * has already reserved them from the title's available count.
+     *
+     * @return Number of copies withdrawn, fewer than asked only if the shelf ran out
+     */
+    synchronized int withdraw(int copies) {
+        int withdrawn = 0;
+        while (withdrawn < copies) {
+            int copy = take();
+            if (copy < 0) {
+                break;
+            }
+            long[] chunk = chunkOf(copy);
+            int i = pairOf(copy);
+            WORDS.setVolatile(chunk, i, chunk[i] & ~bitOf(copy));
+            owned--;
+            withdrawn++;
+        }
+        return withdrawn;
+    }
+
+    /**
+     * Shelves the lowest-numbered owned copies and takes the rest off the shelf,
+     * for when an available count is set outright.
+     *
+     * @param shelved Number of copies to leave on the shelf
+     */
+    synchronized void shelveFirst(int shelved) {
+        for (long[] chunk : chunks) {
+            for (int i = 0; i < chunk.length; i += 2) {
+                long own = chunk[i];
+                long keep = 0;
+                while (own != 0 && shelved > 0) {
+                    long bit = Long.lowestOneBit(own);
+                    keep |= bit;
+                    own &= ~bit;
+                    shelved--;
+                }
+                WORDS.setVolatile(chunk, i + 1, keep);
+            }
+        }
+    }
+
+    synchronized int getOwnedCount() {
+        return owned;
+    }
+
+    /**
+     * Returns the copy map for saving: an (owned, shelved) pair of words for
+     * copies 1-64, then 65-128, and so on, as load reads it back.
+     */
+    synchronized long[] toWords() {
+        long[][] current = chunks;
+        long[] words = new long[2 * ((1 << current.length) - 1)];
+        int at = 0;
+        for (long[] chunk : current) {
+            for (int i = 0; i < chunk.length; i++) {
+                words[at++] = (long) WORDS.getVolatile(chunk, i);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Marks a copy as shelved in a map from toWords.
+     */
+    static void markShelved(long[] words, int copy) {
+        int pair = 2 * ((copy - 1) >>> 6);
+        if (copy >= 1 && pair < words.length) {
+            words[pair + 1] |= bitOf(copy);
+        }
+    }
+
+    /**
+     * Replaces every copy with those in a map from toWords.
+     *
+     * @throws IllegalArgumentException if the map is not a whole number of chunks
+     */
+    synchronized void load(long[] words) {
+        long[][] loaded = new long[0][];
+        int at = 0;
+        while (at < words.length) {
+            int length = 2 << loaded.length;
+            if (at + length > words.length) {
+                throw new IllegalArgumentException("copy map of " + words.length + " words is not whole chunks");
+            }
+            loaded = Arrays.copyOf(loaded, loaded.length + 1);
+            loaded[loaded.length - 1] = Arrays.copyOfRange(words, at, at + length);
+            at += length;
+        }
+        owned = 0;
+        for (int i = 0; i < words.length; i += 2) {
+            owned += Long.bitCount(words[i]);
+        }
+        chunks = loaded;
+    }
+
+    private boolean change(int copy, boolean shelve) {
+        long[] chunk = chunkOf(copy);
+        if (chunk == null) {
+            return false;
+        }
+        int i = pairOf(copy);
+        long bit = bitOf(copy);
+        if (((long) WORDS.getVolatile(chunk, i) & bit) == 0) {
+            return false; // not one of ours
+        }
+        long before = shelve
+                ? (long) WORDS.getAndBitwiseOr(chunk, i + 1, bit)
+                : (long) WORDS.getAndBitwiseAnd(chunk, i + 1, ~bit);
+        return ((before & bit) != 0) != shelve;
+    }
+
+    private void ensureCapacity(int copy) {
+        int word = (copy - 1) >>> 6;
+        long[][] current = chunks;
+        if (word + 1 < (1 << current.length)) {
+            return;
+        }
+        long[][] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = new long[2 << current.length];
+        chunks = grown;
+    }
+
+    /** Returns the chunk holding a copy's words, or null if the copy is out of range. */
+    private long[] chunkOf(int copy) {
+        if (copy < 1) {
+            return null;
+        }
+        int k = chunkIndex((copy - 1) >>> 6);
+        long[][] current = chunks;
+        return (k < current.length) ? current[k] : null;
+    }
+
+    /** Index of a copy's owned word within its chunk; the shelved word follows it. */
+    private static int pairOf(int copy) {
+        int word = (copy - 1) >>> 6;
+        return 2 * (word + 1 - (1 << chunkIndex(word)));
+    }
+
+    private static long bitOf(int copy) {
+        return 1L << ((copy - 1) & 63);
+    }
+
+    private static int chunkIndex(int word) {
+        return 31 - Integer.numberOfLeadingZeros(word + 1);
+    }
+}
@@ -0,0 +1,82 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Open loans bucketed by due date, in date order.
+ * Finding the loans due on a given day touches only that day's bucket, and
+ * finding everything overdue touches only the buckets before today.
+ * Empty day buckets are kept; there is at most one per calendar day.
+ */
+public class DueDateIndex {
+    private final ConcurrentSkipListMap<LocalDate, Set<LoanKey>> buckets = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds a loan under its due date.
+     *
+     * @param key The loan
+     * @param dueDate Its due date
+     */
+    public void add(LoanKey key, LocalDate dueDate) {
+        buckets.computeIfAbsent(dueDate, d -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /**
+     * Removes a loan from its due-date bucket.
+     *
+     * @param key The loan
+     * @param dueDate The due date it was added under
+     */
+    public void remove(LoanKey key, LocalDate dueDate) {
+        Set<LoanKey> bucket = buckets.get(dueDate);
+        if (bucket != null) {
+            bucket.remove(key);
+        }
+    }
+
+    /**
+     * Moves a loan to a new due date (renewal).
+     *
+     * @param key The loan
+     * @param oldDueDate The current due date
+     * @param newDueDate The new due date
+     */
+    public void move(LoanKey key, LocalDate oldDueDate, LocalDate newDueDate) {
+        if (oldDueDate != null && oldDueDate.equals(newDueDate)) {
+            return;
+        }
+        add(key, newDueDate);
+        if (oldDueDate != null) {
+            remove(key, oldDueDate);
+        }
+    }
+
+    /**
+     * Returns the loans due on one day.
+     *
+     * @param day The due date
+     * @return Loans due that day
+     */
+    public List<LoanKey> dueOn(LocalDate day) {
+        Set<LoanKey> bucket = buckets.get(day);
+        return (bucket == null) ? new ArrayList<>() : new ArrayList<>(bucket);
+    }
+
+    /**
+     * Returns the loans due strictly before a day, oldest first.
+     *
+     * @param day The cut-off day (exclusive)
+     * @return Loans due before that day
+     */
+    public List<LoanKey> dueBefore(LocalDate day) {
+        List<LoanKey> result = new ArrayList<>();
+        for (Map.Entry<LocalDate, Set<LoanKey>> bucket : buckets.headMap(day, false).entrySet()) {
+            result.addAll(bucket.getValue());
+        }
+        return result;
+    }
+}
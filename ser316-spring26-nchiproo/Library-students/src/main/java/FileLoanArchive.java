@@ -0,0 +1,73 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Appends closed loans to a text file, one comma-separated record per line:
+ * patronId,isbn,checkoutDate,dueDate,returnDate (unknown dates are left empty).
+ */
+public class FileLoanArchive implements LoanArchive, Closeable {
+    private final Path file;
+    private final BufferedWriter writer;
+
+    /**
+     * Opens (or creates) an archive file for appending.
+     *
+     * @param file Path of the archive file
+     * @throws IOException if the file cannot be opened
+     */
+    public FileLoanArchive(Path file) throws IOException {
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void append(String patronId, String isbn, LocalDate checkoutDate,
+                                    LocalDate dueDate, LocalDate returnDate) {
+        try {
+            writer.write(patronId);
+            writer.write(',');
+            writer.write(isbn);
+            writer.write(',');
+            writeDate(checkoutDate);
+            writer.write(',');
+            writeDate(dueDate);
+            writer.write(',');
+            writeDate(returnDate);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeDate(LocalDate date) throws IOException {
+        if (date != null) {
+            writer.write(date.toString());
+        }
+    }
+
+    /**
+     * Flushes buffered records to the file.
+     *
+     * @throws IOException if the write fails
+     */
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
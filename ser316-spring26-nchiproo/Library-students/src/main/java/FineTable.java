@@ -0,0 +1,146 @@
+/**
+ * Precomputed overdue fines in integer cents for every book type.
+ *
+ * Fines grow with days overdue until they reach the cap, after which every
+ * later day has the same fine. Each type's table therefore only needs entries up
+ * to its saturation day; lookups past the end return the capped value. A cap
+ * too high to reach within MAX_TABLE_DAYS (including an infinite one) stops the
+ * table there, and later days are computed from the rates instead. The cap is
+ * held in int cents, so fines never exceed Integer.MAX_VALUE cents.
+ * Rates follow Checkout.calculateFine: 25 cents/day for days 1-7, 50 cents/day
+ * for days 8-14, 100 cents/day after that, doubled for REFERENCE and TEXTBOOK.
+ */
+public final class FineTable {
+    private static final int TIER1_DAYS = 7;
+    private static final int TIER2_DAYS = 14;
+    private static final int TIER1_CENTS = 25;
+    private static final int TIER2_CENTS = 50;
+    private static final int TIER3_CENTS = 100;
+    /** Most days a table covers, whatever the cap. */
+    static final int MAX_TABLE_DAYS = 4096;
+
+    private final double maxFine;
+    private final int capCents;
+    private final int[][] centsByType; // [BookType ordinal][days overdue]
+    private final int[] defaultCents; // used for a null type (normal rate)
+
+    private FineTable(double maxFine) {
+        this.maxFine = maxFine;
+        // Math.round saturates at Long.MAX_VALUE, which an int cast would turn into -1
+        this.capCents = (int) Math.max(0, Math.min(Integer.MAX_VALUE, Math.round(maxFine * 100)));
+        int[] normal = build(1, capCents);
+        int[] doubled = build(2, capCents);
+        Book.BookType[] types = Book.BookType.values();
+        this.centsByType = new int[types.length][];
+        for (Book.BookType type : types) {
+            centsByType[type.ordinal()] = hasDoubleRate(type) ? doubled : normal;
+        }
+        this.defaultCents = normal;
+    }
+
+    /**
+     * Builds the table for a fine cap.
+     *
+     * @param maxFine Maximum fine per book in dollars (rounded to cents)
+     * @return The table
+     */
+    public static FineTable forCap(double maxFine) {
+        return new FineTable(maxFine);
+    }
+
+    private static boolean hasDoubleRate(Book.BookType type) {
+        return type == Book.BookType.REFERENCE || type == Book.BookType.TEXTBOOK;
+    }
+
+    private static int[] build(int multiplier, int capCents) {
+        // Walk forward one day at a time until the raw fine reaches the cap or the table is full
+        int[] table = new int[16];
+        long raw = 0;
+        int day = 0;
+        while (day < MAX_TABLE_DAYS) {
+            if (day == table.length) {
+                int[] grown = new int[table.length * 2];
+                System.arraycopy(table, 0, grown, 0, table.length);
+                table = grown;
+            }
+            if (day > 0) {
+                int rate = (day <= TIER1_DAYS) ? TIER1_CENTS : (day <= TIER2_DAYS) ? TIER2_CENTS : TIER3_CENTS;
+                raw += (long) rate * multiplier;
+                if (raw >= capCents) {
+                    table[day] = capCents;
+                    break;
+                }
+            }
+            table[day] = (int) raw;
+            day++;
+        }
+        int length = Math.min(day + 1, MAX_TABLE_DAYS);
+        int[] exact = new int[length];
+        System.arraycopy(table, 0, exact, 0, length);
+        return exact;
+    }
+
+    /**
+     * Computes a fine from the rates, for days past a table that stopped short of the cap.
+     */
+    private int computeCents(int days, Book.BookType type) {
+        long raw = (long) TIER1_CENTS * Math.min(days, TIER1_DAYS)
+                + (long) TIER2_CENTS * Math.max(0, Math.min(days, TIER2_DAYS) - TIER1_DAYS)
+                + (long) TIER3_CENTS * Math.max(0, days - TIER2_DAYS);
+        if (hasDoubleRate(type)) {
+            raw *= 2;
+        }
+        return (int) Math.min(raw, capCents);
+    }
+
+    private int lookup(int[] table, int days, Book.BookType type) {
+        if (days < table.length) {
+            return table[days];
+        }
+        int last = table[table.length - 1];
+        return (last == capCents) ? last : computeCents(days, type);
+    }
+
+    public double getMaxFine() {
+        return maxFine;
+    }
+
+    public int getCapCents() {
+        return capCents;
+    }
+
+    /**
+     * Looks up the fine for one overdue book.
+     *
+     * @param days Days overdue (0 or less means no fine)
+     * @param type The book type (null uses the normal rate)
+     * @return Fine in cents
+     */
+    public int fineCents(int days, Book.BookType type) {
+        if (days <= 0) {
+            return 0;
+        }
+        int[] table = (type == null) ? defaultCents : centsByType[type.ordinal()];
+        return lookup(table, days, type);
+    }
+
+    /**
+     * Looks up fines for many overdue books at once. The arrays are parallel:
+     * entry i of the result is the fine for days[i] and types[i].
+     *
+     * @param days Days overdue per book
+     * @param types Book type per book
+     * @param out Receives the fine in cents per book (must be at least days.length long)
+     */
+    public void fineCents(int[] days, Book.BookType[] types, int[] out) {
+        if (types.length < days.length || out.length < days.length) {
+            throw new IllegalArgumentException("days, types and out must have the same length");
+        }
+        for (int i = 0; i < days.length; i++) {
+            Book.BookType type = types[i];
+            int[] table = (type == null) ? defaultCents : centsByType[type.ordinal()];
+            // table[0] is always 0, so days of 0 or less clamp to it
+            out[i] = lookup(table, Math.max(0, days[i]), type);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.time.LocalDate;
+
+/**
+ * A patron's place in the wait list for one title (see Checkout.placeHold).
+ *
+ * Holds are served by priority, then by request time: faculty first, then staff,
+ * students, public patrons and children, the same order as their checkout limits.
+ * A hold is WAITING until a copy is set aside for it, then READY until the patron
+ * checks the copy out, cancels, or the pickup date passes.
+ */
+public final class Hold {
+    /** Days a copy waits on the hold shelf before it passes to the next patron. */
+    public static final int PICKUP_DAYS = 7;
+
+    public enum Status {
+        WAITING,
+        READY
+    }
+
+    private final String patronId;
+    private final String isbn;
+    private final int priority;
+    private final long requestedMillis;
+    private final long sequence; // breaks ties between requests in the same millisecond
+    private volatile Status status = Status.WAITING;
+    private volatile LocalDate pickupBy;
+    private volatile int copy = Book.NO_COPY;
+
+    Hold(String patronId, String isbn, Patron.PatronType type, long requestedMillis, long sequence) {
+        this.patronId = patronId;
+        this.isbn = isbn;
+        this.priority = priorityOf(type);
+        this.requestedMillis = requestedMillis;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns the queue rank of a patron type; lower ranks are served first.
+     *
+     * @param type The patron type
+     * @return 0 for FACULTY up to 4 for CHILD
+     */
+    static int priorityOf(Patron.PatronType type) {
+        if (type == null) {
+            return 5;
+        }
+        switch (type) {
+            case FACULTY:
+                return 0;
+            case STAFF:
+                return 1;
+            case STUDENT:
+                return 2;
+            case PUBLIC:
+                return 3;
+            case CHILD:
+                return 4;
+            default:
+                return 5;
+        }
+    }
+
+    /** Orders holds by priority, then request time, then arrival. */
+    static int compare(Hold a, Hold b) {
+        if (a.priority != b.priority) {
+            return Integer.compare(a.priority, b.priority);
+        }
+        if (a.requestedMillis != b.requestedMillis) {
+            return Long.compare(a.requestedMillis, b.requestedMillis);
+        }
+        return Long.compare(a.sequence, b.sequence);
+    }
+
+    /** Marks a copy as set aside for this hold until the pickup date. */
+    void ready(LocalDate today, int copy) {
+        this.copy = copy;
+        this.pickupBy = today.plusDays(PICKUP_DAYS);
+        this.status = Status.READY;
+    }
+
+    public String getPatronId() {
+        return patronId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public long getRequestedMillis() {
+        return requestedMillis;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the last day the set-aside copy can be picked up.
+     *
+     * @return The pickup date, or null while the hold is waiting
+     */
+    public LocalDate getPickupBy() {
+        return pickupBy;
+    }
+
+    /**
+     * Returns the copy set aside for this hold.
+     *
+     * @return The copy number, or Book.NO_COPY while waiting or if the copy isn't numbered
+     */
+    public int getCopy() {
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "Hold[" + patronId + " on " + isbn + ", " + status
+                + (status == Status.READY ? " until " + pickupBy : "") + "]";
+    }
+}
@@ -0,0 +1,108 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The holds on one title. Waiting holds sit in a red-black tree ordered by
+ * Hold.compare, so placing, cancelling and serving the next hold are all
+ * O(log n) even with thousands of holds; a patron's hold is found by patron ID
+ * in O(1). Not thread-safe: Checkout guards each queue with its ISBN stripe.
+ */
+final class HoldQueue {
+    private final TreeSet<Hold> waiting = new TreeSet<>(Hold::compare);
+    private final Map<String, Hold> byPatron = new HashMap<>(); // waiting and ready holds
+    private int ready;
+
+    Hold get(String patronId) {
+        return byPatron.get(patronId);
+    }
+
+    void add(Hold hold) {
+        waiting.add(hold);
+        byPatron.put(hold.getPatronId(), hold);
+    }
+
+    /**
+     * Adds a hold whose copy has already been set aside.
+     */
+    void addReady(Hold hold, LocalDate today, int copy) {
+        hold.ready(today, copy);
+        byPatron.put(hold.getPatronId(), hold);
+        ready++;
+    }
+
+    /**
+     * Sets a returned copy aside for the first waiting hold.
+     *
+     * @return The hold now ready, or null if nobody is waiting
+     */
+    Hold serveNext(LocalDate today, int copy) {
+        Hold next = waiting.pollFirst();
+        if (next != null) {
+            next.ready(today, copy);
+            ready++;
+        }
+        return next;
+    }
+
+    /**
+     * Removes a patron's hold, waiting or ready.
+     *
+     * @return The removed hold, or null if the patron had none
+     */
+    Hold remove(String patronId) {
+        Hold hold = byPatron.remove(patronId);
+        if (hold == null) {
+            return null;
+        }
+        if (hold.getStatus() == Hold.Status.READY) {
+            ready--;
+        } else {
+            waiting.remove(hold);
+        }
+        return hold;
+    }
+
+    /**
+     * Returns the ready holds whose pickup date is before today.
+     */
+    List<Hold> expired(LocalDate today) {
+        List<Hold> expired = new ArrayList<>();
+        if (ready == 0) {
+            return expired;
+        }
+        for (Hold hold : byPatron.values()) {
+            if (hold.getStatus() == Hold.Status.READY && hold.getPickupBy().isBefore(today)) {
+                expired.add(hold);
+            }
+        }
+        return expired;
+    }
+
+    int waitingCount() {
+        return waiting.size();
+    }
+
+    /** Copy numbers set aside for ready holds. */
+    List<Integer> readyCopies() {
+        List<Integer> copies = new ArrayList<>(ready);
+        for (Hold hold : byPatron.values()) {
+            if (hold.getStatus() == Hold.Status.READY) {
+                copies.add(hold.getCopy());
+            }
+        }
+        return copies;
+    }
+
+    /** Copies set aside on the hold shelf, not counted in the book's available copies. */
+    int readyCount() {
+        return ready;
+    }
+
+    boolean isEmpty() {
+        return byPatron.isEmpty();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Packs ISBN strings into 64-bit keys.
+ *
+ * Any string that passes the documented ISBN format check (10 or 13 digits,
+ * hyphens ignored) gets a key, so hyphenated and plain spellings of the same ISBN
+ * share one key:
+ * - ISBN-13: the 13-digit number itself
+ * - ISBN-10 with a correct check digit (including a trailing X): the number of
+ *   the equivalent 978-prefixed ISBN-13, so both editions of an ISBN match
+ * - ISBN-10 with a wrong check digit: 10^13 plus the 10-digit number, so it
+ *   stays distinct instead of colliding with its corrected neighbour
+ * Anything else maps to INVALID.
+ */
+public final class IsbnKey {
+    /** Returned by parse for strings that are not ISBNs. */
+    public static final long INVALID = -1L;
+
+    private static final long ISBN10_OFFSET = 10_000_000_000_000L;
+    private static final long ISBN13_PREFIX = 978_000_000_000_0L;
+
+    private IsbnKey() {
+    }
+
+    /**
+     * Parses an ISBN into its key without allocating.
+     *
+     * @param isbn The ISBN (may be null)
+     * @return The key, or INVALID
+     */
+    public static long parse(CharSequence isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+        long value = 0;
+        int digits = 0;
+        int sum10 = 0;
+        boolean trailingX = false;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            if (trailingX) {
+                return INVALID;
+            }
+            int d = c - '0';
+            if (d < 0 || d > 9) {
+                if (digits == 9 && (c == 'X' || c == 'x')) {
+                    trailingX = true;
+                    d = 10;
+                } else {
+                    return INVALID;
+                }
+            }
+            if (digits < 10) {
+                sum10 += d * (10 - digits);
+            }
+            if (!trailingX) {
+                value = value * 10 + d;
+            }
+            digits++;
+            if (digits > 13) {
+                return INVALID;
+            }
+        }
+        if (digits == 13 && !trailingX) {
+            return value;
+        }
+        if (digits == 10) {
+            if (sum10 % 11 != 0) {
+                return trailingX ? INVALID : ISBN10_OFFSET + value;
+            }
+            // Drop the ISBN-10 check digit, prefix 978, append the ISBN-13 check digit
+            long body = ISBN13_PREFIX + (trailingX ? value : value / 10) * 10;
+            return body + isbn13CheckDigit(body / 10);
+        }
+        return INVALID;
+    }
+
+    private static int isbn13CheckDigit(long first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int d = (int) (first12 % 10);
+            // Rightmost of the 12 digits has weight 3
+            sum += ((i & 1) == 0) ? 3 * d : d;
+            first12 /= 10;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Returns the canonical ISBN string for a key: 13 digits, or the original 10
+     * digits for an ISBN-10 whose check digit was wrong.
+     *
+     * @param key A key from parse
+     * @return The canonical ISBN
+     * @throws IllegalArgumentException if key is INVALID
+     */
+    public static String toIsbn(long key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("not an ISBN key: " + key);
+        }
+        if (key >= ISBN10_OFFSET) {
+            return pad(key - ISBN10_OFFSET, 10);
+        }
+        return pad(key, 13);
+    }
+
+    private static String pad(long value, int width) {
+        char[] out = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            out[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,329 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Map keyed by ISBN that hashes the packed 64-bit IsbnKey instead of the String.
+ *
+ * Valid ISBNs live in an open-addressing table of primitive longs, so a lookup
+ * parses the string once (no allocation), never boxes, and finds hyphenated and
+ * plain spellings of the same ISBN alike. Keys that are not ISBNs still work and
+ * fall back to an ordinary HashMap. Iteration reports each ISBN in the spelling
+ * it was first stored under.
+ *
+ * Safe for concurrent use: writers take a write lock, lookups are optimistic
+ * and only lock if a write overlapped them. Iterating works on a snapshot.
+ * Null values are not allowed.
+ *
+ * @param <V> Value type
+ */
+public class IsbnMap<V> extends AbstractMap<String, V> {
+
+    /** One generation of the open-addressing table; slots hold key + 1 so 0 means empty. */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final String[] spellings;
+
+        Table(int slots) {
+            keys = new long[slots];
+            values = new Object[slots];
+            spellings = new String[slots];
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private volatile int isbnCount;
+    private final Map<String, V> others = new HashMap<>(); // non-ISBN keys
+
+    public IsbnMap() {
+        this(8);
+    }
+
+    /**
+     * Creates a map with room for the expected number of entries before resizing.
+     *
+     * @param expectedSize Number of entries to size for
+     */
+    public IsbnMap(int expectedSize) {
+        int slots = Integer.highestOneBit(Math.max(4, expectedSize) - 1) << 2; // load factor <= 0.5
+        this.table = new Table(slots);
+    }
+
+    // ---- primitive-key API ----
+
+    /**
+     * Looks up a value by packed ISBN key.
+     *
+     * @param isbnKey Key from IsbnKey.parse
+     * @return The value, or null
+     */
+    public V get(long isbnKey) {
+        if (isbnKey == IsbnKey.INVALID) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        V value = probe(table, isbnKey);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = probe(table, isbnKey);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public boolean containsKey(long isbnKey) {
+        return get(isbnKey) != null;
+    }
+
+    // ---- Map API ----
+
+    @Override
+    public V get(Object key) {
+        if (key instanceof CharSequence) {
+            long isbnKey = IsbnKey.parse((CharSequence) key);
+            if (isbnKey != IsbnKey.INVALID) {
+                return get(isbnKey);
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return others.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IsbnMap does not allow null values");
+        }
+        long isbnKey = IsbnKey.parse(key);
+        long stamp = lock.writeLock();
+        try {
+            if (isbnKey == IsbnKey.INVALID) {
+                return others.put(key, value);
+            }
+            return putIsbn(isbnKey, key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        long isbnKey = (key instanceof CharSequence) ? IsbnKey.parse((CharSequence) key) : IsbnKey.INVALID;
+        long stamp = lock.writeLock();
+        try {
+            if (isbnKey == IsbnKey.INVALID) {
+                return others.remove(key);
+            }
+            return removeIsbn(isbnKey);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return isbnCount + others.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(table.keys.length);
+            isbnCount = 0;
+            others.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Entry<String, V>> entrySet() {
+        List<Entry<String, V>> snapshot = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            for (int i = 0; i < t.keys.length; i++) {
+                if (t.keys[i] != 0) {
+                    snapshot.add(new SimpleImmutableEntry<>(t.spellings[i], (V) t.values[i]));
+                }
+            }
+            for (Entry<String, V> e : others.entrySet()) {
+                snapshot.add(new SimpleImmutableEntry<>(e));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                Iterator<Entry<String, V>> it = snapshot.iterator();
+                return new Iterator<Entry<String, V>>() {
+                    private Entry<String, V> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        last = it.next();
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        IsbnMap.this.remove(last.getKey());
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+        };
+    }
+
+    // ---- table internals; callers hold the lock (or validate an optimistic read) ----
+
+    @SuppressWarnings("unchecked")
+    private V probe(Table t, long isbnKey) {
+        long stored = isbnKey + 1;
+        int mask = t.keys.length - 1;
+        int slot = hash(isbnKey) & mask;
+        // Bounded so a torn optimistic read can never spin forever
+        for (int n = 0; n < t.keys.length; n++) {
+            long k = t.keys[slot];
+            if (k == 0) {
+                return null;
+            }
+            if (k == stored) {
+                return (V) t.values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V putIsbn(long isbnKey, String spelling, V value) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int slot = hash(isbnKey) & mask;
+        while (t.keys[slot] != 0) {
+            if (t.keys[slot] == isbnKey + 1) {
+                V old = (V) t.values[slot];
+                t.values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((isbnCount + 1) * 2 > t.keys.length) {
+            t = resize(t.keys.length * 2);
+            mask = t.keys.length - 1;
+            slot = hash(isbnKey) & mask;
+            while (t.keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        t.keys[slot] = isbnKey + 1;
+        t.values[slot] = value;
+        t.spellings[slot] = spelling;
+        isbnCount++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeIsbn(long isbnKey) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int i = hash(isbnKey) & mask;
+        while (t.keys[i] != isbnKey + 1) {
+            if (t.keys[i] == 0) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        V old = (V) t.values[i];
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = t.keys[j];
+            if (k == 0) {
+                break;
+            }
+            int ideal = hash(k - 1) & mask;
+            boolean canMove = (i <= j) ? (ideal <= i || ideal > j) : (ideal <= i && ideal > j);
+            if (canMove) {
+                t.keys[i] = t.keys[j];
+                t.values[i] = t.values[j];
+                t.spellings[i] = t.spellings[j];
+                i = j;
+            }
+        }
+        t.keys[i] = 0;
+        t.values[i] = null;
+        t.spellings[i] = null;
+        isbnCount--;
+        return old;
+    }
+
+    private Table resize(int slots) {
+        Table old = table;
+        Table t = new Table(slots);
+        int mask = slots - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            long k = old.keys[i];
+            if (k != 0) {
+                int slot = hash(k - 1) & mask;
+                while (t.keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                t.keys[slot] = k;
+                t.values[slot] = old.values[i];
+                t.spellings[slot] = old.spellings[i];
+            }
+        }
+        table = t;
+        return t;
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Single-pass ISBN validation that allocates nothing per call.
+ *
+ * Format rules are the ones documented on Checkout.isValidISBN: hyphens are
+ * ignored, every other character must be a digit, and there must be 10 or 13
+ * digits. Checksum validation additionally verifies the ISBN-10 (mod 11) or
+ * ISBN-13 (mod 10) check digit; in that mode an ISBN-10 may end in 'X' (value 10).
+ */
+public final class IsbnValidator {
+    /** Bytes mapped per window when validating a file. */
+    private static final int MAP_WINDOW = 64 * 1024 * 1024;
+
+    private IsbnValidator() {
+    }
+
+    /**
+     * Checks ISBN format only (digits and hyphens, 10 or 13 digits).
+     *
+     * @param isbn The ISBN to check
+     * @return true if the format is valid
+     */
+    public static boolean isValidFormat(CharSequence isbn) {
+        return isbn != null && isValid(isbn, 0, isbn.length(), false);
+    }
+
+    /**
+     * Checks ISBN format and check digit.
+     *
+     * @param isbn The ISBN to check
+     * @return true if the format and check digit are valid
+     */
+    public static boolean isValid(CharSequence isbn) {
+        return isbn != null && isValid(isbn, 0, isbn.length(), true);
+    }
+
+    /**
+     * Validates the characters in [start, end) of a sequence.
+     *
+     * @param s The sequence holding the ISBN
+     * @param start Index of the first character
+     * @param end Index after the last character
+     * @param verifyChecksum true to also verify the check digit
+     * @return true if valid
+     */
+    public static boolean isValid(CharSequence s, int start, int end, boolean verifyChecksum) {
+        int digits = 0;
+        int sum10 = 0;
+        int sum13 = 0;
+        boolean trailingX = false;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            if (trailingX) {
+                return false; // 'X' must be the last character
+            }
+            int d = c - '0';
+            if (d < 0 || d > 9) {
+                if (verifyChecksum && digits == 9 && (c == 'X' || c == 'x')) {
+                    trailingX = true;
+                    d = 10;
+                } else {
+                    return false;
+                }
+            }
+            if (digits < 10) {
+                sum10 += d * (10 - digits);
+            }
+            sum13 += ((digits & 1) == 0) ? d : 3 * d;
+            digits++;
+        }
+        return accept(digits, sum10, sum13, trailingX, verifyChecksum);
+    }
+
+    /**
+     * Validates the bytes in [start, end) of a buffer as ASCII, using absolute
+     * reads so the buffer's position is untouched.
+     *
+     * @param buf The buffer holding the ISBN
+     * @param start Index of the first byte
+     * @param end Index after the last byte
+     * @param verifyChecksum true to also verify the check digit
+     * @return true if valid
+     */
+    public static boolean isValid(ByteBuffer buf, int start, int end, boolean verifyChecksum) {
+        int digits = 0;
+        int sum10 = 0;
+        int sum13 = 0;
+        boolean trailingX = false;
+        for (int i = start; i < end; i++) {
+            byte c = buf.get(i);
+            if (c == '-') {
+                continue;
+            }
+            if (trailingX) {
+                return false;
+            }
+            int d = c - '0';
+            if (d < 0 || d > 9) {
+                if (verifyChecksum && digits == 9 && (c == 'X' || c == 'x')) {
+                    trailingX = true;
+                    d = 10;
+                } else {
+                    return false;
+                }
+            }
+            if (digits < 10) {
+                sum10 += d * (10 - digits);
+            }
+            sum13 += ((digits & 1) == 0) ? d : 3 * d;
+            digits++;
+        }
+        return accept(digits, sum10, sum13, trailingX, verifyChecksum);
+    }
+
+    private static boolean accept(int digits, int sum10, int sum13, boolean trailingX, boolean verifyChecksum) {
+        if (digits == 10) {
+            return !verifyChecksum || sum10 % 11 == 0;
+        }
+        if (digits == 13) {
+            return !trailingX && (!verifyChecksum || sum13 % 10 == 0);
+        }
+        return false;
+    }
+
+    /**
+     * Validates many ISBNs at once.
+     *
+     * @param isbns The ISBNs to check (null entries are invalid)
+     * @param verifyChecksum true to also verify check digits
+     * @return Bit i is set if isbns[i] is valid
+     */
+    public static BitSet validateAll(CharSequence[] isbns, boolean verifyChecksum) {
+        BitSet result = new BitSet(isbns.length);
+        for (int i = 0; i < isbns.length; i++) {
+            CharSequence isbn = isbns[i];
+            if (isbn != null && isValid(isbn, 0, isbn.length(), verifyChecksum)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Validates a file holding one ISBN per line (ASCII, LF or CRLF line ends).
+     * The file is memory-mapped in windows, so it does not need to fit on the heap.
+     *
+     * @param file The file to read
+     * @param verifyChecksum true to also verify check digits
+     * @return Bit i is set if line i (0-based) is valid
+     * @throws IOException if the file cannot be read
+     */
+    public static BitSet validateFile(Path file, boolean verifyChecksum) throws IOException {
+        BitSet result = new BitSet();
+        int line = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(MAP_WINDOW, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == size;
+
+                // Stop at the last newline so no line straddles two windows
+                int limit = length;
+                if (!lastWindow) {
+                    while (limit > 0 && window.get(limit - 1) != '\n') {
+                        limit--;
+                    }
+                    if (limit == 0) {
+                        limit = length; // a single over-long line; it cannot be a valid ISBN
+                    }
+                }
+
+                int lineStart = 0;
+                for (int i = 0; i <= limit; i++) {
+                    boolean atEnd = (i == limit);
+                    if (!atEnd && window.get(i) != '\n') {
+                        continue;
+                    }
+                    if (atEnd && lineStart == limit) {
+                        break; // nothing after the final newline
+                    }
+                    int lineEnd = i;
+                    if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+                        lineEnd--;
+                    }
+                    if (isValid(window, lineStart, lineEnd, verifyChecksum)) {
+                        result.set(line);
+                    }
+                    line++;
+                    lineStart = i + 1;
+                }
+                position += limit;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+import java.time.LocalDate;
+
+/**
+ * Destination for closed loans once they leave the open-loan index.
+ * Implementations may keep records anywhere (file, database, ...), which lets
+ * the closed-loan history live outside the heap.
+ */
+public interface LoanArchive {
+
+    /**
+     * Records a loan that has just been returned.
+     *
+     * @param patronId The patron who held the book
+     * @param isbn The ISBN of the returned book
+     * @param checkoutDate Date the loan started (may be null if unknown)
+     * @param dueDate Due date at the time of return
+     * @param returnDate Date the book came back
+     */
+    void append(String patronId, String isbn, LocalDate checkoutDate, LocalDate dueDate, LocalDate returnDate);
+}
@@ -0,0 +1,133 @@
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Checkout's in-memory loan history, indexed by patron and by ISBN.
+ *
+ * Every loan is appended to the full history and to its patron's and title's
+ * lists, in the order the loans were made. Each list is an append-only array:
+ * an append publishes the element before the new size, so readers never lock,
+ * and an iterator or page reads the array in place instead of copying the
+ * result. A patron's or title's history is therefore found in O(1) and streamed
+ * in O(1) memory however many years it spans. Loans are shared with the open-loan
+ * index, so a return shows up in the history without another write.
+ */
+final class LoanHistory extends AbstractCollection<Checkout.Transaction> {
+    private final LoanList all = new LoanList();
+    private final Map<String, LoanList> byPatron = new ConcurrentHashMap<>(); // PatronID -> loans
+    private final Map<String, LoanList> byIsbn = new IsbnMap<>(); // ISBN -> loans
+
+    @Override
+    public boolean add(Checkout.Transaction t) {
+        all.add(t);
+        byPatron.computeIfAbsent(t.getPatronId(), id -> new LoanList()).add(t);
+        String isbn = t.getIsbn();
+        LoanList title = byIsbn.get(isbn);
+        if (title == null) {
+            synchronized (byIsbn) { // IsbnMap has no atomic computeIfAbsent
+                title = byIsbn.get(isbn);
+                if (title == null) {
+                    title = new LoanList();
+                    byIsbn.put(isbn, title);
+                }
+            }
+        }
+        title.add(t);
+        return true;
+    }
+
+    /** Streams every loan, oldest first. */
+    @Override
+    public Iterator<Checkout.Transaction> iterator() {
+        return all.iterator(0);
+    }
+
+    @Override
+    public int size() {
+        return all.size;
+    }
+
+    /**
+     * Returns a patron's loans, or an empty list if the patron has none.
+     */
+    LoanList forPatron(String patronId) {
+        LoanList loans = (patronId == null) ? null : byPatron.get(patronId);
+        return (loans == null) ? LoanList.EMPTY : loans;
+    }
+
+    /**
+     * Returns a title's loans under any spelling of its ISBN, or an empty list.
+     */
+    LoanList forIsbn(String isbn) {
+        LoanList loans = (isbn == null) ? null : byIsbn.get(isbn);
+        return (loans == null) ? LoanList.EMPTY : loans;
+    }
+
+    /**
+     * Loans in the order they were made. Appends are serialized; reads are not
+     * locked and see every loan appended before they started.
+     */
+    static final class LoanList {
+        static final LoanList EMPTY = new LoanList();
+
+        private Checkout.Transaction[] loans = new Checkout.Transaction[4];
+        private volatile int size;
+
+        synchronized void add(Checkout.Transaction t) {
+            if (size == loans.length) {
+                loans = Arrays.copyOf(loans, size * 2);
+            }
+            loans[size] = t;
+            size = size + 1; // publishes the element and, after a grow, the new array
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Iterates from a position to the end as it was when the iterator was made.
+         */
+        Iterator<Checkout.Transaction> iterator(int from) {
+            int end = size;
+            Checkout.Transaction[] items = loans; // read after size: holds at least end elements
+            return new Iterator<Checkout.Transaction>() {
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < end;
+                }
+
+                @Override
+                public Checkout.Transaction next() {
+                    if (next >= end) {
+                        throw new NoSuchElementException();
+                    }
+                    return items[next++];
+                }
+            };
+        }
+
+        /**
+         * Copies out one page.
+         *
+         * @param offset Loans to skip
+         * @param limit Most loans to return
+         */
+        List<Checkout.Transaction> page(int offset, int limit) {
+            List<Checkout.Transaction> page = new ArrayList<>();
+            Iterator<Checkout.Transaction> it = iterator(offset);
+            while (page.size() < limit && it.hasNext()) {
+                page.add(it.next());
+            }
+            return page;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Objects;
+
+/**
+ * Identifies one open loan: a patron holding a copy of a title.
+ * A patron can hold at most one copy of each ISBN, so the pair is unique.
+ * ISBNs are compared by IsbnKey, so hyphenated and plain spellings are equal.
+ */
+public final class LoanKey {
+    private final String patronId;
+    private final String isbn;
+    private final long isbnKey;
+
+    /**
+     * Creates a key for the given patron and title.
+     *
+     * @param patronId The patron ID
+     * @param isbn The book ISBN
+     */
+    public LoanKey(String patronId, String isbn) {
+        this.patronId = patronId;
+        this.isbn = isbn;
+        this.isbnKey = IsbnKey.parse(isbn);
+    }
+
+    public String getPatronId() {
+        return patronId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof LoanKey)) return false;
+        LoanKey other = (LoanKey) obj;
+        if (!Objects.equals(patronId, other.patronId)) return false;
+        return (isbnKey != IsbnKey.INVALID) ? isbnKey == other.isbnKey : Objects.equals(isbn, other.isbn);
+    }
+
+    @Override
+    public int hashCode() {
+        int isbnHash = (isbnKey != IsbnKey.INVALID) ? Long.hashCode(isbnKey) : Objects.hashCode(isbn);
+        return 31 * Objects.hashCode(patronId) + isbnHash;
+    }
+
+    @Override
+    public String toString() {
+        return patronId + "/" + isbn;
+    }
+}
@@ -1,15 +1,30 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 
 /**
  * Demo application for the Library Management System.
  * Demonstrates checkout operations and various scenarios.
+ *
+ * Run with "serve [port] [books.csv patrons.csv]" to start a CheckoutServer
+ * instead. Without data files the server is seeded with synthetic titles and
+ * patrons that CheckoutLoadGenerator knows how to address.
  */
 public class Main {
-    public static void main(String[] args) {
+    static final int DEFAULT_PORT = 7070;
+    static final int SEED_TITLES = 10_000;
+    static final int SEED_PATRONS = 10_000;
+    static final long AVAILABILITY_PUBLISH_MILLIS = 100; // staleness bound for AVAILABLE lookups
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "serve".equals(args[0])) {
+            serve(args);
+            return;
+        }
         System.out.println("=== Library Management System Demo ===\n");
 
         // Create checkout system
-        Checkout checkout = new Checkout(); // will not work for checkoutBook since it is not implemented  yet.
+        Checkout checkout = new Checkout();
 
         // Add some books to inventory
         Book book1 = new Book("978-0-1234-5678-9", "Introduction to Java", "John Smith",
@@ -88,4 +103,27 @@ public class Main {
 
         System.out.println("\n=== Demo Complete ===");
     }
+
+    private static void serve(String[] args) throws Exception {
+        int port = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        Checkout checkout;
+        if (args.length > 3) {
+            checkout = new CatalogImporter().load(Paths.get(args[2]), Paths.get(args[3]));
+        } else {
+            checkout = new Checkout();
+            CheckoutLoadGenerator.seed(checkout, SEED_TITLES, SEED_PATRONS);
+        }
+        checkout.startAvailabilityPublisher(AVAILABILITY_PUBLISH_MILLIS);
+        CheckoutServer server = new CheckoutServer(checkout, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // shutting down anyway
+            }
+        }));
+        System.out.println("Serving " + checkout.getInventory().size() + " titles and "
+                + checkout.getPatrons().size() + " patrons on 127.0.0.1:" + server.getPort()
+                + (server.isUsingVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+    }
 }
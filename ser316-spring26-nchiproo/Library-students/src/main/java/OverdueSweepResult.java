@@ -0,0 +1,61 @@
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of one overdue sweep run by Checkout.runOverdueSweep.
+ */
+public final class OverdueSweepResult {
+    private final LocalDate sweepDate;
+    private final long patronsScanned;
+    private final long loansScanned;
+    private final long overdueLoans;
+    private final long finesAccruedCents;
+    private final List<String> suspendedPatronIds;
+
+    OverdueSweepResult(LocalDate sweepDate, long patronsScanned, long loansScanned, long overdueLoans,
+                       long finesAccruedCents, List<String> suspendedPatronIds) {
+        this.sweepDate = sweepDate;
+        this.patronsScanned = patronsScanned;
+        this.loansScanned = loansScanned;
+        this.overdueLoans = overdueLoans;
+        this.finesAccruedCents = finesAccruedCents;
+        this.suspendedPatronIds = Collections.unmodifiableList(suspendedPatronIds);
+    }
+
+    public LocalDate getSweepDate() {
+        return sweepDate;
+    }
+
+    public long getPatronsScanned() {
+        return patronsScanned;
+    }
+
+    public long getLoansScanned() {
+        return loansScanned;
+    }
+
+    public long getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    public long getFinesAccruedCents() {
+        return finesAccruedCents;
+    }
+
+    /**
+     * Returns the patrons this sweep suspended (those holding a loan whose fine reached the cap).
+     *
+     * @return Patron IDs, in no particular order
+     */
+    public List<String> getSuspendedPatronIds() {
+        return suspendedPatronIds;
+    }
+
+    @Override
+    public String toString() {
+        return "OverdueSweep[" + sweepDate + ",patrons=" + patronsScanned + ",loans=" + loansScanned
+                + ",overdue=" + overdueLoans + ",accrued=" + finesAccruedCents + "c,suspended="
+                + suspendedPatronIds.size() + "]";
+    }
+}
@@ -1,21 +1,41 @@
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Represents a library patron (user).
- * Tracks checked out books, fines, and account status.
+ * Tracks checked out books (and, where known, which copy of each), fines, and
+ * account status.
+ * Account fields are safe to read from any thread; fine updates are atomic.
+ * Fines are kept in whole cents so repeated additions never drift.
+ *
+ * The checkout-relevant account state (suspension, overdue count, fine balance,
+ * checkout count against the limit) is also kept packed into one volatile
+ * eligibility word. Every change to those inputs recomputes the word while the
+ * other inputs cannot change, so one read of it gives an answer from a single
+ * moment (see getEligibilityFlags).
  */
 public class Patron {
+    // Eligibility word bits
+    static final int SUSPENDED = 1;
+    static final int OVERDUE_LIMIT = 1 << 1; // 3 or more overdue books
+    static final int FINE_LIMIT = 1 << 2; // $10.00 or more in fines
+    static final int AT_LIMIT = 1 << 3; // checkouts >= getMaxCheckoutLimit()
+    static final int NEAR_LIMIT = 1 << 4; // checkouts >= getMaxCheckoutLimit() - 2
+
+    private static final int MAX_OVERDUE = 3;
+    private static final long MAX_FINE_CENTS = 1000;
+
     private String patronId;
     private String name;
     private String email;
     private PatronType type;
-    private boolean suspended;
-    private double fines;
-    private Map<String, LocalDate> bookMap;
-    private int overdue;
+    private volatile boolean suspended;
+    private volatile long fineCents;
+    private Map<String, LocalDate> bookMap; // ISBN -> due date, keyed by IsbnKey
+    private volatile Map<String, Integer> copyMap; // ISBN -> copy number; made on the first numbered loan
+    private volatile int overdue;
     private LocalDate memberDate;
+    private volatile int eligibility;
 
     public enum PatronType {
         STUDENT,
@@ -39,10 +59,103 @@ public class Patron {
         this.email = email;
         this.type = type;
         this.suspended = false;
-        this.fines = 0.0;
-        this.bookMap = new HashMap<>();
+        this.fineCents = 0;
+        this.bookMap = new LoanMap();
         this.overdue = 0;
         this.memberDate = LocalDate.now();
+        refreshEligibility();
+    }
+
+    /**
+     * The checked-out books map. Changes made through getCheckedOutBooks() as
+     * well as through Patron's methods refresh the eligibility word.
+     */
+    private final class LoanMap extends IsbnMap<LocalDate> {
+        @Override
+        public LocalDate put(String key, LocalDate value) {
+            LocalDate previous = super.put(key, value);
+            if (previous == null) {
+                refreshEligibility();
+            }
+            return previous;
+        }
+
+        @Override
+        public LocalDate remove(Object key) {
+            LocalDate previous = super.remove(key);
+            if (previous != null) {
+                Map<String, Integer> copies = copyMap;
+                if (copies != null) {
+                    copies.remove(key);
+                }
+                refreshEligibility();
+            }
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            Map<String, Integer> copies = copyMap;
+            if (copies != null) {
+                copies.clear();
+            }
+            refreshEligibility();
+        }
+    }
+
+    /**
+     * Recomputes the eligibility word. Writers of the other inputs hold this
+     * monitor, so they cannot change while it is computed.
+     */
+    private synchronized void refreshEligibility() {
+        int flags = 0;
+        if (suspended) {
+            flags |= SUSPENDED;
+        }
+        if (overdue >= MAX_OVERDUE) {
+            flags |= OVERDUE_LIMIT;
+        }
+        if (fineCents >= MAX_FINE_CENTS) {
+            flags |= FINE_LIMIT;
+        }
+        int count = bookMap.size();
+        int limit = getMaxCheckoutLimit();
+        if (count >= limit) {
+            flags |= AT_LIMIT;
+        }
+        if (count >= limit - 2) {
+            flags |= NEAR_LIMIT;
+        }
+        eligibility = flags;
+    }
+
+    /**
+     * Returns the packed eligibility word: an OR of SUSPENDED, OVERDUE_LIMIT,
+     * FINE_LIMIT, AT_LIMIT and NEAR_LIMIT, all true at one moment.
+     *
+     * @return The eligibility bits
+     */
+    int getEligibilityFlags() {
+        return eligibility;
+    }
+
+    /**
+     * Tells whether the patron has reached their checkout limit.
+     *
+     * @return true if no more books can be checked out
+     */
+    public boolean isAtCheckoutLimit() {
+        return (eligibility & AT_LIMIT) != 0;
+    }
+
+    /**
+     * Tells whether the patron is within two books of their checkout limit.
+     *
+     * @return true if near or at the limit
+     */
+    public boolean isNearCheckoutLimit() {
+        return (eligibility & NEAR_LIMIT) != 0;
     }
 
     // Getters
@@ -67,7 +180,11 @@ public class Patron {
     }
 
     public double getFineBalance() {
-        return fines;
+        return fineCents / 100.0;
+    }
+
+    public long getFineCents() {
+        return fineCents;
     }
 
     public Map<String, LocalDate> getCheckedOutBooks() {
@@ -86,6 +203,11 @@ public class Patron {
         return memberDate;
     }
 
+    // Restores the join date when a patron is loaded from a CheckoutSnapshot
+    void setMemberSince(LocalDate memberSince) {
+        this.memberDate = memberSince;
+    }
+
     /**
      * Returns the maximum number of books this patron can check out
      * based on their patron type.
@@ -123,8 +245,9 @@ public class Patron {
         else return 21;
     }
 
-    public void resetFines() {
-        this.fines = 0.0;
+    public synchronized void resetFines() {
+        this.fineCents = 0;
+        refreshEligibility();
     }
 
     public boolean chkSuspended() {
@@ -132,35 +255,49 @@ public class Patron {
     }
 
     // Setters
-    public void setAccountSuspended(boolean suspended) {
+    public synchronized void setAccountSuspended(boolean suspended) {
         this.suspended = suspended;
+        refreshEligibility();
     }
 
-    public void setOverdueCount(int count) {
+    public synchronized void setOverdueCount(int count) {
         this.overdue = count;
+        refreshEligibility();
     }
 
     /**
      * Adds a fine to the patron's balance.
      *
-     * @param amount Amount to add
+     * @param amount Amount to add (rounded to the nearest cent)
      */
     public void addFine(double amount) {
         if (amount > 0) {
-            this.fines += amount;
-        } else {
+            addFineCents(Math.round(amount * 100));
+        }
+    }
+
+    /**
+     * Adds a fine in cents to the patron's balance.
+     *
+     * @param cents Amount to add; zero or negative amounts are ignored
+     */
+    public synchronized void addFineCents(long cents) {
+        if (cents > 0) {
+            this.fineCents += cents;
+            refreshEligibility();
         }
     }
 
     /**
      * Pays off a portion of the fine balance.
      *
-     * @param amount Amount to pay
+     * @param amount Amount to pay (rounded to the nearest cent)
      * @return Remaining balance
      */
-    public double payFine(double amount) {
-        this.fines = Math.max(0, this.fines - amount);
-        return this.fines;
+    public synchronized double payFine(double amount) {
+        this.fineCents = Math.max(0, this.fineCents - Math.round(amount * 100));
+        refreshEligibility();
+        return getFineBalance();
     }
 
     /**
@@ -173,6 +310,47 @@ public class Patron {
         bookMap.put(isbn, dueDate);
     }
 
+    /**
+     * Adds a book to the checked out books list, recording which copy was lent.
+     *
+     * @param isbn Book ISBN
+     * @param dueDate Due date for the book
+     * @param copy Copy number, or Book.NO_COPY if the copy isn't numbered
+     */
+    public void addCheckedOutBook(String isbn, LocalDate dueDate, int copy) {
+        if (copy != Book.NO_COPY) {
+            copyMap().put(isbn, copy);
+        }
+        bookMap.put(isbn, dueDate);
+    }
+
+    /**
+     * Returns which copy of a checked-out book this patron holds.
+     *
+     * @param isbn Book ISBN
+     * @return The copy number, or Book.NO_COPY if the book isn't checked out or its copy isn't known
+     */
+    public int getCheckedOutCopy(String isbn) {
+        Map<String, Integer> copies = copyMap;
+        Integer copy = (copies == null) ? null : copies.get(isbn);
+        return (copy == null) ? Book.NO_COPY : copy;
+    }
+
+    /** Returns the copy map, creating it on the first numbered loan. */
+    private Map<String, Integer> copyMap() {
+        Map<String, Integer> copies = copyMap;
+        if (copies == null) {
+            synchronized (this) {
+                copies = copyMap;
+                if (copies == null) {
+                    copies = new IsbnMap<>();
+                    copyMap = copies;
+                }
+            }
+        }
+        return copies;
+    }
+
     /**
      * Removes a book from the checked out books list.
      *
@@ -216,6 +394,6 @@ public class Patron {
 
     @Override
     public String toString() {
-        return patronId+"-"+name+"("+type+")"+"[Books:"+bookMap.size()+"/"+getMaxCheckoutLimit()+",Fines:$"+ fines +"]";
+        return patronId+"-"+name+"("+type+")"+"[Books:"+bookMap.size()+"/"+getMaxCheckoutLimit()+",Fines:$"+ getFineBalance() +"]";
     }
 }
@@ -0,0 +1,319 @@
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A consortium of branch Checkouts, each owning part of the inventory and the
+ * patrons, and each running on its own thread.
+ *
+ * Every title has a home branch and every patron a branch, chosen by the caller
+ * or by hash. Requests are routed to the branch that owns them and run as tasks
+ * on that branch's thread, so branches never share a lock and never wait on each
+ * other. A loan lives at the patron's branch. When a patron borrows a title homed
+ * elsewhere, one copy is transferred: taken off the home branch's shelf on the
+ * home thread, then shelved and checked out at the patron's branch on that
+ * branch's thread. Once returned, the copy is sent home the same way, unless a
+ * hold at the patron's branch claimed it; arriving copies serve that branch's
+ * waiting holds first (see Checkout.transferIn). Copies in
+ * transit belong to neither branch for a moment, so consortium-wide totals may
+ * briefly read one low, but no copy is ever counted twice.
+ */
+public class ShardedCheckout implements Closeable {
+    private final Checkout[] shards;
+    private final ExecutorService[] executors;
+    private final Map<String, Integer> bookHomes = new IsbnMap<>(); // ISBN -> home shard
+    private final Map<String, Integer> patronHomes = new ConcurrentHashMap<>(); // PatronID -> shard
+    private final AtomicLong submitted = new AtomicLong(); // tasks handed to branch threads
+
+    /**
+     * Creates a consortium of empty branches.
+     *
+     * @param shardCount Number of branches
+     * @throws IllegalArgumentException if shardCount is not positive
+     */
+    public ShardedCheckout(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        shards = new Checkout[shardCount];
+        executors = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Checkout();
+            String name = "checkout-shard-" + i;
+            executors[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns one branch's Checkout, e.g. for reporting. Changes made through it
+     * directly bypass routing.
+     *
+     * @param shard Branch index
+     * @return The branch's Checkout
+     */
+    public Checkout getShard(int shard) {
+        return shards[shard];
+    }
+
+    /**
+     * Returns the branch a new title or patron is assigned to when none is given.
+     *
+     * @param key An ISBN or patron ID
+     * @return Branch index
+     */
+    public int shardFor(String key) {
+        long isbnKey = IsbnKey.parse(key);
+        int h = (isbnKey == IsbnKey.INVALID) ? key.hashCode() : IsbnMap.hash(isbnKey);
+        h ^= (h >>> 16);
+        return Math.floorMod(h, shards.length);
+    }
+
+    /**
+     * Returns the home branch of a title.
+     *
+     * @param isbn The ISBN, in any spelling
+     * @return Branch index, or -1 if the title is unknown
+     */
+    public int getHomeShard(String isbn) {
+        Integer home = (isbn == null) ? null : bookHomes.get(isbn);
+        return (home == null) ? -1 : home;
+    }
+
+    /**
+     * Returns a patron's branch.
+     *
+     * @param patronId The patron ID
+     * @return Branch index, or -1 if the patron is unknown
+     */
+    public int getPatronShard(String patronId) {
+        Integer home = (patronId == null) ? null : patronHomes.get(patronId);
+        return (home == null) ? -1 : home;
+    }
+
+    public void addBook(Book book) {
+        addBook(book, shardFor(book.getIsbn()));
+    }
+
+    /**
+     * Adds a title to a branch, which becomes its home.
+     *
+     * @param book The title and its copies
+     * @param shard Home branch index
+     */
+    public void addBook(Book book, int shard) {
+        shards[shard].addBook(book);
+        bookHomes.put(book.getIsbn(), shard);
+    }
+
+    public void registerPatron(Patron patron) {
+        registerPatron(patron, shardFor(patron.getPatronId()));
+    }
+
+    /**
+     * Registers a patron at a branch, where their loans will live.
+     *
+     * @param patron The patron
+     * @param shard Branch index
+     */
+    public void registerPatron(Patron patron, int shard) {
+        shards[shard].registerPatron(patron);
+        patronHomes.put(patron.getPatronId(), shard);
+    }
+
+    /**
+     * Runs work on a branch's thread.
+     *
+     * @param shard Branch index
+     * @param work The work, given the branch's Checkout
+     * @return The work's result, completed on the branch's thread
+     */
+    public <T> CompletableFuture<T> onShard(int shard, Function<Checkout, T> work) {
+        Checkout checkout = shards[shard];
+        submitted.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> work.apply(checkout), executors[shard]);
+    }
+
+    /**
+     * Checks out a title for a patron, with the codes Checkout.checkoutBook
+     * returns. A title homed at another branch is transferred to the patron's
+     * branch first; if the checkout then fails, the copy is sent back.
+     *
+     * @param isbn The title's ISBN
+     * @param patronId The patron's ID
+     * @return The checkout code
+     */
+    public CompletableFuture<Double> checkoutBook(String isbn, String patronId) {
+        int p = getPatronShard(patronId);
+        if (p < 0) {
+            return CompletableFuture.completedFuture(3.1);
+        }
+        int h = getHomeShard(isbn);
+        if (h == p || h < 0) {
+            return onShard(p, c -> c.checkoutBook((h < 0) ? null : c.getInventory().get(isbn),
+                    c.getPatrons().get(patronId)));
+        }
+        Book title = shards[h].getInventory().get(isbn);
+        return onShard(p, c -> {
+            Patron patron = c.getPatrons().get(patronId);
+            double eligibility = c.validatePatronEligibility(patron);
+            if (eligibility != 0.0) {
+                return eligibility;
+            }
+            if (title.isReferenceOnly()) {
+                return 5.0;
+            }
+            Book local = c.getInventory().get(isbn);
+            if (local != null && (local.isAvailable() || patron.hasBookCheckedOut(isbn))) {
+                return c.checkoutBook(local, patron); // a copy is already here, or this is a renewal
+            }
+            return Double.NaN; // needs a copy from home
+        }).thenCompose(code -> {
+            if (!Double.isNaN(code)) {
+                return CompletableFuture.completedFuture(code);
+            }
+            return onShard(h, c -> c.transferOut(isbn, 1) != null).thenCompose(moved -> {
+                if (!moved) {
+                    return CompletableFuture.completedFuture(2.0);
+                }
+                return onShard(p, c -> {
+                    Book local = c.transferIn(title, 1);
+                    double result = c.checkoutBook(local, c.getPatrons().get(patronId));
+                    if (result >= 2.0) {
+                        sendHome(isbn, p, h);
+                    }
+                    return result;
+                });
+            });
+        });
+    }
+
+    /**
+     * Returns a title at the patron's branch, with the result Checkout.returnBook
+     * gives. A copy homed elsewhere is then sent home, unless a hold at the
+     * patron's branch claimed it.
+     *
+     * @param isbn The title's ISBN
+     * @param patronId The patron's ID
+     * @return The fine charged, or -1.0 if the return was rejected
+     */
+    public CompletableFuture<Double> returnBook(String isbn, String patronId) {
+        int p = getPatronShard(patronId);
+        if (p < 0) {
+            return CompletableFuture.completedFuture(-1.0);
+        }
+        int h = getHomeShard(isbn);
+        return onShard(p, c -> {
+            double fine = c.returnBook(isbn, c.getPatrons().get(patronId));
+            // The copy is on this branch's shelf unless a hold here claimed it
+            Book leaving = (fine >= 0 && h >= 0 && h != p) ? c.transferOut(isbn, 1) : null;
+            if (leaving != null) {
+                onShard(h, home -> home.transferIn(leaving, 1));
+            }
+            return fine;
+        });
+    }
+
+    /**
+     * Moves copies of a title between branches: they leave the source branch's
+     * shelf on its thread, then are shelved at the target on its thread.
+     *
+     * @param isbn The title's ISBN
+     * @param from Source branch index
+     * @param to Target branch index
+     * @param copies Number of copies to move
+     * @return true if moved; false if the source had too few copies on its shelf
+     */
+    public CompletableFuture<Boolean> transferCopies(String isbn, int from, int to, int copies) {
+        return onShard(from, c -> c.transferOut(isbn, copies)).thenCompose(title -> {
+            if (title == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return onShard(to, c -> {
+                c.transferIn(title, copies);
+                return true;
+            });
+        });
+    }
+
+    private void sendHome(String isbn, int from, int home) {
+        transferCopies(isbn, from, home, 1);
+    }
+
+    /**
+     * Sums a title's copies on the shelf across every branch, without waiting on
+     * any branch.
+     *
+     * @param isbn The title's ISBN
+     * @return Available copies consortium-wide
+     */
+    public int getAvailableCopies(String isbn) {
+        int total = 0;
+        for (Checkout shard : shards) {
+            Book book = shard.getInventory().get(isbn);
+            if (book != null) {
+                total += book.getAvailableCopies();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums a title's holdings across every branch, not counting copies in transit.
+     *
+     * @param isbn The title's ISBN
+     * @return Total copies consortium-wide
+     */
+    public int getTotalCopies(String isbn) {
+        int total = 0;
+        for (Checkout shard : shards) {
+            Book book = shard.getInventory().get(isbn);
+            if (book != null) {
+                total += book.getTotalCopies();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Finishes queued work, including transfers in flight, and stops every
+     * branch thread. Calling it again has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (executors[0].isShutdown()) {
+            return;
+        }
+        // Transfers queue follow-up work on other branches: drain until a round starts nothing new
+        long before;
+        do {
+            before = submitted.get();
+            for (int i = 0; i < shards.length; i++) {
+                onShard(i, c -> null).join();
+            }
+        } while (submitted.get() != before + shards.length);
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        try {
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
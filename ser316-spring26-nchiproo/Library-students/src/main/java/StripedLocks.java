@@ -0,0 +1,79 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed pool of locks selected by key hash.
+ * Operations on different keys usually land on different stripes and run in parallel,
+ * while operations on the same key always share one lock.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * Creates a lock pool sized for the current machine (four stripes per core, at least 16).
+     */
+    public StripedLocks() {
+        this(Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /**
+     * Creates a lock pool with at least the given number of stripes.
+     *
+     * @param stripes Minimum number of stripes (rounded up to a power of two)
+     */
+    public StripedLocks(int stripes) {
+        int size = (stripes <= 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the lock guarding the given key.
+     *
+     * @param key The key (patron ID, ISBN, ...); null maps to stripe 0
+     * @return The lock for that key's stripe
+     */
+    public ReentrantLock lockFor(Object key) {
+        int h = (key == null) ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & mask];
+    }
+
+    /**
+     * Returns the lock guarding an int key (row number, shard index, ...) without boxing.
+     *
+     * @param key The key
+     * @return The lock for that key's stripe
+     */
+    public ReentrantLock lockFor(int key) {
+        int h = key * 0x9E3779B9;
+        h ^= (h >>> 16);
+        return locks[h & mask];
+    }
+
+    /**
+     * Locks every stripe, always in the same order so two callers cannot deadlock.
+     * Use sparingly: it stops all work on every key until unlockAll.
+     */
+    public void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    /**
+     * Releases the stripes taken by lockAll.
+     */
+    public void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    public int getStripeCount() {
+        return locks.length;
+    }
+}
@@ -0,0 +1,184 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for published availability views.
+ */
+public class AvailabilityViewTest {
+
+    @Test
+    @DisplayName("A view keeps its counts until the next publish")
+    public void testPublishedViewsAreImmutable() {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 1);
+        checkout.addBook(book);
+        checkout.addBook(new Book("0198526636", "Atlas", "Editor", Book.BookType.REFERENCE, 2));
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+
+        AvailabilityView first = checkout.getAvailabilityView();
+        assertEquals(2, first.size());
+        assertEquals(1, first.getAvailableCopies("9780306406157"));
+        assertEquals(0, first.getAvailableCopies("978-0-19-852663-6"));
+        assertEquals(-1, first.getAvailableCopies("9780000000002"));
+        assertEquals(1, first.countBooksByType(Book.BookType.FICTION, true));
+
+        assertEquals(0.0, checkout.checkoutBook(book, patron), 0.001);
+        assertSame(first, checkout.getAvailabilityView());
+        assertTrue(first.isAvailable("0306406152"));
+
+        AvailabilityView second = checkout.publishAvailability();
+        assertTrue(second.getVersion() > first.getVersion());
+        assertFalse(second.isAvailable("0306406152"));
+        assertEquals(0, second.countBooksByType(Book.BookType.FICTION, true));
+        assertEquals(1, second.countBooksByType(Book.BookType.FICTION, false));
+        assertSame(second, checkout.publishAvailability()); // nothing changed
+
+        checkout.addBook(new Book("9780000000002", "New", "Author", Book.BookType.CHILDREN, 3));
+        AvailabilityView third = checkout.publishAvailability();
+        assertEquals(3, third.getAvailableCopies("9780000000002"));
+        assertEquals(-1, second.getAvailableCopies("9780000000002"));
+    }
+
+    @Test
+    @DisplayName("Views published during circulation agree with their type totals")
+    public void testConsistentUnderLoad() throws Exception {
+        Checkout checkout = new Checkout();
+        CheckoutLoadGenerator.seed(checkout, 200, 50);
+        checkout.getAvailabilityView();
+        checkout.startAvailabilityPublisher(1);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int offset = w;
+            Thread worker = new Thread(() -> {
+                int i = offset;
+                while (running.get()) {
+                    Patron patron = checkout.getPatrons().get("P-" + (i % 50));
+                    Book book = checkout.getInventory().get(CheckoutLoadGenerator.isbn(i % 200));
+                    checkout.checkoutBook(book, patron);
+                    checkout.returnBook(book.getIsbn(), patron);
+                    i += 7;
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        Thread reader = new Thread(() -> {
+            try {
+                long lastVersion = 0;
+                for (int n = 0; n < 2000; n++) {
+                    AvailabilityView view = checkout.getAvailabilityView();
+                    assertTrue(view.getVersion() >= lastVersion);
+                    lastVersion = view.getVersion();
+                    int available = 0;
+                    for (int i = 0; i < 200; i++) {
+                        int copies = view.getAvailableCopies(CheckoutLoadGenerator.isbn(i));
+                        assertTrue(copies >= 0 && copies <= 4);
+                        if (copies > 0 && i % 4 == 0) {
+                            available++;
+                        }
+                    }
+                    assertEquals(available, view.countBooksByType(Book.BookType.FICTION, true));
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        reader.join();
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        checkout.stopAvailabilityPublisher();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        AvailabilityView last = checkout.publishAvailability();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(4, last.getAvailableCopies(CheckoutLoadGenerator.isbn(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("A publish locks only the changed titles and leaves older views intact across chunks")
+    public void testPublishLocksOnlyChangedTitles() throws Exception {
+        Map<String, Book> inventory = new IsbnMap<>();
+        for (int i = 0; i < 3000; i++) {
+            Book book = new Book(CheckoutLoadGenerator.isbn(i), "Title " + i, "Author", Book.BookType.FICTION, 2);
+            inventory.put(book.getIsbn(), book);
+        }
+        StripedLocks locks = new StripedLocks(16);
+        AvailabilityPublisher publisher = new AvailabilityPublisher(inventory, locks);
+        AvailabilityView first = publisher.current();
+        assertEquals(3000, first.size());
+
+        Book early = inventory.get(CheckoutLoadGenerator.isbn(5));
+        Book late = inventory.get(CheckoutLoadGenerator.isbn(2500));
+        int busy = 0;
+        while (locks.lockFor(CheckoutLoadGenerator.isbn(busy)) == locks.lockFor(early.getIsbn())
+                || locks.lockFor(CheckoutLoadGenerator.isbn(busy)) == locks.lockFor(late.getIsbn())) {
+            busy++;
+        }
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        String busyIsbn = CheckoutLoadGenerator.isbn(busy);
+        Thread holder = new Thread(() -> {
+            locks.lockFor(busyIsbn).lock();
+            try {
+                held.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                locks.lockFor(busyIsbn).unlock();
+            }
+        });
+        holder.start();
+        held.await();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        AvailabilityView second;
+        try {
+            assertTrue(early.tryCheckout());
+            assertTrue(late.tryCheckout());
+            publisher.copiesChanged(early);
+            publisher.copiesChanged(late);
+            second = pool.submit(publisher::publish).get(10, TimeUnit.SECONDS);
+        } finally {
+            done.countDown();
+            holder.join();
+            pool.shutdown();
+        }
+
+        assertEquals(1, second.getAvailableCopies(early.getIsbn()));
+        assertEquals(1, second.getAvailableCopies(late.getIsbn()));
+        assertEquals(2, second.getAvailableCopies(CheckoutLoadGenerator.isbn(1500)));
+        assertEquals(2, first.getAvailableCopies(early.getIsbn()), "Older views keep their counts");
+        assertEquals(2, first.getAvailableCopies(late.getIsbn()));
+
+        assertTrue(late.tryCheckout());
+        publisher.copiesChanged(late);
+        AvailabilityView third = publisher.publish();
+        assertEquals(0, third.getAvailableCopies(late.getIsbn()));
+        assertEquals(1, third.getAvailableCopies(early.getIsbn()));
+        assertEquals(2999, third.countBooksByType(Book.BookType.FICTION, true));
+        assertEquals(3000, second.countBooksByType(Book.BookType.FICTION, true));
+        assertEquals(3000, third.countBooksByType(Book.BookType.FICTION, false));
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the streaming catalog importer.
+ */
+public class CatalogImporterTest {
+    private Path books;
+    private Path patrons;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        books = Files.createTempFile("books", ".csv");
+        patrons = Files.createTempFile("patrons", ".csv");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(books);
+        Files.deleteIfExists(patrons);
+    }
+
+    @Test
+    @DisplayName("Valid records load, invalid ones are counted and skipped")
+    public void testRecordValidation() throws IOException {
+        Files.write(books, ("# isbn,title,author,type,copies\n"
+                + "978-0-306-40615-7,\"Commas, \"\"Quotes\"\"\",Author,fiction,3\r\n"
+                + "\n"
+                + "12345,Bad ISBN,Author,FICTION,1\n"
+                + "9780000000002,Unknown Type,Author,COMIC,1\n"
+                + "9780000000019,Bad Copies,Author,TEXTBOOK,many\n"
+                + "9780000000026,Too,Few,FICTION\n"
+                + "0198526636,Atlas,Editor,REFERENCE,1").getBytes(StandardCharsets.UTF_8));
+        Files.write(patrons, ("P-1,Reader,r@example.com,student\n"
+                + ",No Id,x@example.com,STUDENT\n"
+                + "P-2,\"Smith, Dr.\",s@example.com,FACULTY\n").getBytes(StandardCharsets.UTF_8));
+
+        Checkout checkout = new Checkout();
+        CatalogImporter importer = new CatalogImporter(2, false);
+        CatalogImporter.ImportResult bookResult = importer.importBooks(books, checkout);
+        CatalogImporter.ImportResult patronResult = importer.importPatrons(patrons, checkout);
+
+        assertEquals(2, bookResult.getImported());
+        assertEquals(4, bookResult.getRejected());
+        assertEquals("Commas, \"Quotes\"", checkout.getInventory().get("9780306406157").getTitle());
+        assertEquals(3, checkout.getInventory().get("9780306406157").getAvailableCopies());
+        assertTrue(checkout.getInventory().get("0-19-852663-6").isReferenceOnly());
+        assertEquals(2, patronResult.getImported());
+        assertEquals(1, patronResult.getRejected());
+        assertEquals("Smith, Dr.", checkout.getPatrons().get("P-2").getName());
+    }
+
+    @Test
+    @DisplayName("Large files split across chunks load every record")
+    public void testLargeFileAcrossChunks() throws IOException {
+        int count = 60_000; // well over one chunk
+        try (BufferedWriter out = Files.newBufferedWriter(books, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                out.write(String.format("978%010d,Title number %d,Author %d,CHILDREN,2%n", i, i, i % 50));
+            }
+        }
+        Files.write(patrons, "P-1,Reader,r@example.com,STUDENT\n".getBytes(StandardCharsets.UTF_8));
+
+        Checkout checkout = new CatalogImporter(4, false).load(books, patrons);
+
+        assertEquals(count, checkout.getInventory().size());
+        assertEquals(count, checkout.countBooksByType(Book.BookType.CHILDREN, true));
+        assertEquals("Title number 31337", checkout.getInventory().get("9780000031337").getTitle());
+        assertEquals(1, checkout.getPatrons().size());
+    }
+
+    @Test
+    @DisplayName("One ISBN written two ways is counted once, however the workers interleave")
+    public void testDuplicateIsbnCountedOnce() throws IOException {
+        // Each spelling fills about a chunk, so different workers import the two at once
+        int count = 30_000;
+        try (BufferedWriter out = Files.newBufferedWriter(books, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                out.write(String.format("978%010d,Title %d,Author,FICTION,1%n", i, i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.write(String.format("978-%010d,Same Title %d,Author,FICTION,1%n", i, i));
+            }
+        }
+
+        for (int round = 0; round < 3; round++) {
+            Checkout checkout = new Checkout();
+            CatalogImporter.ImportResult result = new CatalogImporter(4, false).importBooks(books, checkout);
+            assertEquals(2 * count, result.getImported());
+            assertEquals(count, checkout.getInventory().size());
+            assertEquals(count, checkout.countBooksByType(Book.BookType.FICTION, false));
+            assertEquals(count, checkout.countBooksByType(Book.BookType.FICTION, true));
+            assertEquals(1, checkout.searchByTitle("title 29999", null, false, 0, 10).size());
+
+            Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+            checkout.registerPatron(patron);
+            checkout.checkoutBook(checkout.getInventory().get("9780000001234"), patron);
+            assertEquals(count - 1, checkout.countBooksByType(Book.BookType.FICTION, true),
+                    "Only one listener counts the title");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for title, author and type search through Checkout's catalog indexes.
+ */
+public class CatalogIndexTest {
+    private Checkout checkout;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+        add("9780000000001", "Harry Potter and the Philosopher's Stone", "J. K. Rowling", Book.BookType.FICTION);
+        add("9780000000002", "Harry Potter and the Chamber of Secrets", "J. K. Rowling", Book.BookType.FICTION);
+        add("9780000000003", "The Potter's Wheel", "Harriet Potts", Book.BookType.NONFICTION);
+        add("9780000000004", "Les Misérables", "Victor Hugo", Book.BookType.FICTION);
+        add("9780000000005", "Pottery for Children", "Harry Green", Book.BookType.CHILDREN);
+    }
+
+    private Book add(String isbn, String title, String author, Book.BookType type) {
+        Book book = new Book(isbn, title, author, type, 1);
+        checkout.addBook(book);
+        return book;
+    }
+
+    private static List<String> isbns(List<Book> books) {
+        List<String> isbns = new ArrayList<>();
+        for (Book book : books) {
+            isbns.add(book.getIsbn());
+        }
+        return isbns;
+    }
+
+    @Test
+    @DisplayName("Every query word must prefix a title word; whole-word matches rank first")
+    public void testTitlePrefixSearch() {
+        assertEquals(List.of("9780000000002", "9780000000001"),
+                isbns(checkout.searchByTitle("harry pot", null, false, 0, 10)));
+        // "potter" is a whole word in three titles and a prefix of "pottery"
+        assertEquals(List.of("9780000000002", "9780000000001", "9780000000003", "9780000000005"),
+                isbns(checkout.searchByTitle("Potter", null, false, 0, 10)));
+        assertEquals(List.of("9780000000004"), isbns(checkout.searchByTitle("miserables", null, false, 0, 10)));
+        assertTrue(checkout.searchByTitle("wizard", null, false, 0, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Author search, type filter and available-only filter")
+    public void testAuthorTypeAndAvailability() {
+        assertEquals(List.of("9780000000005"), isbns(checkout.searchByAuthor("harry", null, false, 0, 10)));
+        assertEquals(List.of("9780000000003"),
+                isbns(checkout.searchByAuthor("har", Book.BookType.NONFICTION, false, 0, 10)));
+        assertEquals(3, checkout.searchByTitle("", Book.BookType.FICTION, false, 0, 10).size());
+
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+        checkout.registerPatron(patron);
+        checkout.checkoutBook(checkout.getInventory().get("9780000000001"), patron);
+        assertEquals(List.of("9780000000002"), isbns(checkout.searchByAuthor("rowling", null, true, 0, 10)));
+    }
+
+    @Test
+    @DisplayName("Pages are cut from one ranked order")
+    public void testPaging() {
+        for (int i = 10; i < 60; i++) {
+            add("97800000000" + i, "Series Volume " + i, "Serial Author", Book.BookType.FICTION);
+        }
+        List<String> all = isbns(checkout.searchByTitle("series", null, false, 0, 100));
+        assertEquals(50, all.size());
+        List<String> paged = new ArrayList<>();
+        for (int page = 0; page < 6; page++) {
+            paged.addAll(isbns(checkout.searchByTitle("series", null, false, page, 9)));
+        }
+        assertEquals(all, paged);
+        assertTrue(checkout.searchByTitle("series", null, false, 7, 9).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> checkout.searchByTitle("series", null, false, -1, 9));
+    }
+
+    @Test
+    @DisplayName("Re-adding an ISBN re-indexes it")
+    public void testReplaceReindexes() {
+        add("9780000000003", "A Different Book", "Someone Else", Book.BookType.REFERENCE);
+        assertTrue(checkout.searchByAuthor("potts", null, false, 0, 10).isEmpty());
+        assertEquals(List.of("9780000000003"),
+                isbns(checkout.searchByTitle("differ", Book.BookType.REFERENCE, false, 0, 10)));
+        assertTrue(checkout.searchByTitle("", Book.BookType.NONFICTION, false, 0, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Columnar inventories are indexed through their views")
+    public void testColumnarInventory() {
+        Checkout columnar = Checkout.withColumnarCatalog(16);
+        columnar.addBook(new Book("978-0-306-40615-7", "Columnar Search", "Author", Book.BookType.FICTION, 1));
+        List<Book> found = columnar.searchByTitle("col sea", null, true, 0, 5);
+        assertEquals(1, found.size());
+        assertEquals(1, found.get(0).getAvailableCopies());
+    }
+
+    @Test
+    @DisplayName("Matches are fetched from the inventory, including keys that are not ISBNs")
+    public void testMatchesComeFromInventory() {
+        add("LOCAL-0001", "Potter Family Papers", "Archive", Book.BookType.REFERENCE);
+        assertEquals(List.of("LOCAL-0001"),
+                isbns(checkout.searchByTitle("papers", Book.BookType.REFERENCE, false, 0, 10)));
+
+        Checkout columnar = Checkout.withColumnarCatalog(16);
+        columnar.addBook(new Book("978-0-306-40615-7", "Columnar Search", "Author", Book.BookType.FICTION, 1));
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+        columnar.registerPatron(patron);
+        columnar.checkoutBook(columnar.getInventory().get("9780306406157"), patron);
+        assertTrue(columnar.searchByTitle("columnar", null, true, 0, 5).isEmpty());
+        assertEquals(0, columnar.searchByTitle("columnar", null, false, 0, 5).get(0).getAvailableCopies());
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Checkout.checkoutBatch.
+ */
+public class CheckoutBatchTest {
+    private Checkout checkout;
+    private Book fiction;
+    private Book reference;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+        fiction = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 1);
+        reference = new Book("978-0-00-000000-2", "Atlas", "Editor", Book.BookType.REFERENCE, 1);
+        checkout.addBook(fiction);
+        checkout.addBook(reference);
+    }
+
+    @Test
+    @DisplayName("Each request gets the code checkoutBook would return")
+    public void testBatchCodesMatchSingleCalls() {
+        Patron first = new Patron("P-1", "First", "f@example.com", Patron.PatronType.STUDENT);
+        Patron second = new Patron("P-2", "Second", "s@example.com", Patron.PatronType.STUDENT);
+        Patron suspended = new Patron("P-3", "Third", "t@example.com", Patron.PatronType.STUDENT);
+        suspended.setAccountSuspended(true);
+
+        List<CheckoutRequest> requests = Arrays.asList(
+                new CheckoutRequest(fiction, first),
+                new CheckoutRequest(fiction, second),
+                new CheckoutRequest(fiction, first),
+                new CheckoutRequest(reference, second),
+                new CheckoutRequest(null, first),
+                new CheckoutRequest(fiction, null),
+                new CheckoutRequest(fiction, suspended));
+        double[] codes = checkout.checkoutBatch(requests);
+
+        assertArrayEquals(new double[] {0.0, 2.0, 0.1, 5.0, 2.1, 3.1, 3.0}, codes, 0.001);
+        assertTrue(first.hasBookCheckedOut(fiction.getIsbn()));
+        assertEquals(0, second.getCheckoutCount());
+        assertEquals(0, fiction.getAvailableCopies());
+        assertEquals(1, checkout.getOpenLoanCount());
+    }
+
+    @Test
+    @DisplayName("Limit and warning codes follow each patron's running count")
+    public void testBatchLimitCodes() {
+        Patron child = new Patron("P-9", "Kid", "k@example.com", Patron.PatronType.CHILD);
+        Book[] books = new Book[4];
+        CheckoutRequest[] requests = new CheckoutRequest[books.length];
+        for (int i = 0; i < books.length; i++) {
+            books[i] = new Book(String.format("978%010d", i + 1), "T" + i, "A", Book.BookType.CHILDREN, 2);
+            checkout.addBook(books[i]);
+            requests[i] = new CheckoutRequest(books[i], child);
+        }
+
+        double[] codes = checkout.checkoutBatch(Arrays.asList(requests));
+
+        // CHILD limit is 3, so the warning starts with the first loan
+        assertArrayEquals(new double[] {1.1, 1.1, 1.1, 3.2}, codes, 0.001);
+        assertEquals(3, child.getCheckoutCount());
+        assertEquals(2, books[3].getAvailableCopies());
+    }
+}
@@ -0,0 +1,213 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Checkout under concurrent load.
+ * Verifies that copies are never over-lent and that the documented
+ * return-code priority still holds for the concurrent checkout path.
+ */
+public class CheckoutConcurrencyTest {
+
+    private Checkout checkout;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+    }
+
+    @Test
+    @DisplayName("Last copy is lent exactly once when many patrons race for it")
+    public void testLastCopyNotOverLent() throws Exception {
+        Book book = new Book("9780123456789", "Hot Title", "Author", Book.BookType.FICTION, 3);
+        checkout.addBook(book);
+
+        int patronCount = 32;
+        List<Callable<Double>> tasks = new ArrayList<>();
+        for (int i = 0; i < patronCount; i++) {
+            Patron p = new Patron("P-" + i, "Patron " + i, "p" + i + "@example.com",
+                    Patron.PatronType.FACULTY);
+            checkout.registerPatron(p);
+            tasks.add(() -> checkout.checkoutBook(book, p));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        int successes = 0;
+        int unavailable = 0;
+        try {
+            for (Future<Double> f : pool.invokeAll(tasks)) {
+                double code = f.get();
+                if (code == 0.0) {
+                    successes++;
+                } else if (code == 2.0) {
+                    unavailable++;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(3, successes, "Exactly totalCopies checkouts should succeed");
+        assertEquals(patronCount - 3, unavailable, "Everyone else should see 2.0");
+        assertEquals(0, book.getAvailableCopies(), "Copies must not go negative or be lost");
+    }
+
+    @Test
+    @DisplayName("Patron eligibility is reported before a null book")
+    public void testPriorityEligibilityBeforeNullBook() {
+        Patron patron = new Patron("P-1", "Suspended", "s@example.com", Patron.PatronType.STUDENT);
+        patron.setAccountSuspended(true);
+        assertEquals(3.0, checkout.checkoutBook(null, patron), 0.01);
+        assertEquals(3.1, checkout.checkoutBook(null, null), 0.01);
+    }
+
+    @Test
+    @DisplayName("Reference-only is reported before unavailability")
+    public void testPriorityReferenceBeforeUnavailable() {
+        Book ref = new Book("9780123456789", "Atlas", "Author", Book.BookType.REFERENCE, 1);
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        assertEquals(5.0, checkout.checkoutBook(ref, patron), 0.01);
+    }
+
+    @Test
+    @DisplayName("Renewal returns 0.1 without changing copies or checkout count")
+    public void testRenewal() {
+        Book book = new Book("9780123456789", "Title", "Author", Book.BookType.FICTION, 2);
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        checkout.addBook(book);
+
+        assertEquals(0.0, checkout.checkoutBook(book, patron), 0.01);
+        assertEquals(0.1, checkout.checkoutBook(book, patron), 0.01);
+        assertEquals(1, book.getAvailableCopies());
+        assertEquals(1, patron.getCheckoutCount());
+    }
+
+    @Test
+    @DisplayName("At-limit patron gets 3.2, near-limit patron gets 1.1")
+    public void testLimitCodes() {
+        Patron child = new Patron("P-1", "Kid", "k@example.com", Patron.PatronType.CHILD);
+        double[] codes = new double[4];
+        for (int i = 0; i < codes.length; i++) {
+            Book b = new Book("978000000000" + i, "Book " + i, "Author", Book.BookType.CHILDREN, 1);
+            checkout.addBook(b);
+            codes[i] = checkout.checkoutBook(b, child);
+        }
+        assertEquals(1.1, codes[0], 0.01);
+        assertEquals(1.1, codes[2], 0.01);
+        assertEquals(3.2, codes[3], 0.01);
+        assertEquals(3, child.getCheckoutCount());
+    }
+
+    @Test
+    @DisplayName("Racing tryCheckout and release keep copies within [0, totalCopies]")
+    public void testCopyCounterStaysInBounds() throws Exception {
+        Book book = new Book("9780123456789", "Hot Title", "Author", Book.BookType.FICTION, 4);
+        int[] low = {Integer.MAX_VALUE};
+        int[] high = {Integer.MIN_VALUE};
+        book.addAvailabilityListener((b, oldCopies, newCopies) -> {
+            synchronized (low) {
+                low[0] = Math.min(low[0], newCopies);
+                high[0] = Math.max(high[0], newCopies);
+            }
+        });
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> {
+                int held = 0;
+                for (int n = 0; n < 10_000; n++) {
+                    if (book.tryCheckout()) {
+                        held++;
+                    }
+                    if (held > 0 && book.release()) {
+                        held--;
+                    }
+                }
+                return held;
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        int stillHeld = 0;
+        try {
+            for (Future<Integer> f : pool.invokeAll(tasks)) {
+                stillHeld += f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(4, book.getAvailableCopies() + stillHeld, "No copy may be lost or invented");
+        assertTrue(low[0] >= 0, "Available copies went negative");
+        assertTrue(high[0] <= 4, "Available copies went above totalCopies");
+        assertFalse(new Book("9780123456780", "T", "A", Book.BookType.FICTION, 1).release(),
+                "A title with every copy on the shelf takes no returns");
+    }
+
+    @Test
+    @DisplayName("A renewal racing a return never becomes a new checkout")
+    public void testRenewRacingReturn() throws Exception {
+        Book book = new Book("9780123456789", "Hot Title", "Author", Book.BookType.FICTION, 1);
+        checkout.addBook(book);
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+        checkout.registerPatron(patron);
+        assertEquals(-1.0, checkout.renewBook(book.getIsbn(), patron), 0.001);
+        assertEquals(1, book.getAvailableCopies());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 200; i++) {
+                assertEquals(0.0, checkout.checkoutBook(book, patron), 0.001);
+                Future<Double> renewal = pool.submit(() -> checkout.renewBook("978-0-12-345678-9", patron));
+                Future<Double> ret = pool.submit(() -> checkout.returnBook(book.getIsbn(), patron));
+                double code = renewal.get();
+                assertEquals(0.0, ret.get(), 0.001);
+                assertTrue(code == 0.1 || code == -1.0, "renewBook returned " + code);
+                assertFalse(patron.hasBookCheckedOut(book.getIsbn()), "The return always wins in the end");
+                assertEquals(1, book.getAvailableCopies());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent adds of one title under two spellings count it once")
+    public void testConcurrentAddBookCountsTitleOnce() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String isbn = (t % 2 == 0) ? "9780306406157" : "978-0-306-40615-7";
+            tasks.add(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    checkout.addBook(new Book(isbn, "Title", "Author", Book.BookType.FICTION, 1));
+                }
+                return null;
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, checkout.getInventory().size());
+        assertEquals(1, checkout.countBooksByType(Book.BookType.FICTION, false));
+        assertEquals(1, checkout.countBooksByType(Book.BookType.FICTION, true));
+        assertEquals(1, checkout.searchByTitle("title", null, false, 0, 10).size());
+
+        Patron patron = new Patron("P-9", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+        checkout.registerPatron(patron);
+        assertEquals(0.0, checkout.checkoutBook(checkout.getInventory().get("9780306406157"), patron), 0.001);
+        assertEquals(0, checkout.countBooksByType(Book.BookType.FICTION, true), "One listener counts the title");
+    }
+}
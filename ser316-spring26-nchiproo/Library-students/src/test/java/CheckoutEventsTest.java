@@ -0,0 +1,199 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Checkout's event stream.
+ */
+public class CheckoutEventsTest {
+
+    /** Collects events, requesting a fixed number at a time. */
+    private static class Collector implements Flow.Subscriber<CirculationEvent> {
+        final List<CirculationEvent> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        final int batch;
+        Flow.Subscription subscription;
+        int outstanding;
+
+        Collector(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            outstanding = batch;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(CirculationEvent event) {
+            events.add(event);
+            if (--outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Circulation changes are published in order with their details")
+    public void testEventsInOrder() throws Exception {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 2);
+        checkout.addBook(book);
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        checkout.registerPatron(patron);
+        checkout.checkoutBook(book, patron); // before anyone subscribes: not published
+
+        Collector collector = new Collector(1);
+        checkout.getEvents().subscribe(collector);
+        checkout.checkoutBook(book, patron);
+        patron.addCheckedOutBook(book.getIsbn(), LocalDate.now().minusDays(3));
+        checkout.runOverdueSweep(LocalDate.now());
+        checkout.returnBook(book.getIsbn(), patron);
+        checkout.getEvents().close();
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+
+        List<CirculationEvent.Type> types = new ArrayList<>();
+        for (int i = 0; i < collector.events.size(); i++) {
+            CirculationEvent event = collector.events.get(i);
+            assertEquals(i + 1, event.getSequence());
+            types.add(event.getType());
+        }
+        assertEquals(List.of(CirculationEvent.Type.RENEWED, CirculationEvent.Type.FINE_ASSESSED,
+                CirculationEvent.Type.AVAILABILITY_CHANGED, CirculationEvent.Type.RETURNED), types);
+        CirculationEvent fine = collector.events.get(1);
+        assertEquals("P-1", fine.getPatronId());
+        assertEquals(75, fine.getAmountCents());
+        assertEquals(1, collector.events.get(2).getOldCopies());
+        assertEquals(2, collector.events.get(2).getNewCopies());
+        assertEquals(0, collector.events.get(3).getAmountCents()); // already charged by the sweep
+    }
+
+    @Test
+    @DisplayName("A slow subscriber receives every event from many threads")
+    public void testBackPressure() throws Exception {
+        Checkout checkout = new Checkout();
+        CheckoutLoadGenerator.seed(checkout, 50, 20);
+        Collector collector = new Collector(2) {
+            @Override
+            public void onNext(CirculationEvent event) {
+                if (event.getSequence() % 50 == 0) {
+                    try {
+                        Thread.sleep(1); // slower than the writers, so the buffers fill
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.onNext(event);
+            }
+        };
+        checkout.getEvents().subscribe(collector);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    Patron patron = checkout.getPatrons().get("P-" + ((i + offset) % 20));
+                    Book book = checkout.getInventory().get(CheckoutLoadGenerator.isbn((i * 7 + offset) % 50));
+                    checkout.checkoutBook(book, patron);
+                    checkout.returnBook(book.getIsbn(), patron);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        checkout.getEvents().close();
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+
+        int checkedOut = 0;
+        int returned = 0;
+        for (int i = 0; i < collector.events.size(); i++) {
+            assertEquals(i + 1, collector.events.get(i).getSequence());
+            CirculationEvent.Type type = collector.events.get(i).getType();
+            checkedOut += (type == CirculationEvent.Type.CHECKED_OUT) ? 1 : 0;
+            returned += (type == CirculationEvent.Type.RETURNED) ? 1 : 0;
+        }
+        assertEquals(checkedOut, returned);
+        assertEquals(checkout.getMetrics().getReturns(), returned);
+        assertTrue(collector.events.size() > CheckoutEvents.QUEUE_CAPACITY + Flow.defaultBufferSize());
+    }
+
+    @Test
+    @DisplayName("Patrons racing for one title see its events in the order the copy moved")
+    public void testTitleEventsOrdered() throws Exception {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 1);
+        checkout.addBook(book);
+        Collector collector = new Collector(64);
+        checkout.getEvents().subscribe(collector);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            Patron patron = new Patron("P-" + t, "Reader", "r@example.com", Patron.PatronType.FACULTY);
+            checkout.registerPatron(patron);
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 300; i++) {
+                    if (checkout.checkoutBook(book, patron) == 0.0) {
+                        checkout.returnBook(book.getIsbn(), patron);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        checkout.getEvents().close();
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+
+        int copies = 1;
+        String borrower = null;
+        for (CirculationEvent event : collector.events) {
+            switch (event.getType()) {
+                case AVAILABILITY_CHANGED:
+                    assertEquals(copies, event.getOldCopies(), "Each change starts where the last one ended");
+                    copies = event.getNewCopies();
+                    break;
+                case CHECKED_OUT:
+                    assertNull(borrower, "The only copy is lent once before it comes back");
+                    assertEquals(0, copies);
+                    borrower = event.getPatronId();
+                    break;
+                case RETURNED:
+                    assertEquals(borrower, event.getPatronId());
+                    assertEquals(1, copies);
+                    borrower = null;
+                    break;
+                default:
+                    fail("unexpected " + event.getType());
+            }
+        }
+        assertEquals(1, copies);
+    }
+}
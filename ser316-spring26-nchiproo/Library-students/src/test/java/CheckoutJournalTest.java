@@ -0,0 +1,207 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for journaling circulation events and replaying them after a restart.
+ */
+public class CheckoutJournalTest {
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("checkout-journal", ".bin");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** A fresh library with the same books and patrons, as a restart would load them. */
+    private static Checkout library(Patron... patrons) {
+        Checkout checkout = new Checkout();
+        checkout.addBook(new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 2));
+        checkout.addBook(new Book("978-0-00-000000-2", "Course Text", "Prof", Book.BookType.TEXTBOOK, 1));
+        for (Patron patron : patrons) {
+            checkout.registerPatron(patron);
+        }
+        return checkout;
+    }
+
+    @Test
+    @DisplayName("Replay restores loans, availability and fines")
+    public void testReplayRestoresState() throws Exception {
+        Patron reader = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        Patron late = new Patron("P-2", "Late", "l@example.com", Patron.PatronType.STUDENT);
+        Checkout before = library(reader, late);
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            before.setJournal(journal);
+            assertEquals(0.0, before.checkoutBook(before.getInventory().get("9780306406157"), reader), 0.01);
+            assertEquals(0.1, before.checkoutBook(before.getInventory().get("9780306406157"), reader), 0.01);
+            assertEquals(0.0, before.checkoutBook(before.getInventory().get("9780000000002"), late), 0.01);
+            // Overdue sweep charges a fine on the textbook
+            late.getCheckedOutBooks().put("9780000000002", LocalDate.now().minusDays(5));
+            before.runOverdueSweep();
+            long position = journal.getPosition();
+            journal.awaitCommit(position);
+        }
+
+        Patron reader2 = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        Patron late2 = new Patron("P-2", "Late", "l@example.com", Patron.PatronType.STUDENT);
+        Checkout after = library(reader2, late2);
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            assertEquals(4, journal.replay(after));
+            after.setJournal(journal);
+
+            assertTrue(reader2.hasBookCheckedOut("9780306406157"));
+            assertEquals(1, after.getInventory().get("9780306406157").getAvailableCopies());
+            assertEquals(0, after.getInventory().get("9780000000002").getAvailableCopies());
+            assertEquals(2, after.getOpenLoanCount());
+            assertEquals(late.getFineCents(), late2.getFineCents());
+            assertTrue(late2.getFineCents() > 0);
+
+            // The sweep already charged the fine, so the return adds nothing
+            assertEquals(0.0, after.returnBook("9780000000002", late2), 0.01);
+            assertEquals(0, late2.getCheckoutCount());
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the tail ends the journal")
+    public void testTornTailIsIgnored() throws Exception {
+        Patron reader = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        Checkout before = library(reader);
+        long end;
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            before.setJournal(journal);
+            before.checkoutBook(before.getInventory().get("9780306406157"), reader);
+            end = journal.getPosition();
+        }
+        // Simulate a crash mid-write: a length and checksum with a corrupt payload
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(12).putInt(4).putInt(12345).putInt(99);
+            torn.flip();
+            channel.write(torn, end);
+        }
+
+        Patron reader2 = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        Checkout after = library(reader2);
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            assertEquals(end, journal.getPosition());
+            assertEquals(1, journal.replay(after));
+        }
+        assertEquals(1, reader2.getCheckoutCount());
+    }
+
+    @Test
+    @DisplayName("Patrons racing for one copy are journaled in the order the copy moved")
+    public void testContendedTitleReplays() throws Exception {
+        Patron[] patrons = new Patron[8];
+        for (int i = 0; i < patrons.length; i++) {
+            patrons[i] = new Patron("P-" + i, "Reader " + i, "r@example.com", Patron.PatronType.FACULTY);
+        }
+        Checkout before = library(patrons);
+        Book course = before.getInventory().get("9780000000002"); // one copy
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            before.setJournal(journal);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Patron patron : patrons) {
+                tasks.add(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        if (before.checkoutBook(course, patron) == 0.0) {
+                            before.returnBook(course.getIsbn(), patron);
+                        }
+                    }
+                    return null;
+                });
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(patrons.length);
+            try {
+                for (Future<Void> f : pool.invokeAll(tasks)) {
+                    f.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        Patron[] again = new Patron[patrons.length];
+        for (int i = 0; i < again.length; i++) {
+            again[i] = new Patron("P-" + i, "Reader " + i, "r@example.com", Patron.PatronType.FACULTY);
+        }
+        Checkout after = library(again);
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            assertTrue(journal.replay(after) > 0);
+        }
+        assertEquals(1, after.getInventory().get("9780000000002").getAvailableCopies());
+        assertEquals(0, after.getOpenLoanCount());
+    }
+
+    @Test
+    @DisplayName("Replaying a checkout with no copy on the shelf fails")
+    public void testReplayWithoutCopyFails() throws Exception {
+        Patron reader = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        Checkout before = library(reader);
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            before.setJournal(journal);
+            before.checkoutBook(before.getInventory().get("9780000000002"), reader);
+        }
+
+        Checkout after = new Checkout();
+        after.addBook(new Book("978-0-00-000000-2", "Course Text", "Prof", Book.BookType.TEXTBOOK, 0));
+        after.registerPatron(new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT));
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            assertThrows(IllegalStateException.class, () -> journal.replay(after));
+        }
+    }
+
+    @Test
+    @DisplayName("Payments, waivers and reinstatements are replayed")
+    public void testReplayRestoresBalance() throws Exception {
+        Patron paying = new Patron("P-1", "Paying", "p@example.com", Patron.PatronType.STUDENT);
+        Patron waived = new Patron("P-2", "Waived", "w@example.com", Patron.PatronType.STUDENT);
+        Checkout before = library(paying, waived);
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            before.setJournal(journal);
+            before.checkoutBook(before.getInventory().get("9780306406157"), paying);
+            before.checkoutBook(before.getInventory().get("9780000000002"), waived);
+            paying.getCheckedOutBooks().put("9780306406157", LocalDate.now().minusDays(10));
+            waived.getCheckedOutBooks().put("9780000000002", LocalDate.now().minusDays(400));
+            before.runOverdueSweep();
+            assertTrue(waived.isAccountSuspended());
+
+            assertEquals(paying.getFineBalance() - 0.25, before.payFine(paying, 0.25), 0.001);
+            before.waiveFines(waived);
+            before.reinstatePatron(waived);
+        }
+
+        Patron paying2 = new Patron("P-1", "Paying", "p@example.com", Patron.PatronType.STUDENT);
+        Patron waived2 = new Patron("P-2", "Waived", "w@example.com", Patron.PatronType.STUDENT);
+        Checkout after = library(paying2, waived2);
+        try (CheckoutJournal journal = new CheckoutJournal(file, 5)) {
+            journal.replay(after);
+        }
+        assertTrue(paying2.getFineCents() > 0);
+        assertEquals(paying.getFineCents(), paying2.getFineCents());
+        assertEquals(0, waived2.getFineCents());
+        assertFalse(waived2.isAccountSuspended());
+    }
+}
@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Checkout's metrics and their latency histograms.
+ */
+public class CheckoutMetricsTest {
+
+    @Test
+    @DisplayName("Histogram buckets stay within 12.5% and percentiles are ordered")
+    public void testHistogramAccuracy() {
+        for (long value : new long[] {0, 1, 15, 16, 17, 100, 1_000, 123_456, 9_876_543_210L}) {
+            long bound = LatencyHistogram.upperBound(LatencyHistogram.bucketOf(value));
+            assertTrue(bound >= value, "bound " + bound + " < " + value);
+            assertTrue(bound <= value + Math.max(1, value / 8), "bound " + bound + " too far from " + value);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMax());
+        long p50 = snapshot.getPercentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 570_000, "p50 " + p50);
+        assertTrue(snapshot.getPercentile(99) >= p50);
+        assertEquals(500_500.0, snapshot.getMean(), 0.5);
+    }
+
+    @Test
+    @DisplayName("Threads recording into the same bucket lose no counts")
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    histogram.record(1_000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(160_000, snapshot.getCount());
+        assertEquals(1_000, snapshot.getMax());
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    @Test
+    @DisplayName("Checkouts and returns are counted by outcome")
+    public void testCountsByCode() {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 1);
+        checkout.addBook(book);
+        Patron first = new Patron("P-1", "First", "f@example.com", Patron.PatronType.STUDENT);
+        Patron second = new Patron("P-2", "Second", "s@example.com", Patron.PatronType.STUDENT);
+
+        checkout.checkoutBook(book, first);
+        checkout.checkoutBook(book, second);
+        checkout.checkoutBook(null, first);
+        checkout.checkoutBatch(Arrays.asList(new CheckoutRequest(book, first), new CheckoutRequest(book, null)));
+        checkout.returnBook(book.getIsbn(), first);
+        checkout.returnBook(book.getIsbn(), first);
+
+        CheckoutMetrics metrics = checkout.getMetrics();
+        CheckoutMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getCheckoutCodes().get(0.0).longValue());
+        assertEquals(1, snapshot.getCheckoutCodes().get(0.1).longValue());
+        assertEquals(1, snapshot.getCheckoutCodes().get(2.0).longValue());
+        assertEquals(1, snapshot.getCheckoutCodes().get(2.1).longValue());
+        assertEquals(1, snapshot.getCheckoutCodes().get(3.1).longValue());
+        assertEquals(5, metrics.getCheckouts());
+        assertEquals(3, snapshot.getCheckoutLatency().getCount());
+        assertEquals(1, snapshot.getBatchLatency().getCount());
+        assertEquals(1, snapshot.getReturns());
+        assertEquals(1, snapshot.getRejectedReturns());
+        assertEquals(0, snapshot.getOpenLoans());
+        assertEquals(1, snapshot.getAvailableTitles().get(Book.BookType.FICTION).intValue());
+
+        metrics.reset();
+        assertEquals(0, metrics.getCheckouts());
+    }
+
+    @Test
+    @DisplayName("Metrics are readable over JMX")
+    public void testMBeanRegistration() throws Exception {
+        Checkout checkout = new Checkout();
+        checkout.checkoutBook(null, null);
+        ObjectName name = checkout.getMetrics().registerMBean("metrics-test");
+        try {
+            Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Checkouts");
+            assertEquals(1L, count);
+        } finally {
+            checkout.getMetrics().unregisterMBean("metrics-test");
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
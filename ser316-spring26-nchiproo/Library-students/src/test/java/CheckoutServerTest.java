@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the line-protocol server and its load generator.
+ */
+public class CheckoutServerTest {
+    private Checkout checkout;
+    private CheckoutServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        checkout = new Checkout();
+        CheckoutLoadGenerator.seed(checkout, 20, 10);
+        server = new CheckoutServer(checkout, 0);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Each command gets the reply the protocol documents")
+    public void testProtocol() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+            String isbn = CheckoutLoadGenerator.isbn(3);
+            out.println("RENEW P-1 " + isbn);
+            assertEquals("ERR not-checked-out", in.readLine());
+            out.println("CHECKOUT P-1 " + isbn);
+            assertEquals("OK 0.0", in.readLine());
+            out.println("renew P-1 " + isbn);
+            assertEquals("OK 0.1", in.readLine());
+            out.println("CHECKOUT P-1 9999999999999");
+            assertEquals("OK 2.1", in.readLine());
+            out.println("CHECKOUT nobody " + isbn);
+            assertEquals("OK 3.1", in.readLine());
+            out.println("COUNT TEXTBOOK");
+            assertEquals("OK 5", in.readLine());
+            out.println("COUNT FICTION AVAILABLE");
+            assertEquals("OK 5", in.readLine());
+            out.println("AVAILABLE " + isbn);
+            assertEquals("OK 3", in.readLine());
+            out.println("AVAILABLE 9780000000002x");
+            assertEquals("OK -1", in.readLine());
+            out.println("RETURN P-1 " + isbn);
+            assertEquals("OK 0.0", in.readLine());
+            out.println("RETURN P-1 " + isbn);
+            assertEquals("OK -1.0", in.readLine());
+            out.println("LEND P-1");
+            assertEquals("ERR unknown-command", in.readLine());
+            out.println("QUIT");
+            assertEquals("BYE", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("Load generator terminals all complete without errors")
+    public void testLoadGenerator() throws Exception {
+        CheckoutLoadGenerator.Result result = new CheckoutLoadGenerator(server.getPort(), 25, 10, 20, 10).run();
+        assertEquals(0, result.getErrors());
+        assertEquals(25 * (10 * 2 + 1), result.getLatency().getCount());
+        assertEquals(0, checkout.getOpenLoanCount());
+    }
+}
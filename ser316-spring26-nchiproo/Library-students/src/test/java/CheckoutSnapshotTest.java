@@ -0,0 +1,171 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for writing and loading Checkout snapshots, alone and with a journal tail.
+ */
+public class CheckoutSnapshotTest {
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("checkout-snapshot");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private static Checkout library() {
+        Checkout checkout = new Checkout();
+        checkout.addBook(new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 3));
+        checkout.addBook(new Book("978-0-00-000000-2", "Course Text", "Prof", Book.BookType.TEXTBOOK, 1));
+        return checkout;
+    }
+
+    @Test
+    @DisplayName("Round trip keeps books, patrons, loans and fines")
+    public void testRoundTrip() throws IOException {
+        Checkout before = library();
+        Patron reader = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+        reader.addFineCents(375);
+        Patron idle = new Patron("P-2", "Idle", null, Patron.PatronType.CHILD);
+        idle.setAccountSuspended(true);
+        before.registerPatron(reader);
+        before.registerPatron(idle);
+        before.checkoutBook(before.getInventory().get("9780306406157"), reader);
+        before.checkoutBook(before.getInventory().get("9780000000002"), reader);
+
+        Path file = dir.resolve("library.snap");
+        assertEquals(0, CheckoutSnapshot.write(before, file));
+        CheckoutSnapshot loaded = CheckoutSnapshot.load(file);
+        Checkout after = loaded.getCheckout();
+
+        assertEquals(2, loaded.getBookCount());
+        assertEquals(2, loaded.getPatronCount());
+        assertEquals(2, loaded.getLoanCount());
+        assertEquals(2, after.getInventory().get("9780306406157").getAvailableCopies());
+        assertEquals(0, after.countBooksByType(Book.BookType.TEXTBOOK, true));
+        Patron reader2 = after.getPatrons().get("P-1");
+        assertEquals(reader.getCheckedOutBooks(), reader2.getCheckedOutBooks());
+        assertEquals(375, reader2.getFineCents());
+        assertTrue(after.getPatrons().get("P-2").isAccountSuspended());
+        assertNull(after.getPatrons().get("P-2").getEmail());
+        assertEquals(2, after.getOpenLoanCount());
+
+        assertEquals(0.0, after.returnBook("9780000000002", reader2), 0.01);
+        assertEquals(1, after.countBooksByType(Book.BookType.TEXTBOOK, true));
+    }
+
+    @Test
+    @DisplayName("Restore replays only the journal written after the snapshot")
+    public void testRestoreReplaysTail() throws Exception {
+        Path journalFile = dir.resolve("journal.bin");
+        Path snapshotFile = dir.resolve("library.snap");
+        Checkout before = library();
+        Patron reader = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        before.registerPatron(reader);
+        try (CheckoutJournal journal = new CheckoutJournal(journalFile, 5)) {
+            before.setJournal(journal);
+            before.checkoutBook(before.getInventory().get("9780306406157"), reader);
+            long position = CheckoutSnapshot.write(before, snapshotFile);
+            assertEquals(journal.getPosition(), position);
+            // Tail after the snapshot
+            before.checkoutBook(before.getInventory().get("9780000000002"), reader);
+            before.returnBook("9780306406157", reader);
+        }
+
+        try (CheckoutJournal journal = new CheckoutJournal(journalFile, 5)) {
+            Checkout after = CheckoutSnapshot.restore(snapshotFile, journal);
+            Patron reader2 = after.getPatrons().get("P-1");
+            assertFalse(reader2.hasBookCheckedOut("9780306406157"));
+            assertTrue(reader2.hasBookCheckedOut("9780000000002"));
+            assertEquals(3, after.getInventory().get("9780306406157").getAvailableCopies());
+            assertEquals(0, after.getInventory().get("9780000000002").getAvailableCopies());
+            assertEquals(1, after.getOpenLoanCount());
+            assertSame(journal, after.getJournal());
+        }
+    }
+
+    @Test
+    @DisplayName("Copy numbers on loan, on the shelf and set aside for holds survive a round trip")
+    public void testCopyNumbersRoundTrip() throws IOException {
+        Checkout before = library();
+        Book book = before.getInventory().get("9780306406157"); // three copies
+        Patron first = new Patron("P-1", "First", "f@example.com", Patron.PatronType.FACULTY);
+        Patron second = new Patron("P-2", "Second", "s@example.com", Patron.PatronType.FACULTY);
+        Patron third = new Patron("P-3", "Third", "t@example.com", Patron.PatronType.FACULTY);
+        Patron waiting = new Patron("P-4", "Waiting", "w@example.com", Patron.PatronType.FACULTY);
+        for (Patron patron : new Patron[] {first, second, third, waiting}) {
+            before.registerPatron(patron);
+        }
+        before.checkoutBook(book, first);
+        before.checkoutBook(book, second);
+        before.checkoutBook(book, third);
+        before.placeHold(book, waiting);
+        before.returnBook(book.getIsbn(), first); // copy 1 goes to the hold
+        before.returnBook(book.getIsbn(), third); // copy 3 goes on the shelf
+
+        Path file = dir.resolve("copies.snap");
+        CheckoutSnapshot.write(before, file);
+        Checkout after = CheckoutSnapshot.load(file).getCheckout();
+        Book loaded = after.getInventory().get("9780306406157");
+        Patron second2 = after.getPatrons().get("P-2");
+
+        assertEquals(2, second2.getCheckedOutCopy("9780306406157"));
+        assertEquals(2, loaded.getAvailableCopies(), "The held copy is back on the shelf");
+        assertTrue(loaded.isCopyOnShelf(1));
+        assertFalse(loaded.isCopyOnShelf(2));
+        assertTrue(loaded.isCopyOnShelf(3));
+
+        assertEquals(0.0, after.returnBook("9780306406157", second2), 0.01);
+        assertTrue(loaded.isCopyOnShelf(2), "The copy the patron had is the one shelved");
+    }
+
+    @Test
+    @DisplayName("A patron's overdue count survives a round trip, so the overdue limit still applies")
+    public void testOverdueCountRoundTrip() throws IOException {
+        Checkout before = library();
+        for (int i = 3; i <= 5; i++) {
+            before.addBook(new Book("978000000000" + i, "Late " + i, "Author", Book.BookType.FICTION, 1));
+        }
+        Patron late = new Patron("P-1", "Late", "l@example.com", Patron.PatronType.FACULTY);
+        before.registerPatron(late);
+        LocalDate today = LocalDate.now();
+        for (int i = 3; i <= 5; i++) {
+            Book book = before.getInventory().get("978000000000" + i);
+            assertTrue(book.tryCheckout());
+            assertTrue(before.restoreLoan(late, book.getIsbn(), today.minusDays(20), today.minusDays(2), 0,
+                    Book.NO_COPY));
+        }
+        before.runOverdueSweep(today);
+        assertEquals(3, late.getOverdueCount());
+        assertEquals(4.0, before.checkoutBook(before.getInventory().get("9780306406157"), late), 0.01);
+
+        Path file = dir.resolve("overdue.snap");
+        CheckoutSnapshot.write(before, file);
+        Checkout after = CheckoutSnapshot.load(file).getCheckout();
+        Patron late2 = after.getPatrons().get("P-1");
+
+        assertEquals(3, late2.getOverdueCount());
+        assertEquals(4.0, after.checkoutBook(after.getInventory().get("9780306406157"), late2), 0.01,
+                "The overdue limit holds before the next sweep");
+        assertEquals(3, after.getInventory().get("9780306406157").getAvailableCopies());
+    }
+}
@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the columnar inventory store and its Book views.
+ */
+public class ColumnarCatalogTest {
+
+    @Test
+    @DisplayName("Views read and write the shared columns")
+    public void testViewsShareState() {
+        ColumnarCatalog catalog = new ColumnarCatalog(4);
+        catalog.put("978-0-306-40615-7", new Book("978-0-306-40615-7", "Title", "Author",
+                Book.BookType.FICTION, 3));
+
+        Book first = catalog.get("9780306406157");
+        Book second = catalog.get("978-0-306-40615-7");
+        assertNotNull(first);
+        assertEquals("9780306406157", first.getIsbn());
+        assertEquals("Title", first.getTitle());
+        assertEquals(Book.BookType.FICTION, first.getType());
+
+        first.checkout();
+        assertEquals(2, second.getAvailableCopies());
+        second.setAvailableCopies(0);
+        assertFalse(first.isAvailable());
+        first.resetAvailability();
+        assertEquals(3, second.getAvailableCopies());
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Titles and authors are pooled, rows grow past the initial size")
+    public void testPoolingAndGrowth() {
+        ColumnarCatalog catalog = new ColumnarCatalog(1);
+        for (int i = 0; i < 100; i++) {
+            String isbn = String.format("978%010d", i);
+            catalog.put(isbn, new Book(isbn, "Series Title", "Same Author", Book.BookType.CHILDREN, 1));
+        }
+        assertEquals(100, catalog.size());
+        assertEquals(2, catalog.getPooledStringCount());
+        int seen = 0;
+        for (Map.Entry<String, Book> entry : catalog.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue().getIsbn());
+            seen++;
+        }
+        assertEquals(100, seen);
+        assertThrows(IllegalArgumentException.class,
+                () -> catalog.put("not-an-isbn", new Book("x", "t", "a", Book.BookType.FICTION, 1)));
+    }
+
+    @Test
+    @DisplayName("Checkout over a columnar catalog keeps codes, counts and returns working")
+    public void testCheckoutWithColumnarCatalog() {
+        Checkout checkout = Checkout.withColumnarCatalog(8);
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.TEXTBOOK, 1);
+        checkout.addBook(book);
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+
+        assertEquals(1, checkout.countBooksByType(Book.BookType.TEXTBOOK, true));
+        assertEquals(0.0, checkout.checkoutBook(book, patron), 0.01);
+        assertEquals(0, checkout.getInventory().get("9780306406157").getAvailableCopies());
+        assertEquals(0, checkout.countBooksByType(Book.BookType.TEXTBOOK, true));
+        assertEquals(2.0, checkout.checkoutBook(book, new Patron("P-2", "Other", "o@example.com",
+                Patron.PatronType.STUDENT)), 0.01);
+
+        assertEquals(0.0, checkout.returnBook("978-0-306-40615-7", patron), 0.01);
+        assertEquals(1, checkout.countBooksByType(Book.BookType.TEXTBOOK, true));
+        assertEquals(0, patron.getCheckoutCount());
+    }
+
+    @Test
+    @DisplayName("Adding and removing copies updates the total and available columns")
+    public void testAddAndRemoveCopies() {
+        ColumnarCatalog catalog = new ColumnarCatalog(4);
+        catalog.put("9780306406157", new Book("9780306406157", "Title", "Author", Book.BookType.FICTION, 2));
+        Book view = catalog.get("9780306406157");
+        view.addCopies(3);
+        assertEquals(5, catalog.get("0306406152").getTotalCopies());
+        assertEquals(5, catalog.get("0306406152").getAvailableCopies());
+        view.checkout();
+        assertFalse(view.removeCopies(5));
+        assertTrue(view.removeCopies(4));
+        assertEquals(1, view.getTotalCopies());
+        assertEquals(0, view.getAvailableCopies());
+    }
+
+    @Test
+    @DisplayName("Listeners run outside the catalog's locks and may call back into it")
+    public void testListenerCallsBack() {
+        ColumnarCatalog catalog = new ColumnarCatalog(4);
+        catalog.put("9780306406157", new Book("9780306406157", "Title", "Author", Book.BookType.FICTION, 2));
+        Book view = catalog.get("9780306406157");
+        int[] seen = new int[1];
+        view.addAvailabilityListener((book, oldCopies, newCopies) -> {
+            // A put takes the catalog's write lock, which would deadlock if still read-locked here
+            catalog.put("9780000000002", new Book("9780000000002", "Other", "Author", Book.BookType.FICTION, 1));
+            seen[0] = book.getTotalCopies() - newCopies;
+        });
+        view.checkout();
+        assertEquals(1, seen[0]);
+        assertEquals(2, catalog.size());
+    }
+}
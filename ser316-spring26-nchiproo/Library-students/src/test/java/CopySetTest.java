@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for copy-level tracking: CopySet and the copy numbers Book and
+ * Checkout hand out.
+ */
+public class CopySetTest {
+
+    @Test
+    @DisplayName("Lowest shelved copy is taken first; a given copy can be put back")
+    public void testTakeAndPut() {
+        CopySet set = new CopySet(3, true);
+        assertEquals(1, set.take());
+        assertEquals(2, set.take());
+        assertTrue(set.put(1));
+        assertFalse(set.put(1), "A copy already on the shelf can't be returned again");
+        assertFalse(set.put(4), "Copy 4 doesn't exist");
+        assertEquals(1, set.take());
+        assertEquals(3, set.take());
+        assertEquals(-1, set.take());
+        assertEquals(1, set.putAny(), "Lowest copy out goes back first");
+    }
+
+    @Test
+    @DisplayName("Thousands of copies span several chunks and keep their numbers")
+    public void testGrowthAcrossChunks() {
+        CopySet set = new CopySet(5000, true);
+        for (int copy = 1; copy <= 4999; copy++) {
+            assertEquals(copy, set.take());
+        }
+        set.add(200, true); // 5001..5200, past the chunks sized for 5000
+        assertEquals(5000, set.take());
+        assertEquals(5001, set.take());
+        assertTrue(set.put(17));
+        assertEquals(17, set.take());
+        assertEquals(5200, (long) set.getOwnedCount());
+
+        assertEquals(199, set.withdraw(1000), "Only shelved copies can be withdrawn");
+        assertFalse(set.isOwned(5200));
+        set.add(1, true);
+        assertTrue(set.isShelved(5002), "Freed numbers are reused lowest first");
+    }
+
+    @Test
+    @DisplayName("Concurrent checkouts get distinct copies and every copy comes back")
+    public void testConcurrentCopiesAreDistinct() throws Exception {
+        Book book = new Book("9780123456789", "Hot Title", "Author", Book.BookType.FICTION, 130);
+        List<Callable<List<Integer>>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> {
+                List<Integer> taken = new ArrayList<>();
+                for (int copy; (copy = book.checkoutCopy()) >= 0; ) {
+                    taken.add(copy);
+                }
+                return taken;
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        Set<Integer> all = new HashSet<>();
+        int count = 0;
+        try {
+            for (Future<List<Integer>> f : pool.invokeAll(tasks)) {
+                all.addAll(f.get());
+                count += f.get().size();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(130, count);
+        assertEquals(130, all.size(), "No copy may be lent twice");
+        assertFalse(all.contains(Book.NO_COPY));
+
+        for (int copy : all) {
+            assertTrue(book.returnCopy(copy));
+        }
+        assertEquals(130, book.getAvailableCopies());
+        assertFalse(book.release());
+    }
+
+    @Test
+    @DisplayName("Loans and holds record the copy, and a return shelves that copy")
+    public void testCheckoutRecordsCopy() {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 2);
+        checkout.addBook(book);
+        Patron first = new Patron("P-1", "One", "one@example.com", Patron.PatronType.FACULTY);
+        Patron second = new Patron("P-2", "Two", "two@example.com", Patron.PatronType.FACULTY);
+        Patron waiting = new Patron("P-3", "Three", "three@example.com", Patron.PatronType.FACULTY);
+        checkout.registerPatron(first);
+        checkout.registerPatron(second);
+        checkout.registerPatron(waiting);
+
+        assertEquals(0.0, checkout.checkoutBook(book, first), 0.001);
+        assertEquals(0.0, checkout.checkoutBook(book, second), 0.001);
+        assertEquals(1, first.getCheckedOutCopy(book.getIsbn()));
+        assertEquals(2, second.getCheckedOutCopy(book.getIsbn()));
+        assertFalse(book.isCopyOnShelf(1));
+
+        assertEquals(0.0, checkout.placeHold(book, waiting), 0.001);
+        assertEquals(0.0, checkout.returnBook(book.getIsbn(), second), 0.001);
+        assertEquals(Book.NO_COPY, second.getCheckedOutCopy(book.getIsbn()));
+        assertEquals(2, checkout.getHold(book.getIsbn(), waiting).getCopy(), "The returned copy is set aside");
+        assertFalse(book.isCopyOnShelf(2));
+
+        assertEquals(0.0, checkout.checkoutBook(book, waiting), 0.001);
+        assertEquals(2, waiting.getCheckedOutCopy(book.getIsbn()));
+        assertEquals(0.0, checkout.returnBook(book.getIsbn(), first), 0.001);
+        assertTrue(book.isCopyOnShelf(1));
+    }
+}
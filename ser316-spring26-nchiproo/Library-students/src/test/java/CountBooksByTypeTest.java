@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Checkout.countBooksByType and the per-type counts behind it.
+ */
+public class CountBooksByTypeTest {
+    private Checkout checkout;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+    }
+
+    @Test
+    @DisplayName("Counts follow checkout, return and reset")
+    public void testCountBooksByType_TracksAvailability() {
+        Book fiction = new Book("9780123456789", "Novel", "Author", Book.BookType.FICTION, 1);
+        Book other = new Book("9780123456780", "Another", "Author", Book.BookType.FICTION, 2);
+        checkout.addBook(fiction);
+        checkout.addBook(other);
+
+        assertEquals(2, checkout.countBooksByType(Book.BookType.FICTION, false));
+        assertEquals(2, checkout.countBooksByType(Book.BookType.FICTION, true));
+
+        fiction.checkout();
+        assertEquals(1, checkout.countBooksByType(Book.BookType.FICTION, true));
+        assertEquals(2, checkout.countBooksByType(Book.BookType.FICTION, false));
+
+        fiction.returnBook();
+        other.setAvailableCopies(0);
+        assertEquals(1, checkout.countBooksByType(Book.BookType.FICTION, true));
+
+        other.resetAvailability();
+        assertEquals(2, checkout.countBooksByType(Book.BookType.FICTION, true));
+        assertEquals(0, checkout.countBooksByType(Book.BookType.TEXTBOOK, false));
+    }
+
+    @Test
+    @DisplayName("Replacing an ISBN does not double count")
+    public void testCountBooksByType_ReplaceSameIsbn() {
+        Book first = new Book("9780123456789", "Old", "Author", Book.BookType.FICTION, 1);
+        Book second = new Book("9780123456789", "New", "Author", Book.BookType.TEXTBOOK, 1);
+        checkout.addBook(first);
+        checkout.addBook(second);
+
+        assertEquals(0, checkout.countBooksByType(Book.BookType.FICTION, false));
+        assertEquals(1, checkout.countBooksByType(Book.BookType.TEXTBOOK, false));
+
+        first.checkout(); // no longer in inventory, must not affect counts
+        assertEquals(1, checkout.countBooksByType(Book.BookType.TEXTBOOK, true));
+    }
+}
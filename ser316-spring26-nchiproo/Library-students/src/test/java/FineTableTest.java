@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the precomputed fine table matches the documented fine schedule.
+ */
+public class FineTableTest {
+
+    private final Checkout checkout = new Checkout();
+
+    @AfterEach
+    public void restoreCap() {
+        Checkout.MAX_FINE_AMOUNT = 25.0;
+    }
+
+    /**
+     * Straightforward implementation of the calculateFine javadoc, used as the oracle.
+     */
+    private static double expectedFine(int days, Book.BookType type) {
+        if (days <= 0) {
+            return 0.0;
+        }
+        double fine = Math.min(days, 7) * 0.25;
+        if (days > 7) {
+            fine += Math.min(days - 7, 7) * 0.50;
+        }
+        if (days > 14) {
+            fine += (days - 14) * 1.00;
+        }
+        if (type == Book.BookType.REFERENCE || type == Book.BookType.TEXTBOOK) {
+            fine *= 2.0;
+        }
+        return Math.min(fine, Checkout.MAX_FINE_AMOUNT);
+    }
+
+    @Test
+    @DisplayName("Table lookups match the rate schedule for every type and day")
+    public void testMatchesSchedule() {
+        for (Book.BookType type : Book.BookType.values()) {
+            for (int days = -2; days <= 60; days++) {
+                assertEquals(expectedFine(days, type), checkout.calculateFine(days, type), 0.0,
+                        type + " at " + days + " days");
+            }
+        }
+        assertEquals(expectedFine(20, null), checkout.calculateFine(20, null), 0.0);
+    }
+
+    @Test
+    @DisplayName("Documented examples")
+    public void testExamples() {
+        assertEquals(1.25, checkout.calculateFine(5, Book.BookType.FICTION), 0.0);
+        assertEquals(3.25, checkout.calculateFine(10, Book.BookType.NONFICTION), 0.0);
+        assertEquals(22.50, checkout.calculateFine(20, Book.BookType.TEXTBOOK), 0.0);
+        assertEquals(25.00, checkout.calculateFine(50, Book.BookType.FICTION), 0.0);
+    }
+
+    @Test
+    @DisplayName("Batch API returns the same cents as single lookups")
+    public void testBatch() {
+        int[] days = {0, 5, 10, 20, 50, Integer.MAX_VALUE, -3};
+        Book.BookType[] types = {Book.BookType.FICTION, Book.BookType.FICTION, Book.BookType.NONFICTION,
+            Book.BookType.TEXTBOOK, Book.BookType.CHILDREN, Book.BookType.REFERENCE, Book.BookType.FICTION};
+        int[] cents = checkout.calculateFines(days, types);
+        assertArrayEquals(new int[] {0, 125, 325, 2250, 2500, 2500, 0}, cents);
+    }
+
+    @Test
+    @DisplayName("Changing MAX_FINE_AMOUNT rebuilds the table")
+    public void testCapChange() {
+        Checkout.MAX_FINE_AMOUNT = 5.0;
+        assertEquals(5.0, checkout.calculateFine(30, Book.BookType.FICTION), 0.0);
+        assertEquals(1.25, checkout.calculateFine(5, Book.BookType.FICTION), 0.0);
+    }
+
+    @Test
+    @DisplayName("Patron fines accumulate in cents without drift")
+    public void testPatronCents() {
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        for (int i = 0; i < 1000; i++) {
+            patron.addFine(0.10);
+        }
+        assertEquals(10000, patron.getFineCents());
+        assertEquals(100.0, patron.getFineBalance(), 0.0);
+        assertEquals(99.9, patron.payFine(0.10), 0.0);
+    }
+
+    @Test
+    @DisplayName("An infinite cap never turns a fine negative")
+    public void testInfiniteCap() {
+        Checkout.MAX_FINE_AMOUNT = Double.POSITIVE_INFINITY;
+        assertEquals(1.25, checkout.calculateFine(5, Book.BookType.FICTION), 0.0);
+        assertEquals(expectedFine(50, Book.BookType.TEXTBOOK), checkout.calculateFine(50, Book.BookType.TEXTBOOK), 0.0);
+        int days = FineTable.MAX_TABLE_DAYS + 1000;
+        assertEquals(expectedFine(days, Book.BookType.FICTION), checkout.calculateFine(days, Book.BookType.FICTION),
+                0.0, "Days past the table are computed from the rates");
+        assertEquals(Integer.MAX_VALUE / 100.0, checkout.calculateFine(Integer.MAX_VALUE, Book.BookType.REFERENCE),
+                0.0, "Fines saturate at the largest int cents");
+        int[] cents = checkout.calculateFines(new int[] {days, -1}, new Book.BookType[] {null, null});
+        assertEquals((long) (expectedFine(days, null) * 100), cents[0]);
+        assertEquals(0, cents[1]);
+    }
+
+    @Test
+    @DisplayName("A very large finite cap builds a bounded table and still applies the cap")
+    public void testVeryLargeCap() {
+        Checkout.MAX_FINE_AMOUNT = 1e12;
+        FineTable table = FineTable.forCap(Checkout.MAX_FINE_AMOUNT);
+        assertEquals(Integer.MAX_VALUE, table.getCapCents());
+        assertEquals(22.50, checkout.calculateFine(20, Book.BookType.TEXTBOOK), 0.0);
+        assertEquals(expectedFine(100_000, Book.BookType.CHILDREN),
+                checkout.calculateFine(100_000, Book.BookType.CHILDREN), 0.0);
+
+        Checkout.MAX_FINE_AMOUNT = 5000.0; // reached only after the table's last day
+        assertEquals(expectedFine(5000, Book.BookType.FICTION),
+                checkout.calculateFine(5000, Book.BookType.FICTION), 0.0);
+        assertEquals(5000.0, checkout.calculateFine(6000, Book.BookType.FICTION), 0.0);
+        assertEquals(0, FineTable.forCap(-5.0).fineCents(10, Book.BookType.FICTION));
+    }
+}
@@ -0,0 +1,142 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for holds and their wait lists.
+ */
+public class HoldQueueTest {
+    private Checkout checkout;
+    private Book book;
+    private Patron borrower;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+        book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 1);
+        checkout.addBook(book);
+        borrower = patron("P-0", Patron.PatronType.STAFF);
+        assertEquals(0.0, checkout.checkoutBook(book, borrower), 0.001);
+    }
+
+    private Patron patron(String id, Patron.PatronType type) {
+        Patron patron = new Patron(id, "Patron " + id, id + "@example.com", type);
+        checkout.registerPatron(patron);
+        return patron;
+    }
+
+    @Test
+    @DisplayName("Returned copies go to holds by priority, then request order")
+    public void testReturnServesHoldsInPriorityOrder() {
+        Patron firstPublic = patron("P-1", Patron.PatronType.PUBLIC);
+        Patron student = patron("P-2", Patron.PatronType.STUDENT);
+        Patron faculty = patron("P-3", Patron.PatronType.FACULTY);
+        Patron secondPublic = patron("P-4", Patron.PatronType.PUBLIC);
+        for (Patron patron : new Patron[] {firstPublic, student, faculty, secondPublic}) {
+            assertEquals(0.0, checkout.placeHold(book, patron), 0.001);
+        }
+        assertEquals(6.0, checkout.placeHold(book, student), 0.001);
+        assertEquals(6.0, checkout.placeHold(book, borrower), 0.001);
+        assertEquals(4, checkout.getHoldCount(book.getIsbn()));
+
+        Patron[] expected = {faculty, student, firstPublic, secondPublic};
+        Patron holder = borrower;
+        for (Patron next : expected) {
+            checkout.returnBook(book.getIsbn(), holder);
+            assertEquals(0, book.getAvailableCopies());
+            assertEquals(Hold.Status.READY, checkout.getHold("0306406152", next).getStatus());
+            Patron other = patron("X-" + next.getPatronId(), Patron.PatronType.FACULTY);
+            assertEquals(2.0, checkout.checkoutBook(book, other), 0.001);
+            assertEquals(0.0, checkout.checkoutBook(book, next), 0.001);
+            assertNull(checkout.getHold(book.getIsbn(), next));
+            holder = next;
+        }
+        checkout.returnBook(book.getIsbn(), holder);
+        assertEquals(1, book.getAvailableCopies());
+        assertEquals(0, checkout.getHoldCount(book.getIsbn()));
+    }
+
+    @Test
+    @DisplayName("Cancelling or expiring a ready hold passes the copy on")
+    public void testCancelAndExpire() {
+        Patron first = patron("P-1", Patron.PatronType.STUDENT);
+        Patron second = patron("P-2", Patron.PatronType.STUDENT);
+        checkout.placeHold(book, first);
+        checkout.placeHold(book, second);
+        assertTrue(checkout.cancelHold(book.getIsbn(), second));
+        assertFalse(checkout.cancelHold(book.getIsbn(), second));
+        checkout.placeHold(book, second);
+
+        checkout.returnBook(book.getIsbn(), borrower);
+        Hold ready = checkout.getHold(book.getIsbn(), first);
+        assertEquals(LocalDate.now().plusDays(Hold.PICKUP_DAYS), ready.getPickupBy());
+        assertEquals(0, checkout.expireHolds(ready.getPickupBy()));
+        assertEquals(1, checkout.expireHolds(ready.getPickupBy().plusDays(1)));
+        assertNull(checkout.getHold(book.getIsbn(), first));
+        assertEquals(Hold.Status.READY, checkout.getHold(book.getIsbn(), second).getStatus());
+
+        assertTrue(checkout.cancelHold(book.getIsbn(), second));
+        assertEquals(1, book.getAvailableCopies());
+    }
+
+    @Test
+    @DisplayName("Copies added to a title go to its waiting holds first")
+    public void testAddedCopiesServeHolds() {
+        Patron first = patron("P-1", Patron.PatronType.STUDENT);
+        Patron second = patron("P-2", Patron.PatronType.STUDENT);
+        assertEquals(0.0, checkout.placeHold(book, first), 0.001);
+        assertEquals(0.0, checkout.placeHold(book, second), 0.001);
+
+        book.addCopies(3);
+        assertEquals(Hold.Status.READY, checkout.getHold(book.getIsbn(), first).getStatus());
+        assertEquals(Hold.Status.READY, checkout.getHold(book.getIsbn(), second).getStatus());
+        assertEquals(0, checkout.getHoldCount(book.getIsbn()));
+        assertEquals(1, book.getAvailableCopies(), "Copies beyond the holds stay on the shelf");
+    }
+
+    @Test
+    @DisplayName("A hold on a title with a copy on the shelf sets it aside at once")
+    public void testHoldOnAvailableTitle() {
+        Book shelf = new Book("9780000000002", "Shelf", "Author", Book.BookType.NONFICTION, 1);
+        checkout.addBook(shelf);
+        Patron patron = patron("P-1", Patron.PatronType.CHILD);
+        assertEquals(0.1, checkout.placeHold(shelf, patron), 0.001);
+        assertEquals(0, shelf.getAvailableCopies());
+        assertEquals(0.0, checkout.placeHold(shelf, borrower), 0.001);
+        assertEquals(2.1, checkout.placeHold(null, patron), 0.001);
+        assertEquals(3.1, checkout.placeHold(shelf, null), 0.001);
+    }
+
+    @Test
+    @DisplayName("Thousands of holds are served by priority, then request time")
+    public void testLargeQueue() {
+        HoldQueue queue = new HoldQueue();
+        Patron.PatronType[] types = Patron.PatronType.values();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 5000; i++) {
+            queue.add(new Hold("H-" + i, book.getIsbn(), types[i % types.length], random.nextLong(1000), i));
+        }
+        for (int i = 0; i < 5000; i += 3) {
+            assertNotNull(queue.remove("H-" + i));
+        }
+        assertEquals(5000 - 1667, queue.waitingCount());
+
+        Hold previous = null;
+        LocalDate today = LocalDate.now();
+        for (Hold next = queue.serveNext(today, Book.NO_COPY); next != null;
+                next = queue.serveNext(today, Book.NO_COPY)) {
+            assertEquals(Hold.Status.READY, next.getStatus());
+            if (previous != null) {
+                assertTrue(Hold.compare(previous, next) < 0, previous + " before " + next);
+            }
+            previous = next;
+        }
+        assertEquals(5000 - 1667, queue.readyCount());
+        assertEquals(0, queue.waitingCount());
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ISBN-keyed map and the lookups that use it.
+ */
+public class IsbnMapTest {
+
+    @Test
+    @DisplayName("Hyphenated and plain ISBNs share one entry; other keys fall back")
+    public void testSpellingsShareEntry() {
+        IsbnMap<String> map = new IsbnMap<>();
+        assertNull(map.put("978-0-306-40615-7", "first"));
+        assertEquals("first", map.put("9780306406157", "second"));
+        assertEquals(1, map.size());
+        assertEquals("second", map.get(IsbnKey.parse("0-306-40615-2")));
+        assertEquals("978-0-306-40615-7", map.keySet().iterator().next());
+
+        map.put("not-an-isbn", "other");
+        assertEquals("other", map.get("not-an-isbn"));
+        assertEquals(2, map.size());
+        assertEquals("second", map.remove("9780306406157"));
+        assertFalse(map.containsKey("978-0-306-40615-7"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    @DisplayName("Matches a HashMap through growth and removals")
+    public void testAgainstHashMap() {
+        IsbnMap<Integer> map = new IsbnMap<>(2);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            String isbn = String.format("978%010d", i * 7919L);
+            map.put(isbn, i);
+            expected.put(isbn, i);
+        }
+        for (int i = 0; i < 2000; i += 3) {
+            String isbn = String.format("978%010d", i * 7919L);
+            assertEquals(expected.remove(isbn), map.remove(isbn));
+        }
+        assertEquals(expected, map);
+        for (String isbn : expected.keySet()) {
+            assertEquals(expected.get(isbn), map.get(isbn));
+        }
+    }
+
+    @Test
+    @DisplayName("Patrons and returns match ISBNs regardless of hyphens")
+    public void testPatronLookupIgnoresHyphens() {
+        Checkout checkout = new Checkout();
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 1);
+        checkout.addBook(book);
+        Patron patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+
+        assertEquals(0.0, checkout.checkoutBook(book, patron), 0.01);
+        assertTrue(patron.hasBookCheckedOut("9780306406157"));
+        LocalDate due = patron.getCheckedOutBooks().get("978-0306406157");
+        assertEquals(LocalDate.now().plusDays(patron.getLoanPeriodDays()), due);
+
+        assertEquals(0.0, checkout.returnBook("9780306406157", patron), 0.01);
+        assertEquals(0, patron.getCheckoutCount());
+        assertEquals(0, checkout.getOpenLoanCount());
+        assertTrue(book.isAvailable());
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for IsbnValidator: format rules, check digits and bulk modes.
+ */
+public class IsbnValidatorTest {
+
+    @Test
+    @DisplayName("Format check matches the documented isValidISBN rules")
+    public void testFormatOnly() {
+        assertTrue(IsbnValidator.isValidFormat("0123456789"));
+        assertTrue(IsbnValidator.isValidFormat("9780123456789"));
+        assertTrue(IsbnValidator.isValidFormat("978-0-1234-5678-9"));
+        assertFalse(IsbnValidator.isValidFormat(null));
+        assertFalse(IsbnValidator.isValidFormat(""));
+        assertFalse(IsbnValidator.isValidFormat("-"));
+        assertFalse(IsbnValidator.isValidFormat("123456789X"));
+        assertFalse(IsbnValidator.isValidFormat("978-INVALID"));
+        assertFalse(IsbnValidator.isValidFormat("12345678901"));
+        assertFalse(IsbnValidator.isValidFormat("978 0123456789"));
+    }
+
+    @Test
+    @DisplayName("Checksum mode verifies ISBN-10 and ISBN-13 check digits")
+    public void testChecksum() {
+        assertTrue(IsbnValidator.isValid("0-306-40615-2"));
+        assertFalse(IsbnValidator.isValid("0-306-40615-3"));
+        assertTrue(IsbnValidator.isValid("978-0-306-40615-7"));
+        assertFalse(IsbnValidator.isValid("978-0-306-40615-8"));
+        assertTrue(IsbnValidator.isValid("0-8044-2957-X"));
+        assertFalse(IsbnValidator.isValid("0-8044-2957-X1"));
+        assertFalse(IsbnValidator.isValid("978-0-8044-2957-X"));
+    }
+
+    @Test
+    @DisplayName("Bulk array validation sets one bit per valid entry")
+    public void testValidateAll() {
+        CharSequence[] isbns = {"9780306406157", null, "bad", new StringBuilder("0306406152")};
+        BitSet result = IsbnValidator.validateAll(isbns, true);
+        assertTrue(result.get(0));
+        assertFalse(result.get(1));
+        assertFalse(result.get(2));
+        assertTrue(result.get(3));
+    }
+
+    @Test
+    @DisplayName("File validation handles CRLF and a missing final newline")
+    public void testValidateFile() throws Exception {
+        Path file = Files.createTempFile("isbns", ".txt");
+        try {
+            Files.write(file, "9780306406157\r\n123\n\n0-306-40615-2".getBytes(StandardCharsets.US_ASCII));
+            BitSet result = IsbnValidator.validateFile(file, true);
+            assertTrue(result.get(0));
+            assertFalse(result.get(1));
+            assertFalse(result.get(2));
+            assertTrue(result.get(3));
+            assertEquals(2, result.cardinality());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the per-patron and per-title loan history and its export.
+ */
+public class LoanHistoryTest {
+    private Checkout checkout;
+    private Book first;
+    private Book second;
+    private Patron reader;
+    private Patron other;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+        first = new Book("9780306406157", "First", "Author", Book.BookType.FICTION, 2);
+        second = new Book("9780000000002", "Second", "Author", Book.BookType.FICTION, 1);
+        checkout.addBook(first);
+        checkout.addBook(second);
+        reader = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+        other = new Patron("P-2", "Other", "o@example.com", Patron.PatronType.FACULTY);
+        checkout.registerPatron(reader);
+        checkout.registerPatron(other);
+    }
+
+    private static List<Checkout.Transaction> drain(Iterator<Checkout.Transaction> it) {
+        List<Checkout.Transaction> all = new ArrayList<>();
+        it.forEachRemaining(all::add);
+        return all;
+    }
+
+    @Test
+    @DisplayName("A patron's and a title's loans are found without scanning, oldest first")
+    public void testPatronAndTitleHistory() {
+        checkout.checkoutBook(first, reader);
+        checkout.checkoutBook(second, reader);
+        checkout.checkoutBook(first, other);
+        checkout.returnBook(first.getIsbn(), reader);
+
+        List<Checkout.Transaction> mine = drain(checkout.getPatronHistory("P-1"));
+        assertEquals(2, mine.size());
+        assertEquals(first.getIsbn(), mine.get(0).getIsbn());
+        assertTrue(mine.get(0).isReturned(), "The return shows up in the history");
+        assertEquals(1, mine.get(0).getCopy());
+        assertEquals(second.getIsbn(), mine.get(1).getIsbn());
+        assertFalse(mine.get(1).isReturned());
+
+        List<Checkout.Transaction> title = drain(checkout.getTitleHistory("978-0-306-40615-7"));
+        assertEquals(2, title.size(), "Any spelling of the ISBN finds the title's loans");
+        assertEquals("P-1", title.get(0).getPatronId());
+        assertEquals("P-2", title.get(1).getPatronId());
+        assertEquals(2, title.get(1).getCopy());
+
+        assertFalse(checkout.getPatronHistory("P-404").hasNext());
+        assertFalse(checkout.getTitleHistory(null).hasNext());
+    }
+
+    @Test
+    @DisplayName("Pages and streams cover a long history in order")
+    public void testPagingLongHistory() {
+        for (int i = 0; i < 250; i++) {
+            checkout.checkoutBook(second, reader);
+            checkout.returnBook(second.getIsbn(), reader);
+        }
+        List<Checkout.Transaction> paged = new ArrayList<>();
+        for (int page = 0; page < 11; page++) {
+            paged.addAll(checkout.getTitleHistory(second.getIsbn(), page, 25));
+        }
+        assertEquals(drain(checkout.getPatronHistory("P-1")), paged);
+        assertEquals(250, paged.size());
+        assertTrue(checkout.getPatronHistory("P-1", 10, 25).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> checkout.getPatronHistory("P-1", 0, -1));
+    }
+
+    @Test
+    @DisplayName("A stream covers the loans made before it started")
+    public void testStreamIsStable() {
+        checkout.checkoutBook(first, reader);
+        Iterator<Checkout.Transaction> it = checkout.getTitleHistory(first.getIsbn());
+        checkout.checkoutBook(first, other);
+        assertEquals(1, drain(it).size());
+        assertEquals(2, drain(checkout.getTitleHistory(first.getIsbn())).size());
+    }
+
+    @Test
+    @DisplayName("Batch checkouts are indexed too")
+    public void testBatchIndexed() {
+        List<CheckoutRequest> requests = new ArrayList<>();
+        requests.add(new CheckoutRequest(first, reader));
+        requests.add(new CheckoutRequest(second, other));
+        checkout.checkoutBatch(requests);
+        assertEquals(1, checkout.getPatronHistory("P-1", 0, 10).size());
+        assertEquals("P-2", checkout.getTitleHistory(second.getIsbn(), 0, 10).get(0).getPatronId());
+    }
+}
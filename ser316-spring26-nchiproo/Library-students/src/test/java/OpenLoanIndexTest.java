@@ -0,0 +1,172 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the open-loan index and for sending closed loans to a LoanArchive.
+ */
+public class OpenLoanIndexTest {
+    private Checkout checkout;
+    private Book book;
+    private Patron reader;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        checkout = new Checkout();
+        book = new Book("9780306406157", "Title", "Author", Book.BookType.FICTION, 40);
+        checkout.addBook(book);
+        reader = new Patron("P-0", "Reader", "r@example.com", Patron.PatronType.FACULTY);
+        checkout.registerPatron(reader);
+        file = Files.createTempFile("loan-archive", ".csv");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static Checkout.Transaction only(Iterator<Checkout.Transaction> it) {
+        assertTrue(it.hasNext(), "Expected one loan");
+        Checkout.Transaction t = it.next();
+        assertFalse(it.hasNext(), "Expected one loan");
+        return t;
+    }
+
+    @Test
+    @DisplayName("A return closes exactly its own open loan among many")
+    public void testReturnClosesIndexedLoan() {
+        for (int i = 1; i < 40; i++) {
+            Patron patron = new Patron("P-" + i, "Reader " + i, "r" + i + "@example.com", Patron.PatronType.FACULTY);
+            checkout.registerPatron(patron);
+            assertEquals(0.0, checkout.checkoutBook(book, patron), 0.001);
+        }
+        assertEquals(0.0, checkout.checkoutBook(book, reader), 0.001);
+        assertEquals(40, checkout.getOpenLoanCount());
+        Checkout.Transaction mine = only(checkout.getPatronHistory("P-0"));
+
+        assertEquals(0.0, checkout.returnBook("978-0-306-40615-7", reader), 0.001);
+        assertEquals(39, checkout.getOpenLoanCount());
+        assertSame(mine, only(checkout.getPatronHistory("P-0")), "The history shares the indexed loan");
+        assertEquals(LocalDate.now(), mine.getReturnDate());
+        assertFalse(only(checkout.getPatronHistory("P-17")).isReturned());
+
+        List<LoanKey> open = checkout.getOverdueLoans(LocalDate.now().plusYears(1));
+        assertEquals(39, open.size());
+        assertFalse(open.contains(new LoanKey("P-0", book.getIsbn())), "The returned loan left the due-date index");
+        assertEquals(-1.0, checkout.returnBook(book.getIsbn(), reader), 0.001);
+        assertEquals(39, checkout.getOpenLoanCount());
+    }
+
+    @Test
+    @DisplayName("A renewal moves the indexed loan to its new due date")
+    public void testRenewalUpdatesIndexedDueDate() {
+        LocalDate today = LocalDate.now();
+        LocalDate overdue = today.minusDays(3);
+        assertTrue(book.tryCheckout());
+        assertTrue(checkout.restoreLoan(reader, book.getIsbn(), today.minusDays(63), overdue, 0, Book.NO_COPY));
+        LoanKey key = new LoanKey("P-0", book.getIsbn());
+        assertEquals(List.of(key), checkout.getOverdueLoans(today));
+
+        assertEquals(0.1, checkout.renewBook(book.getIsbn(), reader), 0.001);
+        LocalDate renewed = today.plusDays(reader.getLoanPeriodDays());
+        assertEquals(renewed, only(checkout.getPatronHistory("P-0")).getDueDate());
+        assertTrue(checkout.getOverdueLoans(today).isEmpty(), "The old due date no longer lists the loan");
+        assertTrue(checkout.getOverdueLoans(renewed).isEmpty());
+        assertEquals(List.of(key), checkout.getOverdueLoans(renewed.plusDays(1)));
+        assertEquals(1, checkout.getOpenLoanCount());
+    }
+
+    @Test
+    @DisplayName("With an archive set, closed loans go to the archive and not the in-memory history")
+    public void testClosedLoansGoToArchive() {
+        List<String> archived = new ArrayList<>();
+        checkout.setLoanArchive((patronId, isbn, checkoutDate, dueDate, returnDate) ->
+                archived.add(patronId + " " + isbn + " " + checkoutDate + " " + dueDate + " " + returnDate));
+
+        LocalDate today = LocalDate.now();
+        assertEquals(0.0, checkout.checkoutBook(book, reader), 0.001);
+        assertEquals(1, checkout.getOpenLoanCount());
+        assertTrue(archived.isEmpty(), "Open loans are not archived");
+
+        assertEquals(0.0, checkout.returnBook(book.getIsbn(), reader), 0.001);
+        assertEquals(0, checkout.getOpenLoanCount());
+        assertEquals(List.of("P-0 " + book.getIsbn() + " " + today + " "
+                + today.plusDays(reader.getLoanPeriodDays()) + " " + today), archived);
+        assertFalse(checkout.getPatronHistory("P-0").hasNext(), "Archived loans are not kept on the heap");
+        assertFalse(checkout.getTitleHistory(book.getIsbn()).hasNext());
+    }
+
+    @Test
+    @DisplayName("FileLoanArchive writes one CSV record per closed loan and appends across reopens")
+    public void testFileArchiveRoundTrip() throws IOException {
+        LocalDate today = LocalDate.now();
+        LocalDate due = today.plusDays(reader.getLoanPeriodDays());
+        try (FileLoanArchive archive = new FileLoanArchive(file)) {
+            checkout.setLoanArchive(archive);
+            assertEquals(0.0, checkout.checkoutBook(book, reader), 0.001);
+            assertEquals(0.0, checkout.returnBook(book.getIsbn(), reader), 0.001);
+            archive.flush();
+            assertEquals(List.of("P-0,9780306406157," + today + "," + due + "," + today),
+                    Files.readAllLines(file, StandardCharsets.UTF_8));
+        }
+
+        try (FileLoanArchive archive = new FileLoanArchive(file)) {
+            checkout.setLoanArchive(archive);
+            assertTrue(book.tryCheckout());
+            assertTrue(checkout.restoreLoan(reader, book.getIsbn(), null, due, 0, Book.NO_COPY));
+            checkout.returnBook(book.getIsbn(), reader);
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size(), "Reopening appends");
+        String[] fields = lines.get(1).split(",", -1);
+        assertEquals(5, fields.length);
+        assertEquals("P-0", fields[0]);
+        assertEquals(book.getIsbn(), fields[1]);
+        assertEquals("", fields[2], "An unknown checkout date is left empty");
+        assertEquals(due, LocalDate.parse(fields[3]));
+        assertEquals(today, LocalDate.parse(fields[4]));
+        assertEquals(40, book.getAvailableCopies());
+    }
+
+    @Test
+    @DisplayName("A failing archive leaves the loan open and the copy out, so the return can be retried")
+    public void testFailingArchiveKeepsReturnConsistent() {
+        boolean[] failing = {true};
+        List<String> archived = new ArrayList<>();
+        checkout.setLoanArchive((patronId, isbn, checkoutDate, dueDate, returnDate) -> {
+            if (failing[0]) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+            archived.add(patronId + " " + isbn);
+        });
+        assertEquals(0.0, checkout.checkoutBook(book, reader), 0.001);
+
+        assertThrows(UncheckedIOException.class, () -> checkout.returnBook(book.getIsbn(), reader));
+        assertTrue(reader.hasBookCheckedOut(book.getIsbn()), "The patron still has the book");
+        assertEquals(39, book.getAvailableCopies(), "The copy was not shelved");
+        assertEquals(1, checkout.getOpenLoanCount());
+        assertEquals(1, checkout.getOverdueLoans(LocalDate.now().plusYears(1)).size());
+
+        failing[0] = false;
+        assertEquals(0.0, checkout.returnBook(book.getIsbn(), reader), 0.001);
+        assertEquals(List.of("P-0 " + book.getIsbn()), archived);
+        assertFalse(reader.hasBookCheckedOut(book.getIsbn()));
+        assertEquals(40, book.getAvailableCopies());
+        assertEquals(0, checkout.getOpenLoanCount());
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the batch overdue sweep.
+ */
+public class OverdueSweepTest {
+
+    private Checkout checkout;
+    private Book fiction;
+    private Book textbook;
+    private Patron patron;
+
+    @BeforeEach
+    public void setUp() {
+        checkout = new Checkout();
+        fiction = new Book("9780123456789", "Novel", "Author", Book.BookType.FICTION, 2);
+        textbook = new Book("9780123456780", "Calculus", "Author", Book.BookType.TEXTBOOK, 2);
+        checkout.addBook(fiction);
+        checkout.addBook(textbook);
+        patron = new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT);
+        checkout.registerPatron(patron);
+    }
+
+    @Test
+    @DisplayName("Sweep recomputes overdue count and charges each fine only once")
+    public void testSweepAccruesIncrementally() {
+        LocalDate today = LocalDate.now();
+        patron.addCheckedOutBook(fiction.getIsbn(), today.minusDays(5));
+        patron.addCheckedOutBook(textbook.getIsbn(), today.plusDays(3));
+        patron.setOverdueCount(2); // stale value
+
+        OverdueSweepResult first = checkout.runOverdueSweep(today.minusDays(2));
+        assertEquals(1, patron.getOverdueCount());
+        assertEquals(75, first.getFinesAccruedCents());
+
+        OverdueSweepResult second = checkout.runOverdueSweep(today);
+        assertEquals(50, second.getFinesAccruedCents());
+        assertEquals(125, patron.getFineCents());
+        assertEquals(2, second.getLoansScanned());
+
+        // Return charges nothing more because the sweep already billed today's fine
+        assertEquals(0.0, checkout.returnBook(fiction.getIsbn(), patron), 0.0);
+        assertEquals(1.25, patron.getFineBalance(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Sweep suspends patrons holding a loan at the fine cap")
+    public void testSweepSuspendsAtCap() {
+        LocalDate today = LocalDate.now();
+        patron.addCheckedOutBook(textbook.getIsbn(), today.minusDays(40));
+
+        OverdueSweepResult result = checkout.runOverdueSweep(today);
+        assertTrue(patron.isAccountSuspended());
+        assertEquals(1, result.getSuspendedPatronIds().size());
+        assertEquals(25.0, patron.getFineBalance(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Due-date index reports loans as they cross their due date")
+    public void testDueDateIndex() {
+        LocalDate today = LocalDate.now();
+        LocalDate due = today.plusDays(patron.getLoanPeriodDays());
+        checkout.checkoutBook(fiction, patron);
+        checkout.checkoutBook(textbook, patron);
+
+        assertTrue(checkout.getOverdueLoans(due).isEmpty());
+        assertEquals(2, checkout.getLoansBecomingOverdue(due.plusDays(1)).size());
+        assertEquals(2, checkout.getOverdueLoans(due.plusDays(5)).size());
+
+        checkout.returnBook(fiction.getIsbn(), patron);
+        assertEquals(1, checkout.getOverdueLoans(due.plusDays(5)).size());
+        assertEquals(new LoanKey("P-1", textbook.getIsbn()), checkout.getOverdueLoans(due.plusDays(5)).get(0));
+    }
+}
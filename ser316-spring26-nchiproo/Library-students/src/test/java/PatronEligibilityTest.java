@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the packed patron eligibility word.
+ */
+public class PatronEligibilityTest {
+
+    @Test
+    @DisplayName("Every input change recomputes the eligibility word")
+    public void testWordTracksInputs() {
+        Patron patron = new Patron("P-1", "Child", "c@example.com", Patron.PatronType.CHILD); // limit 3
+        assertEquals(0, patron.getEligibilityFlags());
+
+        patron.addCheckedOutBook("9780000000002", LocalDate.now());
+        assertEquals(Patron.NEAR_LIMIT, patron.getEligibilityFlags());
+        patron.getCheckedOutBooks().put("9780000000019", LocalDate.now());
+        patron.getCheckedOutBooks().put("9780000000026", LocalDate.now());
+        assertTrue(patron.isAtCheckoutLimit());
+        patron.removeCheckedOutBook("9780000000026");
+        assertFalse(patron.isAtCheckoutLimit());
+        assertTrue(patron.isNearCheckoutLimit());
+
+        patron.addFine(9.99);
+        assertEquals(0, patron.getEligibilityFlags() & Patron.FINE_LIMIT);
+        patron.addFineCents(1);
+        assertEquals(Patron.FINE_LIMIT, patron.getEligibilityFlags() & Patron.FINE_LIMIT);
+        patron.payFine(0.01);
+        assertEquals(0, patron.getEligibilityFlags() & Patron.FINE_LIMIT);
+        patron.addFine(20);
+        patron.resetFines();
+        assertEquals(0, patron.getEligibilityFlags() & Patron.FINE_LIMIT);
+
+        patron.setOverdueCount(3);
+        patron.setAccountSuspended(true);
+        assertEquals(Patron.SUSPENDED | Patron.OVERDUE_LIMIT | Patron.NEAR_LIMIT, patron.getEligibilityFlags());
+        patron.setAccountSuspended(false);
+        patron.setOverdueCount(2);
+        patron.getCheckedOutBooks().clear();
+        assertEquals(0, patron.getEligibilityFlags());
+    }
+
+    @Test
+    @DisplayName("Eligibility codes and the 1.1 and 3.2 checks use the word")
+    public void testCheckoutCodes() {
+        Checkout checkout = new Checkout();
+        Patron patron = new Patron("P-1", "Child", "c@example.com", Patron.PatronType.CHILD);
+        Book[] books = new Book[4];
+        for (int i = 0; i < books.length; i++) {
+            books[i] = new Book(CheckoutLoadGenerator.isbn(i), "T" + i, "A", Book.BookType.FICTION, 1);
+            checkout.addBook(books[i]);
+        }
+        assertEquals(1.1, checkout.checkoutBook(books[0], patron), 0.001);
+        assertEquals(1.1, checkout.checkoutBook(books[1], patron), 0.001);
+        assertEquals(1.1, checkout.checkoutBook(books[2], patron), 0.001);
+        assertEquals(3.2, checkout.checkoutBook(books[3], patron), 0.001);
+
+        patron.addFine(10);
+        assertEquals(4.1, checkout.validatePatronEligibility(patron), 0.001);
+        patron.setOverdueCount(3);
+        assertEquals(4.0, checkout.validatePatronEligibility(patron), 0.001);
+        patron.setAccountSuspended(true);
+        assertEquals(3.0, checkout.validatePatronEligibility(patron), 0.001);
+    }
+}
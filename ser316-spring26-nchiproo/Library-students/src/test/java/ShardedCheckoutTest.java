@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the sharded, multi-branch Checkout.
+ */
+public class ShardedCheckoutTest {
+    private ShardedCheckout consortium;
+
+    @BeforeEach
+    public void setUp() {
+        consortium = new ShardedCheckout(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        consortium.close();
+    }
+
+    @Test
+    @DisplayName("A title homed at another branch is transferred, lent and sent home")
+    public void testCrossShardCheckout() {
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 2);
+        consortium.addBook(book, 0);
+        consortium.registerPatron(new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT), 2);
+        consortium.registerPatron(new Patron("P-2", "Other", "o@example.com", Patron.PatronType.STUDENT), 0);
+
+        assertEquals(0.0, consortium.checkoutBook("0306406152", "P-1").join(), 0.001);
+        assertEquals(1, book.getAvailableCopies());
+        assertEquals(1, book.getTotalCopies());
+        Book local = consortium.getShard(2).getInventory().get("9780306406157");
+        assertEquals(0, local.getAvailableCopies());
+        assertEquals(2, consortium.getTotalCopies("9780306406157"));
+        assertTrue(consortium.getShard(2).getPatrons().get("P-1").hasBookCheckedOut("9780306406157"));
+
+        assertEquals(0.1, consortium.checkoutBook("9780306406157", "P-1").join(), 0.001);
+        assertEquals(0.0, consortium.checkoutBook("9780306406157", "P-2").join(), 0.001);
+        assertEquals(3.1, consortium.checkoutBook("9780306406157", "P-3").join(), 0.001);
+        Patron third = new Patron("P-4", "Third", "t@example.com", Patron.PatronType.FACULTY);
+        consortium.registerPatron(third, 1);
+        assertEquals(2.0, consortium.checkoutBook("9780306406157", "P-4").join(), 0.001);
+
+        assertEquals(0.0, consortium.returnBook("9780306406157", "P-1").join(), 0.001);
+        consortium.close(); // waits for the copy to arrive home
+        assertEquals(1, book.getAvailableCopies());
+        assertEquals(2, book.getTotalCopies());
+        assertEquals(0, local.getTotalCopies());
+    }
+
+    @Test
+    @DisplayName("A returned copy stays for a hold at the patron's branch; arriving copies serve holds")
+    public void testHoldsKeepVisitingCopies() {
+        Book book = new Book("978-0-306-40615-7", "Title", "Author", Book.BookType.FICTION, 2);
+        consortium.addBook(book, 0);
+        consortium.registerPatron(new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.FACULTY), 2);
+        consortium.registerPatron(new Patron("P-2", "Waiting", "w@example.com", Patron.PatronType.FACULTY), 2);
+        consortium.registerPatron(new Patron("P-3", "Later", "l@example.com", Patron.PatronType.FACULTY), 2);
+
+        assertEquals(0.0, consortium.checkoutBook("9780306406157", "P-1").join(), 0.001);
+        Checkout branch = consortium.getShard(2);
+        Book local = branch.getInventory().get("9780306406157");
+        assertEquals(0.0, consortium.onShard(2, c -> c.placeHold(local, c.getPatrons().get("P-2"))).join(), 0.001);
+
+        assertEquals(0.0, consortium.returnBook("9780306406157", "P-1").join(), 0.001);
+        assertEquals(Hold.Status.READY,
+                consortium.onShard(2, c -> c.getHold("9780306406157", c.getPatrons().get("P-2"))).join().getStatus());
+        assertEquals(1, local.getTotalCopies(), "The claimed copy is not sent home");
+        assertEquals(1, book.getTotalCopies());
+
+        assertEquals(0.0, consortium.onShard(2, c -> c.placeHold(local, c.getPatrons().get("P-3"))).join(), 0.001);
+        assertTrue(consortium.transferCopies("9780306406157", 0, 2, 1).join());
+        assertEquals(Hold.Status.READY,
+                consortium.onShard(2, c -> c.getHold("9780306406157", c.getPatrons().get("P-3"))).join().getStatus());
+        assertEquals(0, local.getAvailableCopies(), "The arriving copy went to the waiting hold");
+    }
+
+    @Test
+    @DisplayName("Unknown titles and reference books get the checkoutBook codes")
+    public void testCodes() {
+        consortium.addBook(new Book("9780000000002", "Atlas", "Editor", Book.BookType.REFERENCE, 1), 1);
+        consortium.registerPatron(new Patron("P-1", "Reader", "r@example.com", Patron.PatronType.STUDENT), 3);
+        assertEquals(5.0, consortium.checkoutBook("9780000000002", "P-1").join(), 0.001);
+        assertEquals(2.1, consortium.checkoutBook("9780000000019", "P-1").join(), 0.001);
+        assertEquals(-1.0, consortium.returnBook("9780000000002", "P-1").join(), 0.001);
+        assertFalse(consortium.transferCopies("9780000000002", 1, 3, 1).join());
+    }
+
+    @Test
+    @DisplayName("Concurrent cross-branch traffic never loses or duplicates a copy")
+    public void testCopiesConserved() {
+        int titles = 40;
+        int patrons = 60;
+        for (int i = 0; i < titles; i++) {
+            consortium.addBook(new Book(CheckoutLoadGenerator.isbn(i), "T" + i, "A", Book.BookType.FICTION, 3));
+        }
+        for (int i = 0; i < patrons; i++) {
+            consortium.registerPatron(new Patron("P-" + i, "N" + i, "e", Patron.PatronType.FACULTY));
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        List<CompletableFuture<Double>> pending = new ArrayList<>();
+        List<String[]> loans = new ArrayList<>();
+        for (int n = 0; n < 2000; n++) {
+            String isbn = CheckoutLoadGenerator.isbn(random.nextInt(titles));
+            String patron = "P-" + random.nextInt(patrons);
+            pending.add(consortium.checkoutBook(isbn, patron));
+            loans.add(new String[] {isbn, patron});
+            if (n % 3 == 0) {
+                consortium.transferCopies(isbn, consortium.getHomeShard(isbn), random.nextInt(4), 1);
+            }
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        pending.clear();
+        for (String[] loan : loans) {
+            pending.add(consortium.returnBook(loan[0], loan[1]));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        consortium.close();
+
+        for (int i = 0; i < titles; i++) {
+            String isbn = CheckoutLoadGenerator.isbn(i);
+            assertEquals(3, consortium.getTotalCopies(isbn), isbn);
+            assertEquals(3, consortium.getAvailableCopies(isbn), isbn);
+        }
+        for (int s = 0; s < consortium.getShardCount(); s++) {
+            assertEquals(0, consortium.getShard(s).getOpenLoanCount());
+        }
+    }
+}